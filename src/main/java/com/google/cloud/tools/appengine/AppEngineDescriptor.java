@@ -17,29 +17,46 @@
 package com.google.cloud.tools.appengine;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.xml.sax.SAXException;
 
-/** Utilities to obtain information from appengine-web.xml. */
+/**
+ * Utilities to obtain information from appengine-web.xml. The descriptor is read in a single
+ * streaming pass that keeps only the values of the known elements, so the object is immutable and
+ * its getters do no further parsing.
+ */
 public class AppEngineDescriptor {
 
   private static final String APP_ENGINE_NAMESPACE = "http://appengine.google.com/ns/1.0";
-  private final Document document;
+
+  /** Shared by all parses, creating a factory looks up the implementation on the class path. */
+  private static final XMLInputFactory inputFactory = newInputFactory();
+
+  @Nullable private final String projectId;
+  @Nullable private final String runtime;
+  @Nullable private final String projectVersion;
+  @Nullable private final String service;
+  @Nullable private final String module;
+  private final ImmutableMap<String, String> environment;
 
   // private to force use of parse method
-  private AppEngineDescriptor(Document document) {
-    this.document = document;
+  private AppEngineDescriptor(Parser parser) {
+    this.projectId = parser.values.get("application");
+    this.runtime = parser.values.get("runtime");
+    this.projectVersion = parser.values.get("version");
+    this.service = parser.values.get("service");
+    this.module = parser.values.get("module");
+    this.environment = ImmutableMap.copyOf(parser.environment);
   }
 
   /**
@@ -53,10 +70,18 @@ public class AppEngineDescriptor {
   public static AppEngineDescriptor parse(InputStream in) throws IOException, SAXException {
     Preconditions.checkNotNull(in, "Null input");
     try {
-      DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-      documentBuilderFactory.setNamespaceAware(true);
-      return new AppEngineDescriptor(documentBuilderFactory.newDocumentBuilder().parse(in));
-    } catch (ParserConfigurationException exception) {
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+      try {
+        Parser parser = new Parser(reader);
+        parser.parse();
+        return new AppEngineDescriptor(parser);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException exception) {
+      if (exception.getNestedException() instanceof IOException) {
+        throw (IOException) exception.getNestedException();
+      }
       throw new SAXException("Cannot parse appengine-web.xml", exception);
     }
   }
@@ -67,7 +92,7 @@ public class AppEngineDescriptor {
    */
   @Nullable
   public String getProjectId() throws AppEngineException {
-    return getText(getNode(document, "appengine-web-app", "application"));
+    return projectId;
   }
 
   /**
@@ -75,9 +100,8 @@ public class AppEngineDescriptor {
    * when it is missing.
    */
   public String getRuntime() throws AppEngineException {
-    String runtime = getText(getNode(document, "appengine-web-app", "runtime"));
     if (runtime == null) {
-      runtime = "java7"; // the default runtime when not specified.
+      return "java7"; // the default runtime when not specified.
     }
     return runtime;
   }
@@ -88,7 +112,7 @@ public class AppEngineDescriptor {
    */
   @Nullable
   public String getProjectVersion() throws AppEngineException {
-    return getText(getNode(document, "appengine-web-app", "version"));
+    return projectVersion;
   }
 
   /**
@@ -97,11 +121,10 @@ public class AppEngineDescriptor {
    */
   @Nullable
   public String getServiceId() throws AppEngineException {
-    String serviceId = getText(getNode(document, "appengine-web-app", "service"));
-    if (serviceId != null) {
-      return serviceId;
+    if (service != null) {
+      return service;
     }
-    return getText(getNode(document, "appengine-web-app", "module"));
+    return module;
   }
 
   /** Returns true if the runtime read from appengine-web.xml is Java8. */
@@ -132,72 +155,143 @@ public class AppEngineDescriptor {
    * @return a map representing the environment variable settings in the appengine-web.xml
    */
   public Map<String, String> getEnvironment() throws AppEngineException {
-    Node environmentParentNode = getNode(document, "appengine-web-app", "env-variables");
-    if (environmentParentNode != null) {
-      return getAttributeMap(environmentParentNode, "env-var", "name", "value");
-    }
-    return new HashMap<>();
+    return new HashMap<>(environment);
   }
 
-  @Nullable
-  private static String getText(@Nullable Node node) throws AppEngineException {
-    if (node != null) {
-      try {
-        return node.getTextContent();
-      } catch (DOMException ex) {
-        throw new AppEngineException(
-            "Failed to parse text content from node " + node.getNodeName(), ex);
+  private static XMLInputFactory newInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    // appengine-web.xml has no use for DTDs, not processing them rules out entity expansion attacks
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * Collects the text of the first child of each known name, and the env-var attributes of the
+   * first &lt;env-variables&gt; child, of the first &lt;appengine-web-app&gt; element in the App
+   * Engine namespace. Like the DOM lookups this replaced, children are matched by their qualified
+   * name in any namespace, and their text includes the text of nested elements.
+   */
+  private static class Parser {
+    private static final String ROOT = "appengine-web-app";
+    private static final String ENVIRONMENT = "env-variables";
+    private static final String ENVIRONMENT_VARIABLE = "env-var";
+
+    private final XMLStreamReader reader;
+    private final Map<String, String> values = new HashMap<>();
+    private final Map<String, String> environment = new LinkedHashMap<>();
+
+    private int depth;
+    /** Depth of the root element while it is read, or -1. */
+    private int rootDepth = -1;
+
+    private boolean rootRead;
+    private boolean environmentRead;
+    private boolean inEnvironment;
+    @Nullable private String currentValue;
+    private final StringBuilder text = new StringBuilder();
+
+    private Parser(XMLStreamReader reader) {
+      this.reader = reader;
+    }
+
+    private void parse() throws XMLStreamException {
+      // the whole document is read, so malformed XML after the root element is still reported
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            depth++;
+            startElement();
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            if (currentValue != null) {
+              text.append(
+                  reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            endElement();
+            depth--;
+            break;
+          default:
+            // comments and processing instructions are not part of the text
+            break;
+        }
       }
     }
 
-    return null;
-  }
+    private void startElement() {
+      if (rootDepth < 0) {
+        if (!rootRead
+            && ROOT.equals(reader.getLocalName())
+            && APP_ENGINE_NAMESPACE.equals(reader.getNamespaceURI())) {
+          rootDepth = depth;
+        }
+        return;
+      }
+      String name = getQualifiedName();
+      if (depth == rootDepth + 1) {
+        if (isValueElement(name) && !values.containsKey(name)) {
+          currentValue = name;
+          text.setLength(0);
+        } else if (ENVIRONMENT.equals(name) && !environmentRead) {
+          environmentRead = true;
+          inEnvironment = true;
+        }
+      } else if (depth == rootDepth + 2 && inEnvironment && ENVIRONMENT_VARIABLE.equals(name)) {
+        String key = getAttribute("name");
+        String value = getAttribute("value");
+        // a variable without a value is skipped, it used to fail the whole environment with an NPE
+        if (key != null && value != null) {
+          environment.put(key, value);
+        }
+      }
+    }
 
-  /** Returns a map formed from the attributes of the nodes contained within the parent node. */
-  private static Map<String, String> getAttributeMap(
-      Node parent, String nodeName, String keyAttributeName, String valueAttributeName)
-      throws AppEngineException {
-
-    Map<String, String> nameValueAttributeMap = new HashMap<>();
-    if (parent.hasChildNodes()) {
-      for (int i = 0; i < parent.getChildNodes().getLength(); i++) {
-        Node child = parent.getChildNodes().item(i);
-        NamedNodeMap attributeMap = child.getAttributes();
-
-        if (nodeName.equals(child.getNodeName()) && attributeMap != null) {
-          Node keyNode = attributeMap.getNamedItem(keyAttributeName);
-
-          if (keyNode != null) {
-            Node valueNode = attributeMap.getNamedItem(valueAttributeName);
-            try {
-              nameValueAttributeMap.put(keyNode.getTextContent(), valueNode.getTextContent());
-            } catch (DOMException ex) {
-              throw new AppEngineException(
-                  "Failed to parse value from attribute node " + keyNode.getNodeName(), ex);
-            }
-          }
+    private void endElement() {
+      if (depth == rootDepth + 1) {
+        if (currentValue != null) {
+          values.put(currentValue, text.toString());
+          currentValue = null;
         }
+        inEnvironment = false;
+      } else if (depth == rootDepth) {
+        rootDepth = -1;
+        rootRead = true;
       }
     }
 
-    return nameValueAttributeMap;
-  }
+    private static boolean isValueElement(String name) {
+      switch (name) {
+        case "application":
+        case "runtime":
+        case "version":
+        case "service":
+        case "module":
+          return true;
+        default:
+          return false;
+      }
+    }
 
-  /** Returns the first node found matching the given name contained within the parent node. */
-  @Nullable
-  private static Node getNode(Document doc, String parentNodeName, String targetNodeName) {
-    NodeList parentElements = doc.getElementsByTagNameNS(APP_ENGINE_NAMESPACE, parentNodeName);
-    if (parentElements.getLength() > 0) {
-      Node parent = parentElements.item(0);
-      if (parent.hasChildNodes()) {
-        for (int i = 0; i < parent.getChildNodes().getLength(); i++) {
-          Node child = parent.getChildNodes().item(i);
-          if (child.getNodeName().equals(targetNodeName)) {
-            return child;
-          }
+    private String getQualifiedName() {
+      String prefix = reader.getPrefix();
+      String localName = reader.getLocalName();
+      return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    @Nullable
+    private String getAttribute(String name) {
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+        String prefix = reader.getAttributePrefix(i);
+        if ((prefix == null || prefix.isEmpty()) && name.equals(reader.getAttributeLocalName(i))) {
+          return reader.getAttributeValue(i);
         }
       }
+      return null;
     }
-    return null;
   }
 }
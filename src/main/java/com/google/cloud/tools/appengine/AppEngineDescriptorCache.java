@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine;
+
+import com.google.cloud.tools.io.IoExecutors;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Future;
+import org.xml.sax.SAXException;
+
+/**
+ * Caches parsed appengine-web.xml files, keyed by path and validated against the modification time
+ * and size of the file, so that the dev server and staging parse each descriptor once instead of
+ * once per use. Several descriptors can be parsed in parallel with {@link #getAll}.
+ */
+public final class AppEngineDescriptorCache {
+
+  /**
+   * Descriptors read this soon after they were modified are read again on the next call, because a
+   * further change within the resolution of the file system's timestamps would keep the same
+   * modification time.
+   */
+  private static final long RACY_INTERVAL_MILLIS = 2000;
+
+  private static final AppEngineDescriptorCache shared = new AppEngineDescriptorCache();
+
+  /** Parses descriptors for {@link #getAll}, at most one task per processor for each call. */
+  private static final ExecutorService executor =
+      IoExecutors.newDaemonExecutor("appengine-descriptor-%d");
+
+  private final ConcurrentMap<Path, CachedDescriptor> descriptors = new ConcurrentHashMap<>();
+
+  /** Returns the cache shared by the operations of this library. */
+  public static AppEngineDescriptorCache getShared() {
+    return shared;
+  }
+
+  /**
+   * Returns the parsed descriptor, parsing the file only if it was not parsed before or changed
+   * since.
+   *
+   * @param appEngineWebXml path of an appengine-web.xml file
+   * @throws IOException if the file cannot be read
+   * @throws SAXException malformed XML
+   */
+  public AppEngineDescriptor get(Path appEngineWebXml) throws IOException, SAXException {
+    Path key = appEngineWebXml.toAbsolutePath().normalize();
+    // the stamp is taken before reading, so a change during the read invalidates the result
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    CachedDescriptor cached = descriptors.get(key);
+    if (cached != null && cached.isValid(attributes)) {
+      return cached.descriptor;
+    }
+
+    long readTime = System.currentTimeMillis();
+    AppEngineDescriptor descriptor;
+    try (InputStream in = Files.newInputStream(key)) {
+      descriptor = AppEngineDescriptor.parse(in);
+    }
+    descriptors.put(
+        key,
+        new CachedDescriptor(
+            attributes.lastModifiedTime(), attributes.size(), readTime, descriptor));
+    return descriptor;
+  }
+
+  /**
+   * Returns the parsed descriptors of several files, parsing those that are not cached in parallel.
+   *
+   * @param appEngineWebXmls paths of appengine-web.xml files
+   * @return the descriptors, in the iteration order of {@code appEngineWebXmls}
+   * @throws IOException if a file cannot be read
+   * @throws SAXException malformed XML
+   */
+  public Map<Path, AppEngineDescriptor> getAll(Collection<Path> appEngineWebXmls)
+      throws IOException, SAXException {
+    Map<Path, AppEngineDescriptor> result = new LinkedHashMap<>();
+    int threads = Math.min(appEngineWebXmls.size(), Runtime.getRuntime().availableProcessors());
+    if (threads <= 1) {
+      for (Path appEngineWebXml : appEngineWebXmls) {
+        result.put(appEngineWebXml, get(appEngineWebXml));
+      }
+      return result;
+    }
+
+    // a few workers take the files in turn, so a call never uses more than the processors
+    List<Path> paths = new ArrayList<>(appEngineWebXmls);
+    AppEngineDescriptor[] parsed = new AppEngineDescriptor[paths.size()];
+    AtomicInteger next = new AtomicInteger();
+    List<Future<Void>> workers = new ArrayList<>();
+    try {
+      for (int i = 0; i < threads; i++) {
+        workers.add(
+            executor.submit(
+                new Callable<Void>() {
+                  @Override
+                  public Void call() throws IOException, SAXException {
+                    for (int index = next.getAndIncrement();
+                        index < paths.size();
+                        index = next.getAndIncrement()) {
+                      parsed[index] = get(paths.get(index));
+                    }
+                    return null;
+                  }
+                }));
+      }
+      for (Future<Void> worker : workers) {
+        worker.get();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing appengine-web.xml files");
+    } catch (ExecutionException ex) {
+      Throwables.throwIfInstanceOf(ex.getCause(), IOException.class);
+      Throwables.throwIfInstanceOf(ex.getCause(), SAXException.class);
+      Throwables.throwIfUnchecked(ex.getCause());
+      throw new IOException(ex.getCause());
+    } finally {
+      // stops the other workers after a failure
+      next.set(paths.size());
+      for (Future<Void> worker : workers) {
+        worker.cancel(true);
+      }
+    }
+    for (int i = 0; i < paths.size(); i++) {
+      result.put(paths.get(i), parsed[i]);
+    }
+    return result;
+  }
+
+  /** Forgets all parsed descriptors. */
+  @VisibleForTesting
+  void clear() {
+    descriptors.clear();
+  }
+
+  private static class CachedDescriptor {
+    private final FileTime lastModified;
+    private final long size;
+    private final long readTime;
+    private final AppEngineDescriptor descriptor;
+
+    private CachedDescriptor(
+        FileTime lastModified, long size, long readTime, AppEngineDescriptor descriptor) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.readTime = readTime;
+      this.descriptor = descriptor;
+    }
+
+    private boolean isValid(BasicFileAttributes attributes) {
+      return lastModified.equals(attributes.lastModifiedTime())
+          && size == attributes.size()
+          && readTime - lastModified.toMillis() >= RACY_INTERVAL_MILLIS;
+    }
+  }
+}
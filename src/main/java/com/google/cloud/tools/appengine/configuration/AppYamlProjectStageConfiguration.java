@@ -33,17 +33,23 @@ public class AppYamlProjectStageConfiguration {
   @Nullable private final List<Path> extraFilesDirectories;
   private final Path artifact;
   private final Path stagingDirectory;
+  @Nullable private final Boolean incremental;
+  @Nullable private final Boolean linkArtifacts;
 
   private AppYamlProjectStageConfiguration(
       Path appEngineDirectory,
       @Nullable Path dockerDirectory,
       @Nullable List<Path> extraFilesDirectories,
       Path artifact,
-      Path stagingDirectory) {
+      Path stagingDirectory,
+      @Nullable Boolean incremental,
+      @Nullable Boolean linkArtifacts) {
     this.appEngineDirectory = appEngineDirectory;
     this.dockerDirectory = dockerDirectory;
     this.artifact = artifact;
     this.stagingDirectory = stagingDirectory;
+    this.incremental = incremental;
+    this.linkArtifacts = linkArtifacts;
     this.extraFilesDirectories =
         (extraFilesDirectories == null) ? null : ImmutableList.copyOf(extraFilesDirectories);
   }
@@ -78,6 +84,25 @@ public class AppYamlProjectStageConfiguration {
     return stagingDirectory;
   }
 
+  /**
+   * Only copy files that changed since the previous staging into the same staging directory, and
+   * remove staged files whose source is gone.
+   */
+  @Nullable
+  public Boolean getIncremental() {
+    return incremental;
+  }
+
+  /**
+   * Hard link {@code app.yaml}, the artifact and the jars on its {@code Class-Path} into the
+   * staging directory instead of copying them. Files are copied when linking fails, for example
+   * when the staging directory is on a different file system.
+   */
+  @Nullable
+  public Boolean getLinkArtifacts() {
+    return linkArtifacts;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -102,6 +127,8 @@ public class AppYamlProjectStageConfiguration {
     @Nullable private List<Path> extraFilesDirectories;
     @Nullable private Path artifact;
     @Nullable private Path stagingDirectory;
+    @Nullable private Boolean incremental;
+    @Nullable private Boolean linkArtifacts;
 
     private Builder() {}
 
@@ -132,6 +159,16 @@ public class AppYamlProjectStageConfiguration {
       return this;
     }
 
+    public AppYamlProjectStageConfiguration.Builder incremental(@Nullable Boolean incremental) {
+      this.incremental = incremental;
+      return this;
+    }
+
+    public AppYamlProjectStageConfiguration.Builder linkArtifacts(@Nullable Boolean linkArtifacts) {
+      this.linkArtifacts = linkArtifacts;
+      return this;
+    }
+
     /** Build a {@link AppYamlProjectStageConfiguration}. */
     @SuppressWarnings("NullAway")
     public AppYamlProjectStageConfiguration build() {
@@ -144,7 +181,9 @@ public class AppYamlProjectStageConfiguration {
           this.dockerDirectory,
           this.extraFilesDirectories,
           this.artifact,
-          this.stagingDirectory);
+          this.stagingDirectory,
+          this.incremental,
+          this.linkArtifacts);
     }
   }
 }
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.appengine.operations;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 import com.google.cloud.tools.appengine.AppEngineException;
@@ -29,9 +30,12 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.UUID;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.logging.Logger;
@@ -70,8 +74,10 @@ public class AppYamlProjectStaging {
     }
 
     try {
-      String env = findEnv(config);
-      String runtime = findRuntime(config);
+      // app.yaml is read once, and only for the top-level fields that decide how to stage
+      AppYaml appYaml = readAppYaml(config);
+      String env = appYaml.getEnvironmentType();
+      String runtime = appYaml.getRuntime();
       if ("flex".equals(env)) {
         stageFlexibleArchive(config, runtime);
         return;
@@ -82,7 +88,8 @@ public class AppYamlProjectStaging {
           stageStandardArchive(config);
           return;
         }
-        if (hasCustomEntrypoint(config)) {
+        // for non jar artifacts we want to ensure the entrypoint is custom
+        if (appYaml.getEntrypoint() != null) {
           stageStandardBinary(config);
           return;
         }
@@ -105,58 +112,55 @@ public class AppYamlProjectStaging {
   @VisibleForTesting
   void stageFlexibleArchive(AppYamlProjectStageConfiguration config, @Nullable String runtime)
       throws IOException, AppEngineException {
-    CopyService copyService = new CopyService();
+    CopyService copyService = newCopyService(config);
     copyDockerContext(config, copyService, runtime);
     copyExtraFiles(config, copyService);
     copyAppEngineContext(config, copyService);
     copyArtifact(config, copyService);
+    copyService.commit();
   }
 
   @VisibleForTesting
   void stageStandardArchive(AppYamlProjectStageConfiguration config)
       throws IOException, AppEngineException {
-    CopyService copyService = new CopyService();
+    CopyService copyService = newCopyService(config);
     copyExtraFiles(config, copyService);
     copyAppEngineContext(config, copyService);
     copyArtifact(config, copyService);
     copyArtifactJarClasspath(config, copyService);
+    copyService.commit();
   }
 
   @VisibleForTesting
   void stageStandardBinary(AppYamlProjectStageConfiguration config)
       throws IOException, AppEngineException {
-    CopyService copyService = new CopyService();
+    CopyService copyService = newCopyService(config);
     copyExtraFiles(config, copyService);
     copyAppEngineContext(config, copyService);
     copyArtifact(config, copyService);
+    copyService.commit();
   }
 
   @VisibleForTesting
-  @Nullable
-  static String findEnv(AppYamlProjectStageConfiguration config)
-      throws AppEngineException, IOException {
-    Path appEngineDirectory = config.getAppEngineDirectory();
-    if (appEngineDirectory == null) {
-      throw new AppEngineException("Invalid Staging Configuration: missing App Engine directory");
-    }
-    Path appYaml = appEngineDirectory.resolve(APP_YAML);
-    try (InputStream input = Files.newInputStream(appYaml)) {
-      return AppYaml.parse(input).getEnvironmentType();
+  static CopyService newCopyService(AppYamlProjectStageConfiguration config) throws IOException {
+    boolean linkFiles = Boolean.TRUE.equals(config.getLinkArtifacts());
+    if (Boolean.TRUE.equals(config.getIncremental())) {
+      return new IncrementalCopyService(config.getStagingDirectory(), linkFiles);
     }
+    return new CopyService(linkFiles);
   }
 
   @VisibleForTesting
-  @Nullable
-  static String findRuntime(AppYamlProjectStageConfiguration config)
+  static AppYaml readAppYaml(AppYamlProjectStageConfiguration config)
       throws IOException, AppEngineException {
-    // verify that app.yaml that contains runtime:java
     Path appEngineDirectory = config.getAppEngineDirectory();
     if (appEngineDirectory == null) {
       throw new AppEngineException("Invalid Staging Configuration: missing App Engine directory");
     }
     Path appYaml = appEngineDirectory.resolve(APP_YAML);
     try (InputStream input = Files.newInputStream(appYaml)) {
-      return AppYaml.parse(input).getRuntime();
+      // staging only needs top-level fields, so nested sections are not loaded
+      return AppYaml.scan(input);
     }
   }
 
@@ -271,21 +275,23 @@ public class AppYamlProjectStaging {
   }
 
   @VisibleForTesting
-  // for non jar artifacts we want to ensure the entrypoint is custom
-  static boolean hasCustomEntrypoint(AppYamlProjectStageConfiguration config)
-      throws IOException, AppEngineException {
-    // verify that app.yaml that contains entrypoint:
-    if (config.getAppEngineDirectory() == null) {
-      throw new AppEngineException("Invalid Staging Configuration: missing App Engine directory");
+  static class CopyService {
+    private final boolean linkFiles;
+
+    CopyService() {
+      this(false);
     }
-    Path appYamlFile = config.getAppEngineDirectory().resolve(APP_YAML);
-    try (InputStream input = Files.newInputStream(appYamlFile)) {
-      return AppYaml.parse(input).getEntrypoint() != null;
+
+    /**
+     * Creates a copy service.
+     *
+     * @param linkFiles if true, {@link #copyFileAndReplace} hard links files instead of copying
+     *     them when the source and destination are on the same file system
+     */
+    CopyService(boolean linkFiles) {
+      this.linkFiles = linkFiles;
     }
-  }
 
-  @VisibleForTesting
-  static class CopyService {
     void copyDirectory(Path src, Path dest, List<Path> excludes) throws IOException {
       FileUtil.copyDirectory(src, dest, excludes);
     }
@@ -298,7 +304,40 @@ public class AppYamlProjectStaging {
       if (!Files.exists(dest.getParent())) {
         Files.createDirectories(dest.getParent());
       }
-      Files.copy(src, dest, REPLACE_EXISTING);
+      replaceFile(src, dest, REPLACE_EXISTING);
+    }
+
+    /** Replaces {@code dest} with a hard link to {@code src} if enabled, or else a copy. */
+    void replaceFile(Path src, Path dest, CopyOption... options) throws IOException {
+      if (Files.exists(dest) && Files.isSameFile(src, dest)) {
+        // e.g. the artifact already sits in the staging directory
+        return;
+      }
+      if (linkFiles) {
+        // the link is moved over dest, so that a failed link never leaves dest deleted
+        Path link = dest.resolveSibling("." + dest.getFileName() + "." + UUID.randomUUID());
+        try {
+          Files.createLink(link, src);
+          moveReplacing(link, dest);
+          return;
+        } catch (IOException | UnsupportedOperationException ex) {
+          Files.deleteIfExists(link);
+          // most likely a different file store, or links aren't supported
+          log.fine("Could not link " + dest + " to " + src + ", copying instead: " + ex);
+        }
+      }
+      Files.copy(src, dest, options);
+    }
+
+    private static void moveReplacing(Path src, Path dest) throws IOException {
+      try {
+        Files.move(src, dest, REPLACE_EXISTING, ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(src, dest, REPLACE_EXISTING);
+      }
     }
+
+    /** Called once all files for a staging run have been copied. */
+    void commit() throws IOException {}
   }
 }
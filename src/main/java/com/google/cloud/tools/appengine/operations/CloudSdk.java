@@ -28,6 +28,8 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.PathResolver;
 import com.google.cloud.tools.appengine.operations.cloudsdk.serialization.CloudSdkVersion;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -35,12 +37,18 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
@@ -62,6 +70,14 @@ public class CloudSdk {
   private static final String WINDOWS_BUNDLED_PYTHON = "platform/bundledpython/python.exe";
   private static final String VERSION_FILE_NAME = "VERSION";
 
+  /**
+   * Parsed versions and successful validations of Cloud SDKs, shared by all instances because a
+   * build usually creates several for the same SDK. Entries are keyed on the SDK path and only used
+   * while the VERSION file keeps the modification time and size it had when they were recorded.
+   */
+  private static final ConcurrentMap<Path, VersionFileState> versionFileStates =
+      new ConcurrentHashMap<>();
+
   private final Map<String, Path> jarLocations = new HashMap<>();
   private final Path sdkPath;
   private final Path javaHomePath;
@@ -85,10 +101,15 @@ public class CloudSdk {
   public CloudSdkVersion getVersion() throws CloudSdkVersionFileException {
     Path versionFile = getPath().resolve(VERSION_FILE_NAME);
 
-    if (!Files.isRegularFile(versionFile)) {
+    VersionFileStamp stamp = readVersionFileStamp();
+    if (stamp == null) {
       throw new CloudSdkVersionFileNotFoundException(
           "Cloud SDK version file not found at " + versionFile.toString());
     }
+    VersionFileState state = versionFileStates.get(getCacheKey());
+    if (state != null && state.stamp.equals(stamp) && state.version != null) {
+      return state.version;
+    }
 
     String contents = "";
     try {
@@ -97,7 +118,10 @@ public class CloudSdk {
         // expect only a single line
         contents = lines.get(0);
       }
-      return new CloudSdkVersion(contents);
+      CloudSdkVersion version = new CloudSdkVersion(contents);
+      boolean validated = state != null && state.stamp.equals(stamp) && state.validated;
+      versionFileStates.put(getCacheKey(), new VersionFileState(stamp, version, validated));
+      return version;
     } catch (IOException ex) {
       throw new CloudSdkVersionFileException(ex);
     } catch (IllegalArgumentException ex) {
@@ -186,8 +210,46 @@ public class CloudSdk {
    */
   public void validateCloudSdk()
       throws CloudSdkNotFoundException, CloudSdkOutOfDateException, CloudSdkVersionFileException {
+    // an SDK validated before is only checked again once its VERSION file changes
+    VersionFileStamp stamp = readVersionFileStamp();
+    VersionFileState state = versionFileStates.get(getCacheKey());
+    if (stamp != null && state != null && state.stamp.equals(stamp) && state.validated) {
+      return;
+    }
+
     validateCloudSdkLocation();
     validateCloudSdkVersion();
+
+    if (stamp != null) {
+      state = versionFileStates.get(getCacheKey());
+      CloudSdkVersion version = state != null && state.stamp.equals(stamp) ? state.version : null;
+      versionFileStates.put(getCacheKey(), new VersionFileState(stamp, version, true));
+    }
+  }
+
+  /** Forgets all cached versions and validations. */
+  @VisibleForTesting
+  static void clearVersionFileStates() {
+    versionFileStates.clear();
+  }
+
+  private Path getCacheKey() {
+    return sdkPath.toAbsolutePath().normalize();
+  }
+
+  /** Returns the modification time and size of the VERSION file, or null if it is not a file. */
+  @Nullable
+  private VersionFileStamp readVersionFileStamp() {
+    try {
+      BasicFileAttributes attributes =
+          Files.readAttributes(getPath().resolve(VERSION_FILE_NAME), BasicFileAttributes.class);
+      if (!attributes.isRegularFile()) {
+        return null;
+      }
+      return new VersionFileStamp(attributes.lastModifiedTime(), attributes.size());
+    } catch (IOException ex) {
+      return null;
+    }
   }
 
   private void validateCloudSdkVersion()
@@ -265,7 +327,57 @@ public class CloudSdk {
     return path;
   }
 
+  private static class VersionFileStamp {
+    private final FileTime lastModifiedTime;
+    private final long size;
+
+    private VersionFileStamp(FileTime lastModifiedTime, long size) {
+      this.lastModifiedTime = lastModifiedTime;
+      this.size = size;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      if (!(other instanceof VersionFileStamp)) {
+        return false;
+      }
+      VersionFileStamp stamp = (VersionFileStamp) other;
+      return lastModifiedTime.equals(stamp.lastModifiedTime) && size == stamp.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(lastModifiedTime, size);
+    }
+  }
+
+  private static class VersionFileState {
+    private final VersionFileStamp stamp;
+    @Nullable private final CloudSdkVersion version;
+    private final boolean validated;
+
+    private VersionFileState(
+        VersionFileStamp stamp, @Nullable CloudSdkVersion version, boolean validated) {
+      this.stamp = stamp;
+      this.version = version;
+      this.validated = validated;
+    }
+  }
+
   public static class Builder {
+    /**
+     * The service loader chain is only loaded on first use and then shared by all builders,
+     * because scanning the class path for providers is expensive.
+     */
+    private static final Supplier<List<CloudSdkResolver>> defaultResolvers =
+        Suppliers.memoize(
+            new Supplier<List<CloudSdkResolver>>() {
+              @Override
+              public List<CloudSdkResolver> get() {
+                return loadDefaultResolvers();
+              }
+            });
+
     @Nullable private Path sdkPath;
     @Nullable private List<CloudSdkResolver> resolvers;
     private Path javaHomePath = Paths.get(System.getProperty("java.home"));
@@ -338,17 +450,23 @@ public class CloudSdk {
       if (this.resolvers != null) {
         resolvers = new ArrayList<>(this.resolvers);
       } else {
-        // Explicitly specify classloader rather than use the Thread Context Class Loader
-        ServiceLoader<CloudSdkResolver> services =
-            ServiceLoader.load(CloudSdkResolver.class, getClass().getClassLoader());
-        resolvers = Lists.newArrayList(services);
-        // Explicitly add the PATH-based resolver
-        resolvers.add(new PathResolver());
+        resolvers = new ArrayList<>(defaultResolvers.get());
       }
       resolvers.sort(new ResolverComparator());
       return resolvers;
     }
 
+    /** Loads the service-provided resolvers, once per class loader of this class. */
+    private static List<CloudSdkResolver> loadDefaultResolvers() {
+      // Explicitly specify classloader rather than use the Thread Context Class Loader
+      ServiceLoader<CloudSdkResolver> services =
+          ServiceLoader.load(CloudSdkResolver.class, Builder.class.getClassLoader());
+      List<CloudSdkResolver> resolvers = Lists.newArrayList(services);
+      // Explicitly add the PATH-based resolver
+      resolvers.add(new PathResolver());
+      return Collections.unmodifiableList(resolvers);
+    }
+
     /*
      * Set the list of path resolvers to locate the Google Cloud SDK. Intended for tests to
      * precisely control where the SDK may be found.
@@ -17,6 +17,7 @@
 package com.google.cloud.tools.appengine.operations;
 
 import com.google.cloud.tools.appengine.AppEngineDescriptor;
+import com.google.cloud.tools.appengine.AppEngineDescriptorCache;
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.configuration.RunConfiguration;
 import com.google.cloud.tools.appengine.configuration.StopConfiguration;
@@ -29,10 +30,8 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +50,7 @@ public class DevServer {
 
   private static final String DEFAULT_HOST = "localhost";
   private static final int DEFAULT_PORT = 8080;
+  private static final String APPENGINE_WEB_XML = "WEB-INF/appengine-web.xml";
 
   public DevServer(CloudSdk sdk, DevAppServerRunner runner) {
     this.sdk = Preconditions.checkNotNull(sdk);
@@ -90,7 +90,10 @@ public class DevServer {
       arguments.addAll(additionalArguments);
     }
 
-    boolean isSandboxEnforced = isSandboxEnforced(config.getServices());
+    // parse the descriptors of all services once, in parallel, for the lookups below
+    Map<Path, AppEngineDescriptor> appEngineDescriptors =
+        parseAppEngineWebXmls(config.getServices());
+    boolean isSandboxEnforced = isSandboxEnforced(appEngineDescriptors);
 
     if (!isSandboxEnforced) {
       jvmArguments.add("-Duse_jetty9_runtime=true");
@@ -110,7 +113,7 @@ public class DevServer {
     }
 
     Map<String, String> appEngineEnvironment =
-        getAllAppEngineWebXmlEnvironmentVariables(config.getServices());
+        getAllAppEngineWebXmlEnvironmentVariables(appEngineDescriptors);
     if (!appEngineEnvironment.isEmpty()) {
       log.info(
           "Setting appengine-web.xml configured environment variables: "
@@ -188,18 +191,18 @@ public class DevServer {
    */
   @VisibleForTesting
   boolean isSandboxEnforced(List<Path> services) throws AppEngineException {
+    return isSandboxEnforced(parseAppEngineWebXmls(services));
+  }
+
+  private static boolean isSandboxEnforced(Map<Path, AppEngineDescriptor> appEngineDescriptors)
+      throws AppEngineException {
     boolean relaxSandbox = false;
     boolean enforceSandbox = false;
-    for (Path serviceDirectory : services) {
-      Path appengineWebXml = serviceDirectory.resolve("WEB-INF/appengine-web.xml");
-      try (InputStream is = Files.newInputStream(appengineWebXml)) {
-        if (AppEngineDescriptor.parse(is).isSandboxEnforced()) {
-          enforceSandbox = true;
-        } else {
-          relaxSandbox = true;
-        }
-      } catch (IOException | SAXException ex) {
-        throw new AppEngineException(ex);
+    for (AppEngineDescriptor appEngineDescriptor : appEngineDescriptors.values()) {
+      if (appEngineDescriptor.isSandboxEnforced()) {
+        enforceSandbox = true;
+      } else {
+        relaxSandbox = true;
       }
     }
     if (relaxSandbox && enforceSandbox) {
@@ -208,22 +211,34 @@ public class DevServer {
     return !relaxSandbox;
   }
 
-  private static Map<String, String> getAllAppEngineWebXmlEnvironmentVariables(List<Path> services)
+  /**
+   * Parses the appengine-web.xml files of the services, in parallel when there are several.
+   *
+   * @return the descriptors by appengine-web.xml path, in the order of {@code services}
+   */
+  private static Map<Path, AppEngineDescriptor> parseAppEngineWebXmls(List<Path> services)
       throws AppEngineException {
-    Map<String, String> allAppEngineEnvironment = Maps.newHashMap();
+    List<Path> appengineWebXmls = new ArrayList<>();
     for (Path serviceDirectory : services) {
-      Path appengineWebXml = serviceDirectory.resolve("WEB-INF/appengine-web.xml");
-      try (InputStream is = Files.newInputStream(appengineWebXml)) {
-        AppEngineDescriptor appEngineDescriptor = AppEngineDescriptor.parse(is);
-        Map<String, String> appEngineEnvironment = appEngineDescriptor.getEnvironment();
-        if (appEngineEnvironment != null) {
-          checkAndWarnDuplicateEnvironmentVariables(
-              appEngineEnvironment, allAppEngineEnvironment, appEngineDescriptor.getServiceId());
+      appengineWebXmls.add(serviceDirectory.resolve(APPENGINE_WEB_XML));
+    }
+    try {
+      return AppEngineDescriptorCache.getShared().getAll(appengineWebXmls);
+    } catch (IOException | SAXException ex) {
+      throw new AppEngineException(ex);
+    }
+  }
 
-          allAppEngineEnvironment.putAll(appEngineEnvironment);
-        }
-      } catch (IOException | SAXException ex) {
-        throw new AppEngineException(ex);
+  private static Map<String, String> getAllAppEngineWebXmlEnvironmentVariables(
+      Map<Path, AppEngineDescriptor> appEngineDescriptors) throws AppEngineException {
+    Map<String, String> allAppEngineEnvironment = Maps.newHashMap();
+    for (AppEngineDescriptor appEngineDescriptor : appEngineDescriptors.values()) {
+      Map<String, String> appEngineEnvironment = appEngineDescriptor.getEnvironment();
+      if (appEngineEnvironment != null) {
+        checkAndWarnDuplicateEnvironmentVariables(
+            appEngineEnvironment, allAppEngineEnvironment, appEngineDescriptor.getServiceId());
+
+        allAppEngineEnvironment.putAll(appEngineEnvironment);
       }
     }
     return allAppEngineEnvironment;
@@ -24,15 +24,31 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.internal.process.Exi
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.LegacyProcessHandler;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandler;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessHandlerException;
+import com.google.cloud.tools.appengine.operations.cloudsdk.process.ProcessOutputLineListener;
 import com.google.cloud.tools.appengine.operations.cloudsdk.process.StringBuilderProcessOutputLineListener;
 import com.google.cloud.tools.appengine.operations.cloudsdk.serialization.CloudSdkComponent;
 import com.google.cloud.tools.appengine.operations.cloudsdk.serialization.CloudSdkConfig;
+import com.google.cloud.tools.io.CapturedOutput;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonSyntaxException;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
@@ -47,6 +63,7 @@ public class Gcloud {
   @Nullable private final String outputFormat;
   @Nullable private final String showStructuredLogs;
   @Nullable private final String verbosity;
+  @Nullable private final GcloudExecutionPool executionPool;
 
   private Gcloud(
       CloudSdk sdk,
@@ -57,7 +74,8 @@ public class Gcloud {
       @Nullable List<Path> flagsFiles,
       @Nullable String outputFormat,
       @Nullable String showStructuredLogs,
-      @Nullable String verbosity) {
+      @Nullable String verbosity,
+      @Nullable GcloudExecutionPool executionPool) {
     this.gcloudRunnerFactory = gcloudRunnerFactory;
     this.sdk = sdk;
     this.metricsEnvironment = metricsEnvironment;
@@ -67,6 +85,7 @@ public class Gcloud {
     this.outputFormat = outputFormat;
     this.showStructuredLogs = showStructuredLogs;
     this.verbosity = verbosity;
+    this.executionPool = executionPool;
   }
 
   public Deployment newDeployment(ProcessHandler processHandler) {
@@ -108,8 +127,11 @@ public class Gcloud {
             .addAll(GcloudArgs.get("format", "json"))
             .build();
 
-    String componentsJson = runCommand(command);
-    return CloudSdkComponent.fromJsonList(componentsJson);
+    // the list of all components is large, so it is parsed while read back from the capture
+    try (CapturedOutput componentsJson = runCommandStreaming(command);
+        Reader reader = componentsJson.openReader()) {
+      return CloudSdkComponent.fromJsonList(reader);
+    }
   }
 
   /**
@@ -139,10 +161,39 @@ public class Gcloud {
    */
   public String runCommand(List<String> args)
       throws CloudSdkNotFoundException, IOException, ProcessHandlerException {
-    sdk.validateCloudSdkLocation();
-
     StringBuilderProcessOutputLineListener stdOutListener =
         StringBuilderProcessOutputLineListener.newListener();
+    runCommand(args, stdOutListener);
+    return stdOutListener.toString();
+  }
+
+  /**
+   * Run short lived gcloud commands with large outputs. Unlike {@link #runCommand}, standard out is
+   * not collected into a string but kept in memory up to {@link
+   * CapturedOutput#DEFAULT_MEMORY_THRESHOLD} bytes and spilled to a temporary file beyond that, so
+   * it can be parsed incrementally from {@link CapturedOutput#openReader()}.
+   *
+   * @param args the arguments to gcloud command (not including 'gcloud')
+   * @return standard out, one line per output line, which the caller must close
+   */
+  public CapturedOutput runCommandStreaming(List<String> args)
+      throws CloudSdkNotFoundException, IOException, ProcessHandlerException {
+    CapturedOutput stdOut = new CapturedOutput();
+    try {
+      CapturingLineListener stdOutListener = new CapturingLineListener(stdOut);
+      runCommand(args, stdOutListener);
+      stdOutListener.finish();
+      return stdOut;
+    } catch (IOException | ProcessHandlerException | RuntimeException ex) {
+      stdOut.close();
+      throw ex;
+    }
+  }
+
+  private void runCommand(List<String> args, ProcessOutputLineListener stdOutListener)
+      throws CloudSdkNotFoundException, IOException, ProcessHandlerException {
+    sdk.validateCloudSdkLocation();
+
     StringBuilderProcessOutputLineListener stdErrListener =
         StringBuilderProcessOutputLineListener.newListenerWithNewlines();
     ExitCodeRecorderProcessExitListener exitListener = new ExitCodeRecorderProcessExitListener();
@@ -154,13 +205,22 @@ public class Gcloud {
             .addAll(args)
             .build();
 
-    Process process = new ProcessBuilder(command).start();
-    LegacyProcessHandler.builder()
-        .addStdOutLineListener(stdOutListener)
-        .addStdErrLineListener(stdErrListener)
-        .setExitListener(exitListener)
-        .build()
-        .handleProcess(process);
+    if (executionPool != null) {
+      executionPool.acquire();
+    }
+    try {
+      Process process = new ProcessBuilder(command).start();
+      LegacyProcessHandler.builder()
+          .addStdOutLineListener(stdOutListener)
+          .addStdErrLineListener(stdErrListener)
+          .setExitListener(exitListener)
+          .build()
+          .handleProcess(process);
+    } finally {
+      if (executionPool != null) {
+        executionPool.release();
+      }
+    }
 
     if (exitListener.getMostRecentExitCode() != null
         && !exitListener.getMostRecentExitCode().equals(0)) {
@@ -168,8 +228,92 @@ public class Gcloud {
       throw new ProcessHandlerException(
           "Process exited unsuccessfully with code " + exitListener.getMostRecentExitCode());
     }
+  }
 
-    return stdOutListener.toString();
+  /**
+   * Run independent short lived gcloud commands concurrently, as many at a time as the execution
+   * pool allows, or one after the other without an execution pool.
+   *
+   * @param commands the arguments of each gcloud command (not including 'gcloud')
+   * @return standard out of each command, in the order of {@code commands}
+   */
+  public List<String> runCommands(List<List<String>> commands)
+      throws CloudSdkNotFoundException, IOException, ProcessHandlerException {
+    int threads = executionPool == null ? 1 : executionPool.getMaxConcurrentCommands();
+    threads = Math.min(threads, commands.size());
+    List<String> results = new ArrayList<>();
+    if (threads <= 1) {
+      for (List<String> command : commands) {
+        results.add(runCommand(command));
+      }
+      return results;
+    }
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat("gcloud-command-%d").setDaemon(true).build());
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (List<String> command : commands) {
+        futures.add(
+            executor.submit(
+                new Callable<String>() {
+                  @Override
+                  public String call() throws Exception {
+                    return runCommand(command);
+                  }
+                }));
+      }
+      for (Future<String> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while running gcloud commands");
+    } catch (ExecutionException ex) {
+      Throwables.throwIfInstanceOf(ex.getCause(), CloudSdkNotFoundException.class);
+      Throwables.throwIfInstanceOf(ex.getCause(), IOException.class);
+      Throwables.throwIfInstanceOf(ex.getCause(), ProcessHandlerException.class);
+      Throwables.throwIfUnchecked(ex.getCause());
+      // call() only throws exceptions, errors are unchecked
+      throw new ProcessHandlerException((Exception) ex.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Writes output lines to a {@link CapturedOutput}, keeping the first write failure. */
+  private static class CapturingLineListener implements ProcessOutputLineListener {
+    private final Writer writer;
+    @Nullable private IOException failure;
+
+    private CapturingLineListener(CapturedOutput output) {
+      writer =
+          new BufferedWriter(
+              new OutputStreamWriter(output.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void onOutputLine(String line) {
+      if (failure == null) {
+        try {
+          writer.write(line);
+          writer.write('\n');
+        } catch (IOException ex) {
+          failure = ex;
+        }
+      }
+    }
+
+    /** Flushes the captured lines, or throws the failure that kept them from being captured. */
+    private void finish() throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+      writer.flush();
+    }
   }
 
   @VisibleForTesting
@@ -202,6 +346,7 @@ public class Gcloud {
     @Nullable private String outputFormat;
     @Nullable private String showStructuredLogs;
     @Nullable private String verbosity;
+    @Nullable private GcloudExecutionPool executionPool;
 
     private Builder(CloudSdk sdk) {
       this(sdk, new GcloudRunner.Factory());
@@ -261,18 +406,31 @@ public class Gcloud {
       return this;
     }
 
+    /**
+     * Runs gcloud through an execution pool, which bounds the number of concurrent gcloud
+     * processes. The Cloud SDK is still validated before every command, which is cheap once it has
+     * been validated. The pool can be shared with other Gcloud instances.
+     */
+    public Builder setExecutionPool(GcloudExecutionPool executionPool) {
+      this.executionPool = executionPool;
+      return this;
+    }
+
     /** Build an immutable Gcloud instance. */
     public Gcloud build() {
       return new Gcloud(
           sdk,
-          gcloudRunnerFactory,
+          executionPool == null
+              ? gcloudRunnerFactory
+              : gcloudRunnerFactory.withExecutionPool(executionPool),
           metricsEnvironment,
           metricsEnvironmentVersion,
           credentialFile,
           flagsFiles,
           outputFormat,
           showStructuredLogs,
-          verbosity);
+          verbosity,
+          executionPool);
     }
   }
 }
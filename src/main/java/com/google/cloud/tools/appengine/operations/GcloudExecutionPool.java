@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Shared execution state for gcloud commands run through {@link Gcloud} instances built with
+ * {@link Gcloud.Builder#setExecutionPool}. At most {@code maxConcurrentCommands} gcloud processes
+ * run at the same time, so independent commands can be issued from several threads without
+ * overloading the machine. A pool can be shared by several {@link Gcloud} instances.
+ */
+public final class GcloudExecutionPool {
+
+  private final int maxConcurrentCommands;
+  private final Semaphore permits;
+
+  /** Releases the permits of processes still running after their handler returned. */
+  private final ExecutorService exitWaiter =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("gcloud-exit-waiter-%d")
+              .setDaemon(true)
+              .build());
+
+  /** Creates a pool running at most {@code maxConcurrentCommands} gcloud processes at once. */
+  public GcloudExecutionPool(int maxConcurrentCommands) {
+    Preconditions.checkArgument(
+        maxConcurrentCommands > 0, "maxConcurrentCommands must be positive");
+    this.maxConcurrentCommands = maxConcurrentCommands;
+    this.permits = new Semaphore(maxConcurrentCommands, true);
+  }
+
+  public int getMaxConcurrentCommands() {
+    return maxConcurrentCommands;
+  }
+
+  /** Waits until another gcloud process may be started. */
+  void acquire() throws InterruptedIOException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to run gcloud");
+    }
+  }
+
+  void release() {
+    permits.release();
+  }
+
+  /**
+   * Releases the permit acquired for {@code process} once it exits, which can be after an
+   * asynchronous process handler returned.
+   */
+  void releaseOnExit(Process process) {
+    if (!process.isAlive()) {
+      release();
+      return;
+    }
+    exitWaiter.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              process.waitFor();
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            } finally {
+              release();
+            }
+          }
+        });
+  }
+
+  @VisibleForTesting
+  int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+}
@@ -29,6 +29,7 @@ import com.google.common.collect.Maps;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -48,6 +49,8 @@ public class GcloudRunner {
   @Nullable private final String verbosity;
   private final ProcessBuilderFactory processBuilderFactory;
   private final ProcessHandler processHandler;
+  @Nullable private final GcloudExecutionPool executionPool;
+  private final Map<String, String> gcloudCommandEnvironment;
 
   GcloudRunner(
       CloudSdk sdk,
@@ -60,6 +63,32 @@ public class GcloudRunner {
       @Nullable String verbosity,
       ProcessBuilderFactory processBuilderFactory,
       ProcessHandler processHandler) {
+    this(
+        sdk,
+        metricsEnvironment,
+        metricsEnvironmentVersion,
+        credentialFile,
+        flagsFiles,
+        outputFormat,
+        showStructuredLogs,
+        verbosity,
+        processBuilderFactory,
+        processHandler,
+        null);
+  }
+
+  GcloudRunner(
+      CloudSdk sdk,
+      @Nullable String metricsEnvironment,
+      @Nullable String metricsEnvironmentVersion,
+      @Nullable Path credentialFile,
+      @Nullable List<Path> flagsFiles,
+      @Nullable String outputFormat,
+      @Nullable String showStructuredLogs,
+      @Nullable String verbosity,
+      ProcessBuilderFactory processBuilderFactory,
+      ProcessHandler processHandler,
+      @Nullable GcloudExecutionPool executionPool) {
     this.sdk = sdk;
     this.metricsEnvironment = metricsEnvironment;
     this.metricsEnvironmentVersion = metricsEnvironmentVersion;
@@ -70,10 +99,13 @@ public class GcloudRunner {
     this.verbosity = verbosity;
     this.processBuilderFactory = processBuilderFactory;
     this.processHandler = processHandler;
+    this.executionPool = executionPool;
+    this.gcloudCommandEnvironment = buildGcloudCommandEnvironment();
   }
 
   /**
-   * Launch an external process that runs gcloud.
+   * Launch an external process that runs gcloud. With an execution pool, this waits while the pool
+   * runs as many gcloud processes as it allows.
    *
    * @param workingDirectory if null then the working directory of current Java process
    */
@@ -112,13 +144,35 @@ public class GcloudRunner {
     if (workingDirectory != null) {
       processBuilder.directory(workingDirectory.toFile());
     }
-    processBuilder.environment().putAll(getGcloudCommandEnvironment());
-    Process process = processBuilder.start();
-    processHandler.handleProcess(process);
+    processBuilder.environment().putAll(gcloudCommandEnvironment);
+    if (executionPool == null) {
+      Process process = processBuilder.start();
+      processHandler.handleProcess(process);
+      return;
+    }
+
+    executionPool.acquire();
+    Process process;
+    try {
+      process = processBuilder.start();
+    } catch (IOException | RuntimeException ex) {
+      executionPool.release();
+      throw ex;
+    }
+    try {
+      processHandler.handleProcess(process);
+    } finally {
+      executionPool.releaseOnExit(process);
+    }
   }
 
   @VisibleForTesting
   Map<String, String> getGcloudCommandEnvironment() {
+    return gcloudCommandEnvironment;
+  }
+
+  /** Builds the environment once, it only depends on the configuration of this runner. */
+  private Map<String, String> buildGcloudCommandEnvironment() {
     Map<String, String> environment = Maps.newHashMap();
     if (credentialFile != null) {
       environment.put("CLOUDSDK_APP_USE_GSUTIL", "0");
@@ -141,18 +195,30 @@ public class GcloudRunner {
 
     environment.put("CLOUDSDK_CORE_DISABLE_PROMPTS", "1");
 
-    return environment;
+    return Collections.unmodifiableMap(environment);
   }
 
   static class Factory {
     private final ProcessBuilderFactory processBuilderFactory;
+    @Nullable private final GcloudExecutionPool executionPool;
 
     Factory() {
       this(new ProcessBuilderFactory());
     }
 
     Factory(ProcessBuilderFactory processBuilderFactory) {
+      this(processBuilderFactory, null);
+    }
+
+    Factory(
+        ProcessBuilderFactory processBuilderFactory, @Nullable GcloudExecutionPool executionPool) {
       this.processBuilderFactory = processBuilderFactory;
+      this.executionPool = executionPool;
+    }
+
+    /** Returns a factory whose runners execute gcloud through {@code executionPool}. */
+    Factory withExecutionPool(GcloudExecutionPool executionPool) {
+      return new Factory(processBuilderFactory, executionPool);
     }
 
     GcloudRunner newRunner(
@@ -175,7 +241,8 @@ public class GcloudRunner {
           showStructuredLogs,
           verbosity,
           processBuilderFactory,
-          processHandler);
+          processHandler,
+          executionPool);
     }
   }
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.cloud.tools.io.FileUtil;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Copy service that only copies files whose content changed since the previous staging run into
+ * the same staging directory. The size and modification time of every staged file, and its SHA-256
+ * once it has been computed, are recorded in a manifest next to the staging directory, so that it
+ * is never deployed; files staged by the previous run that were not staged again are deleted on
+ * {@link #commit()}.
+ */
+class IncrementalCopyService extends AppYamlProjectStaging.CopyService {
+
+  private static final Logger log = Logger.getLogger(IncrementalCopyService.class.getName());
+
+  private static final Type MANIFEST_TYPE = new TypeToken<Map<String, StagedFile>>() {}.getType();
+  private static final Gson gson = new Gson();
+
+  private final Path stagingDirectory;
+  private final Path manifest;
+  private final Map<String, StagedFile> previous;
+  private final Map<String, StagedFile> current = new TreeMap<>();
+
+  private int copied;
+  private int skipped;
+
+  IncrementalCopyService(Path stagingDirectory) throws IOException {
+    this(stagingDirectory, false);
+  }
+
+  IncrementalCopyService(Path stagingDirectory, boolean linkFiles) throws IOException {
+    super(linkFiles);
+    this.stagingDirectory = stagingDirectory;
+    this.manifest = getManifest(stagingDirectory);
+    this.previous = readManifest(manifest);
+  }
+
+  /** Returns the manifest of a staging directory, a hidden file in its parent directory. */
+  @VisibleForTesting
+  static Path getManifest(Path stagingDirectory) {
+    Path directory = stagingDirectory.toAbsolutePath().normalize();
+    return directory.resolveSibling("." + directory.getFileName() + ".staging-manifest.json");
+  }
+
+  @Override
+  void copyDirectory(Path src, Path dest) throws IOException {
+    copyDirectory(src, dest, Collections.emptyList());
+  }
+
+  /**
+   * Copies the directory tree, failing if a file was already staged by this run. Files left over
+   * from a previous run are overwritten when their content differs.
+   */
+  @Override
+  void copyDirectory(Path src, Path dest, List<Path> excludes) throws IOException {
+    FileUtil.copyDirectory(
+        src,
+        dest,
+        excludes,
+        new FileUtil.FileCopier() {
+          @Override
+          public void copy(Path file, Path target, BasicFileAttributes attrs) throws IOException {
+            String key = key(target);
+            if (key != null && current.containsKey(key)) {
+              throw new FileAlreadyExistsException(target.toString());
+            }
+            stage(file, target, attrs, REPLACE_EXISTING, COPY_ATTRIBUTES);
+          }
+        });
+  }
+
+  @Override
+  void copyFileAndReplace(Path src, Path dest) throws IOException {
+    if (!Files.exists(dest.getParent())) {
+      Files.createDirectories(dest.getParent());
+    }
+    stage(src, dest, Files.readAttributes(src, BasicFileAttributes.class), REPLACE_EXISTING);
+  }
+
+  /**
+   * Deletes files that were staged previously but not by this run, and saves the manifest. Entries
+   * of the manifest that do not resolve to a file inside the staging directory are ignored.
+   */
+  @Override
+  void commit() throws IOException {
+    Path stagingRoot = stagingDirectory.toAbsolutePath().normalize();
+    int deleted = 0;
+    for (String key : previous.keySet()) {
+      if (!current.containsKey(key)) {
+        Path stale;
+        try {
+          stale = stagingRoot.resolve(key).normalize();
+        } catch (InvalidPathException ex) {
+          stale = null;
+        }
+        if (stale == null || !stale.startsWith(stagingRoot) || stale.equals(stagingRoot)) {
+          log.warning("Ignoring staging manifest entry outside of " + stagingRoot + ": " + key);
+          continue;
+        }
+        if (Files.deleteIfExists(stale)) {
+          deleted++;
+        }
+        deleteEmptyParents(stale);
+      }
+    }
+    try (Writer writer = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8)) {
+      gson.toJson(current, MANIFEST_TYPE, writer);
+    }
+    log.fine(
+        String.format(
+            "Incremental staging: %d copied, %d unchanged, %d deleted", copied, skipped, deleted));
+  }
+
+  @VisibleForTesting
+  int getCopiedCount() {
+    return copied;
+  }
+
+  @VisibleForTesting
+  int getSkippedCount() {
+    return skipped;
+  }
+
+  private void stage(Path src, Path dest, BasicFileAttributes attrs, CopyOption... options)
+      throws IOException {
+    String key = key(dest);
+    if (key == null) {
+      // only files inside the staging directory are tracked, and ever deleted
+      replaceFile(src, dest, options);
+      copied++;
+      return;
+    }
+    String source = src.toAbsolutePath().normalize().toString();
+    long size = attrs.size();
+    long lastModified = attrs.lastModifiedTime().toMillis();
+
+    // only hashed when a touched source has to be compared with its staged copy
+    String sha256 = null;
+    StagedFile staged = previous.get(key);
+    if (staged != null && staged.isIntact(dest)) {
+      if (source.equals(staged.source)
+          && staged.size == size
+          && staged.lastModified == lastModified) {
+        current.put(key, staged);
+        skipped++;
+        return;
+      }
+      // the source was touched or moved, only copy if the content differs
+      if (staged.size == size) {
+        // the staged copy is intact, so it has the content the source had when it was copied
+        String stagedSha256 = staged.sha256 != null ? staged.sha256 : sha256(dest);
+        sha256 = sha256(src);
+        if (sha256.equals(stagedSha256)) {
+          current.put(
+              key, new StagedFile(source, size, lastModified, staged.stagedLastModified, sha256));
+          skipped++;
+          return;
+        }
+      }
+    }
+
+    replaceFile(src, dest, options);
+    // a copied file is not read again to hash it, it is hashed if it is ever touched later
+    current.put(
+        key,
+        new StagedFile(
+            source, size, lastModified, Files.getLastModifiedTime(dest).toMillis(), sha256));
+    copied++;
+  }
+
+  /** Returns the manifest key of a staged file, or null if it is outside the staging directory. */
+  @Nullable
+  private String key(Path dest) {
+    Path absoluteStaging = stagingDirectory.toAbsolutePath().normalize();
+    Path absoluteDest = dest.toAbsolutePath().normalize();
+    if (absoluteDest.startsWith(absoluteStaging) && !absoluteDest.equals(absoluteStaging)) {
+      return absoluteStaging.relativize(absoluteDest).toString();
+    }
+    return null;
+  }
+
+  private void deleteEmptyParents(Path file) throws IOException {
+    Path stagingRoot = stagingDirectory.toAbsolutePath().normalize();
+    Path dir = file.toAbsolutePath().normalize().getParent();
+    while (dir != null && dir.startsWith(stagingRoot) && !dir.equals(stagingRoot)) {
+      try {
+        if (!Files.deleteIfExists(dir)) {
+          return;
+        }
+      } catch (DirectoryNotEmptyException ex) {
+        return;
+      }
+      dir = dir.getParent();
+    }
+  }
+
+  private static String sha256(Path file) throws IOException {
+    return MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString();
+  }
+
+  private static Map<String, StagedFile> readManifest(Path manifest) throws IOException {
+    if (!Files.isRegularFile(manifest)) {
+      return Collections.emptyMap();
+    }
+    try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+      Map<String, StagedFile> entries = gson.fromJson(reader, MANIFEST_TYPE);
+      return entries == null ? Collections.emptyMap() : new HashMap<>(entries);
+    } catch (JsonParseException ex) {
+      log.warning("Ignoring unreadable staging manifest " + manifest + ": " + ex.getMessage());
+      return Collections.emptyMap();
+    }
+  }
+
+  /** A manifest entry describing a staged file and the source it was copied from. */
+  private static class StagedFile {
+    // Don't change the field names because Gson uses them for automatic de-serialization.
+    private final String source;
+    private final long size;
+    private final long lastModified;
+    private final long stagedLastModified;
+    @Nullable private final String sha256;
+
+    private StagedFile(
+        String source,
+        long size,
+        long lastModified,
+        long stagedLastModified,
+        @Nullable String sha256) {
+      this.source = source;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.stagedLastModified = stagedLastModified;
+      this.sha256 = sha256;
+    }
+
+    /** Returns true if the staged copy has not been modified or removed since it was staged. */
+    private boolean isIntact(Path staged) throws IOException {
+      if (!Files.isRegularFile(staged)) {
+        return false;
+      }
+      BasicFileAttributes attrs = Files.readAttributes(staged, BasicFileAttributes.class);
+      return attrs.size() == size && attrs.lastModifiedTime().toMillis() == stagedLastModified;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.google.cloud.tools.appengine.operations.cloudsdk;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -25,7 +26,20 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -36,19 +50,80 @@ public class PathResolver implements CloudSdkResolver {
   private static final Logger logger = Logger.getLogger(PathResolver.class.getName());
   private static final boolean IS_WINDOWS = System.getProperty("os.name").contains("Windows");
 
+  /** Maximum number of candidate locations probed at the same time. */
+  private static final int MAX_PARALLEL_PROBES = 8;
+
   /**
-   * Attempts to find the path to Google Cloud SDK.
+   * SDK locations found in this process, keyed on the PATH and GOOGLE_CLOUD_SDK_HOME values they
+   * were found with. Failed searches are not remembered, so an SDK installed later is found.
+   */
+  private static final ConcurrentMap<List<String>, Path> discoveredPaths =
+      new ConcurrentHashMap<>();
+
+  private static final ExecutorService probeExecutor = newProbeExecutor();
+
+  /**
+   * Attempts to find the path to Google Cloud SDK. The result is cached for the current PATH and
+   * GOOGLE_CLOUD_SDK_HOME, as long as the directory found still exists.
    *
    * @return path to Google Cloud SDK or null
    */
   @Override
   @Nullable
   public Path getCloudSdkPath() {
-    // search system environment PATH
-    List<String> possiblePaths = getLocationsFromPath(System.getenv("PATH"));
+    return getCloudSdkPath(System.getenv("PATH"), System.getenv("GOOGLE_CLOUD_SDK_HOME"));
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static Path getCloudSdkPath(@Nullable String pathEnv, @Nullable String cloudSdkHomeEnv) {
+    List<String> key = Arrays.asList(pathEnv, cloudSdkHomeEnv);
+    Path cachedPath = discoveredPaths.get(key);
+    if (cachedPath != null && Files.exists(cachedPath)) {
+      return cachedPath;
+    }
+
+    Path finalPath = searchPaths(getCandidates(pathEnv, cloudSdkHomeEnv));
+    logger.log(Level.FINE, "Resolved SDK path : " + finalPath);
+    if (finalPath != null) {
+      discoveredPaths.put(key, finalPath);
+    }
+    return finalPath;
+  }
+
+  /** Forgets the SDK locations found before. */
+  @VisibleForTesting
+  static void clearCache() {
+    discoveredPaths.clear();
+  }
+
+  /**
+   * Returns the probes of the candidate locations in priority order. Each probe does the file
+   * system accesses for its candidate and returns the location if it exists.
+   */
+  private static List<Callable<Path>> getCandidates(
+      @Nullable String pathEnv, @Nullable String cloudSdkHomeEnv) {
+    List<Callable<Path>> candidates = new ArrayList<>();
+
+    // search system environment PATH, resolving a gcloud symlink in each entry
+    if (pathEnv != null) {
+      Set<String> pathEntries =
+          new LinkedHashSet<>(Splitter.on(File.pathSeparator).splitToList(pathEnv));
+      for (String pathEntry : pathEntries) {
+        candidates.add(
+            new Callable<Path>() {
+              @Override
+              @Nullable
+              public Path call() {
+                return findExisting(getLocationsFromPath(pathEntry));
+              }
+            });
+      }
+    }
 
+    List<String> possiblePaths = new ArrayList<>();
     // try environment variable GOOGLE_CLOUD_SDK_HOME
-    possiblePaths.add(System.getenv("GOOGLE_CLOUD_SDK_HOME"));
+    possiblePaths.add(cloudSdkHomeEnv);
 
     // search program files
     if (IS_WINDOWS) {
@@ -64,10 +139,17 @@ public class PathResolver implements CloudSdkResolver {
       // try bitnami Jenkins VM:
       possiblePaths.add("/usr/local/share/google/google-cloud-sdk");
     }
-
-    Path finalPath = searchPaths(possiblePaths);
-    logger.log(Level.FINE, "Resolved SDK path : " + finalPath);
-    return finalPath;
+    for (String possiblePath : possiblePaths) {
+      candidates.add(
+          new Callable<Path>() {
+            @Override
+            @Nullable
+            public Path call() {
+              return findExisting(Collections.singletonList(possiblePath));
+            }
+          });
+    }
+    return candidates;
   }
 
   /** The default location for a single-user install of Cloud SDK on Windows. */
@@ -156,8 +238,59 @@ public class PathResolver implements CloudSdkResolver {
     }
   }
 
+  /**
+   * Probes all candidates in parallel and returns the result of the first candidate, in priority
+   * order, that found a location. A candidate that fails is skipped. Probes of lower priority are
+   * cancelled once that result is known.
+   */
+  @VisibleForTesting
+  @Nullable
+  static Path searchPaths(List<Callable<Path>> candidates) {
+    List<Future<Path>> probes = new ArrayList<>();
+    try {
+      for (Callable<Path> candidate : candidates) {
+        probes.add(probeExecutor.submit(candidate));
+      }
+      for (Future<Path> probe : probes) {
+        try {
+          Path path = probe.get();
+          if (path != null) {
+            return path;
+          }
+        } catch (ExecutionException ex) {
+          logger.log(Level.FINE, "Non-critical exception when searching for cloud-sdk", ex);
+        }
+      }
+      return null;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      for (Future<Path> probe : probes) {
+        probe.cancel(true);
+      }
+    }
+  }
+
+  private static ExecutorService newProbeExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            MAX_PARALLEL_PROBES,
+            MAX_PARALLEL_PROBES,
+            10,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("cloud-sdk-discovery-%d")
+                .setDaemon(true)
+                .build());
+    // the threads are only needed while searching
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   @Nullable
-  private static Path searchPaths(List<String> possiblePaths) {
+  private static Path findExisting(List<String> possiblePaths) {
     for (String pathString : possiblePaths) {
       if (pathString != null) {
         try {
@@ -18,26 +18,42 @@ package com.google.cloud.tools.appengine.operations.cloudsdk.process;
 
 import com.google.cloud.tools.appengine.AppEngineException;
 import com.google.cloud.tools.appengine.operations.cloudsdk.internal.process.WaitingProcessOutputLineListener;
+import com.google.cloud.tools.io.IoExecutors;
 import com.google.common.annotations.VisibleForTesting;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
-/** Process handler that mimics the previous behavior of ProcessRunner. */
+/**
+ * Process handler that mimics the previous behavior of ProcessRunner. Output streams and process
+ * exits are watched by tasks of an executor, by default one shared by all handlers, instead of new
+ * threads for every process.
+ */
 public class LegacyProcessHandler implements ProcessHandler {
+
+  private static final Logger logger = Logger.getLogger(LegacyProcessHandler.class.getName());
+
+  /**
+   * Runs the output and exit watchers of handlers built without an executor, on threads that are
+   * reused across processes.
+   */
+  private static final ExecutorService defaultExecutor =
+      IoExecutors.newDaemonExecutor("process-handler-%d");
+
   private final List<ProcessOutputLineListener> stdOutLineListeners;
   private final List<ProcessOutputLineListener> stdErrLineListeners;
   private final List<ProcessExitListener> exitListeners;
   private final List<ProcessStartListener> startListeners;
   @Nullable private final WaitingProcessOutputLineListener waitingProcessOutputLineListener;
   private final boolean async;
-
-  // TODO: historically it looks like this code hasn't been testable, we need to pass an
-  // TODO: executor service and get rid of the separate thread instantiation that we've done here.
+  private final ExecutorService executor;
 
   /**
    * Non-public constructor, but waitingProcessOutputLineListener must be part of the other
@@ -49,8 +65,10 @@ public class LegacyProcessHandler implements ProcessHandler {
       List<ProcessOutputLineListener> stdErrLineListeners,
       List<ProcessStartListener> processStartListeners,
       List<ProcessExitListener> processExitListeners,
-      @Nullable WaitingProcessOutputLineListener waitingProcessOutputLineListener) {
+      @Nullable WaitingProcessOutputLineListener waitingProcessOutputLineListener,
+      ExecutorService executor) {
     this.async = async;
+    this.executor = executor;
     this.stdOutLineListeners = stdOutLineListeners;
     this.stdErrLineListeners = stdErrLineListeners;
     this.exitListeners = processExitListeners;
@@ -60,8 +78,8 @@ public class LegacyProcessHandler implements ProcessHandler {
 
   @Override
   public void handleProcess(Process process) throws ProcessHandlerException {
-    Thread stdOutHandler = null;
-    Thread stdErrHandler = null;
+    Future<?> stdOutHandler = null;
+    Future<?> stdErrHandler = null;
     try {
 
       // Only handle stdout or stderr if there are listeners.
@@ -79,8 +97,12 @@ public class LegacyProcessHandler implements ProcessHandler {
       if (async) {
         asyncRun(process, stdOutHandler, stdErrHandler);
       } else {
-        shutdownProcessHook(process);
-        syncRun(process, stdOutHandler, stdErrHandler);
+        Thread shutdownHook = shutdownProcessHook(process);
+        try {
+          syncRun(process, stdOutHandler, stdErrHandler);
+        } finally {
+          removeShutdownHook(shutdownHook);
+        }
       }
 
     } catch (InterruptedException | AppEngineException ex) {
@@ -88,75 +110,66 @@ public class LegacyProcessHandler implements ProcessHandler {
     }
   }
 
-  private Thread handleStdOut(Process process) {
-    final Scanner stdOut = new Scanner(process.getInputStream(), StandardCharsets.UTF_8.name());
-    Thread stdOutThread =
-        new Thread("standard-out") {
-          @Override
-          public void run() {
-            while (stdOut.hasNextLine() && !Thread.interrupted()) {
-              String line = stdOut.nextLine();
-              for (ProcessOutputLineListener stdOutLineListener : stdOutLineListeners) {
-                stdOutLineListener.onOutputLine(line);
-              }
-            }
-            stdOut.close();
-          }
-        };
-    stdOutThread.setDaemon(true);
-    stdOutThread.start();
-    return stdOutThread;
+  private Future<?> handleStdOut(Process process) {
+    return handleOutput(process.getInputStream(), stdOutLineListeners);
+  }
+
+  private Future<?> handleErrOut(Process process) {
+    return handleOutput(process.getErrorStream(), stdErrLineListeners);
   }
 
-  private Thread handleErrOut(Process process) {
-    final Scanner stdErr = new Scanner(process.getErrorStream(), StandardCharsets.UTF_8.name());
-    Thread stdErrThread =
-        new Thread("standard-err") {
+  private Future<?> handleOutput(
+      final InputStream output, final List<ProcessOutputLineListener> lineListeners) {
+    return executor.submit(
+        new Runnable() {
           @Override
           public void run() {
-            while (stdErr.hasNextLine() && !Thread.interrupted()) {
-              String line = stdErr.nextLine();
-              for (ProcessOutputLineListener stdErrLineListener : stdErrLineListeners) {
-                stdErrLineListener.onOutputLine(line);
-              }
+            try (InputStream in = output) {
+              new OutputLineDecoder(lineListeners).decode(in);
+            } catch (IOException ex) {
+              // a failed read ends the output, as it did when it was read with a Scanner
+              logger.log(Level.FINE, "Failed to read process output", ex);
             }
-            stdErr.close();
           }
-        };
-    stdErrThread.setDaemon(true);
-    stdErrThread.start();
-    return stdErrThread;
+        });
   }
 
   private void syncRun(
-      Process process, @Nullable Thread stdOutThread, @Nullable Thread stdErrThread)
+      Process process, @Nullable Future<?> stdOutHandler, @Nullable Future<?> stdErrHandler)
       throws InterruptedException, AppEngineException {
     int exitCode = process.waitFor();
     // https://github.com/GoogleCloudPlatform/appengine-plugins-core/issues/269
-    if (stdOutThread != null) {
-      stdOutThread.join();
-    }
-    if (stdErrThread != null) {
-      stdErrThread.join();
-    }
+    awaitOutputHandler(stdOutHandler);
+    awaitOutputHandler(stdErrHandler);
 
     for (ProcessExitListener exitListener : exitListeners) {
       exitListener.onExit(exitCode);
     }
   }
 
-  private static final Logger logger = Logger.getLogger(LegacyProcessHandler.class.getName());
+  private static void awaitOutputHandler(@Nullable Future<?> outputHandler)
+      throws InterruptedException {
+    if (outputHandler == null) {
+      return;
+    }
+    try {
+      outputHandler.get();
+    } catch (ExecutionException ex) {
+      // a failing listener ends its output handler, like an uncaught exception ended its thread
+      logger.log(Level.WARNING, "Process output handler failed", ex.getCause());
+    }
+  }
 
   private void asyncRun(
       final Process process,
-      @Nullable final Thread stdOutHandler,
-      @Nullable final Thread stdErrHandler)
+      @Nullable final Future<?> stdOutHandler,
+      @Nullable final Future<?> stdErrHandler)
       throws ProcessHandlerException {
     if (!exitListeners.isEmpty()
         || !stdOutLineListeners.isEmpty()
         || !stdErrLineListeners.isEmpty()) {
-      Thread exitThread =
-          new Thread("wait-for-process-exit-and-output-handlers") {
+      executor.execute(
+          new Runnable() {
             @Override
             public void run() {
               try {
@@ -166,26 +179,33 @@ public class LegacyProcessHandler implements ProcessHandler {
                     Level.INFO, "wait-for-process-exit-and-output-handlers exited early", ex);
               }
             }
-          };
-      exitThread.setDaemon(true);
-      exitThread.start();
+          });
       if (waitingProcessOutputLineListener != null) {
         waitingProcessOutputLineListener.await();
       }
     }
   }
 
-  private static void shutdownProcessHook(final Process process) {
-    Runtime.getRuntime()
-        .addShutdownHook(
-            new Thread("destroy-process") {
-              @Override
-              public void run() {
-                if (process != null) {
-                  process.destroy();
-                }
-              }
-            });
+  /** Destroys the process if the JVM exits while it runs. */
+  private static Thread shutdownProcessHook(final Process process) {
+    Thread shutdownHook =
+        new Thread("destroy-process") {
+          @Override
+          public void run() {
+            process.destroy();
+          }
+        };
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+    return shutdownHook;
+  }
+
+  /** Deregisters the hook of a process that exited, so hooks do not pile up in long-lived JVMs. */
+  private static void removeShutdownHook(Thread shutdownHook) {
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException ex) {
+      // the JVM is shutting down and runs the hook anyway
+    }
   }
 
   public static Builder builder() {
@@ -200,6 +220,7 @@ public class LegacyProcessHandler implements ProcessHandler {
     private final DevAppServerAsyncOutputWatcherFactory devAppServerAsyncOutputWatcherFactory;
 
     private boolean async;
+    @Nullable private ExecutorService executor;
 
     private Builder() {
       this(
@@ -253,9 +274,25 @@ public class LegacyProcessHandler implements ProcessHandler {
       return this;
     }
 
+    /**
+     * Runs the output and exit watchers of processes on {@code executor} instead of the shared
+     * default executor. Each process needs up to three concurrent tasks until it exits, so the
+     * executor must not queue them behind each other; the caller owns its lifecycle.
+     */
+    public Builder setExecutor(ExecutorService executor) {
+      this.executor = executor;
+      return this;
+    }
+
     public LegacyProcessHandler build() {
       return new LegacyProcessHandler(
-          async, stdOutLineListeners, stdErrLineListeners, startListeners, exitListeners, null);
+          async,
+          stdOutLineListeners,
+          stdErrLineListeners,
+          startListeners,
+          exitListeners,
+          null,
+          getExecutor());
     }
 
     /**
@@ -274,7 +311,12 @@ public class LegacyProcessHandler implements ProcessHandler {
           stdErrLineListeners,
           startListeners,
           exitListeners,
-          devAppServerOutputListener);
+          devAppServerOutputListener,
+          getExecutor());
+    }
+
+    private ExecutorService getExecutor() {
+      return executor != null ? executor : defaultExecutor;
     }
 
     static class DevAppServerAsyncOutputWatcherFactory {
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations.cloudsdk.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits UTF-8 process output into lines and passes them to {@link ProcessOutputLineListener}s.
+ * Lines are found by scanning the bytes for line feeds and carriage returns, which never occur
+ * inside multi-byte UTF-8 sequences, so each line is decoded once straight from the read buffer.
+ * Only lines spanning several reads are collected in a growable buffer that is reused for the next
+ * ones.
+ *
+ * <p>Lines end like with {@link java.util.Scanner#nextLine()} at {@code \n}, {@code \r\n} or
+ * {@code \r}, and a last line without terminator is passed on too. Malformed input is replaced
+ * with U+FFFD.
+ */
+final class OutputLineDecoder {
+
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+
+  private final List<ProcessOutputLineListener> listeners;
+  private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+  private byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+  private int lineLength;
+  private boolean skipLineFeed;
+
+  OutputLineDecoder(List<ProcessOutputLineListener> listeners) {
+    this.listeners = listeners;
+  }
+
+  /**
+   * Reads {@code in} to its end and passes every line to the listeners. Stops early when the
+   * current thread is interrupted, clearing its interrupted status.
+   */
+  void decode(InputStream in) throws IOException {
+    int read;
+    while ((read = in.read(readBuffer)) != -1) {
+      if (!decode(readBuffer, 0, read)) {
+        return;
+      }
+    }
+    if (lineLength > 0) {
+      dispatch(new String(lineBuffer, 0, lineLength, StandardCharsets.UTF_8));
+      lineLength = 0;
+    }
+  }
+
+  /** Returns false if the thread was interrupted. */
+  private boolean decode(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    int lineStart = offset;
+    for (int i = offset; i < end; i++) {
+      byte current = bytes[i];
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (current == '\n') {
+          // second half of a \r\n terminator
+          lineStart = i + 1;
+          continue;
+        }
+      }
+      if (current == '\n' || current == '\r') {
+        String line;
+        if (lineLength == 0) {
+          line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+        } else {
+          append(bytes, lineStart, i - lineStart);
+          line = new String(lineBuffer, 0, lineLength, StandardCharsets.UTF_8);
+          lineLength = 0;
+        }
+        if (!dispatch(line)) {
+          return false;
+        }
+        skipLineFeed = current == '\r';
+        lineStart = i + 1;
+      }
+    }
+    append(bytes, lineStart, end - lineStart);
+    return true;
+  }
+
+  private boolean dispatch(String line) {
+    if (Thread.interrupted()) {
+      return false;
+    }
+    for (ProcessOutputLineListener listener : listeners) {
+      listener.onOutputLine(line);
+    }
+    return true;
+  }
+
+  private void append(byte[] bytes, int offset, int length) {
+    if (lineLength + length > lineBuffer.length) {
+      lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + length));
+    }
+    System.arraycopy(bytes, offset, lineBuffer, lineLength, length);
+    lineLength += length;
+  }
+}
@@ -20,6 +20,7 @@ import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -67,6 +68,12 @@ public class CloudSdkComponent {
     return gson.fromJson(jsonList, type);
   }
 
+  /** Parses a JSON list incrementally from {@code jsonList}, without reading it into a string. */
+  public static List<CloudSdkComponent> fromJsonList(Reader jsonList) throws JsonSyntaxException {
+    Type type = new TypeToken<List<CloudSdkComponent>>() {}.getType();
+    return gson.fromJson(jsonList, type);
+  }
+
   @Nullable
   public String getId() {
     return id;
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.io.FileBackedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The output of a process, kept in memory up to a threshold and spilled to a temporary file beyond
+ * it, so that large outputs are neither held in memory nor converted to a single string. The
+ * output can be read any number of times once it is complete, for example by a JSON parser reading
+ * from {@link #openReader()}. Closing the output deletes its temporary file.
+ */
+@Beta
+public final class CapturedOutput implements Closeable {
+
+  /** The default number of bytes kept in memory before the output is spilled to disk. */
+  public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+  private final FileBackedOutputStream buffer;
+
+  public CapturedOutput() {
+    this(DEFAULT_MEMORY_THRESHOLD);
+  }
+
+  /** Creates an output that spills to disk once it grows over {@code memoryThreshold} bytes. */
+  public CapturedOutput(int memoryThreshold) {
+    Preconditions.checkArgument(memoryThreshold >= 0, "memoryThreshold must not be negative");
+    buffer = new FileBackedOutputStream(memoryThreshold);
+  }
+
+  /** Returns the stream the output is written to. */
+  public OutputStream getOutputStream() {
+    return buffer;
+  }
+
+  /** Opens a new stream over the output written so far. */
+  public InputStream openStream() throws IOException {
+    return buffer.asByteSource().openStream();
+  }
+
+  /** Opens a new reader over the output written so far, decoded as UTF-8. */
+  public Reader openReader() throws IOException {
+    return buffer.asByteSource().asCharSource(StandardCharsets.UTF_8).openStream();
+  }
+
+  /** Returns the number of bytes written so far. */
+  public long size() throws IOException {
+    return buffer.asByteSource().size();
+  }
+
+  /** Reads the whole output into a string, decoded as UTF-8. */
+  public String read() throws IOException {
+    return buffer.asByteSource().asCharSource(StandardCharsets.UTF_8).read();
+  }
+
+  /** Discards the output and deletes its temporary file, if any. */
+  @Override
+  public void close() throws IOException {
+    buffer.reset();
+  }
+}
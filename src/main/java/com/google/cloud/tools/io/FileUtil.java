@@ -18,21 +18,51 @@ package com.google.cloud.tools.io;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.CopyOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 /** File utilities. */
 @Beta
 public class FileUtil {
 
+  private static final int PENDING_FILES_PER_WORKER = 64;
+
+  private static final FileCopier COPY_WITH_ATTRIBUTES =
+      (file, target, attributes) -> Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+
+  /** Copies a single file of a directory tree. */
+  public interface FileCopier {
+
+    /**
+     * Copies a file.
+     *
+     * @param source the file to copy
+     * @param destination the path to copy the file to, its parent directory exists
+     * @param attributes the attributes of {@code source}
+     */
+    void copy(Path source, Path destination, BasicFileAttributes attributes) throws IOException;
+  }
+
   /**
    * Implementation of recursive directory copy, does NOT overwrite.
    *
@@ -56,16 +86,63 @@ public class FileUtil {
    */
   public static void copyDirectory(final Path source, final Path destination, List<Path> excludes)
       throws IOException {
-    Preconditions.checkNotNull(source);
-    Preconditions.checkNotNull(destination);
-    Preconditions.checkArgument(Files.isDirectory(source), "Source is not a directory");
-    Preconditions.checkArgument(Files.isDirectory(destination), "Destination is not a directory");
-    Preconditions.checkArgument(
-        !Files.isSameFile(source, destination), "Source and destination are the same");
-    Preconditions.checkArgument(
-        !destination.toAbsolutePath().startsWith(source.toAbsolutePath()),
-        "destination is child of source");
+    checkCopyArguments(source, destination);
+    copyTree(
+        source,
+        destination,
+        toRelativeSet(source, excludes)::contains,
+        false,
+        COPY_WITH_ATTRIBUTES);
+  }
+
+  /**
+   * Recursive directory copy that hands every file to {@code copier}, for example to skip files
+   * that are already up to date. Directories that already exist in the destination are reused.
+   *
+   * @param source an existing source directory to copy from
+   * @param destination an existing destination directory to copy to
+   * @param excludes a list of paths in "source" to exclude
+   * @param copier copies each file that is not excluded
+   * @throws IllegalArgumentException if source directory is same destination directory, either
+   *     source or destination is not a directory, or destination is inside source
+   */
+  public static void copyDirectory(
+      Path source, Path destination, List<Path> excludes, FileCopier copier) throws IOException {
+    checkCopyArguments(source, destination);
+    Preconditions.checkNotNull(copier);
+    copyTree(source, destination, toRelativeSet(source, excludes)::contains, true, copier);
+  }
+
+  /**
+   * Implementation of recursive directory copy, does NOT overwrite.
+   *
+   * @param source an existing source directory to copy from
+   * @param destination an existing destination directory to copy to
+   * @param excludes matches paths relative to "source" to exclude, for example {@code
+   *     FileSystems.getDefault().getPathMatcher("glob:**.log")}
+   * @throws IllegalArgumentException if source directory is same destination directory, either
+   *     source or destination is not a directory, or destination is inside source
+   */
+  public static void copyDirectory(Path source, Path destination, PathMatcher excludes)
+      throws IOException {
+    checkCopyArguments(source, destination);
+    Preconditions.checkNotNull(excludes);
+    copyTree(source, destination, excludes::matches, false, COPY_WITH_ATTRIBUTES);
+  }
 
+  /**
+   * Copies the tree under {@code source}, skipping every file and directory whose path relative to
+   * {@code source} is {@code excluded}.
+   *
+   * @param reuseDirectories if false, fail when a directory already exists in the destination
+   */
+  private static void copyTree(
+      Path source,
+      Path destination,
+      Predicate<Path> excluded,
+      boolean reuseDirectories,
+      FileCopier copier)
+      throws IOException {
     Files.walkFileTree(
         source,
         new SimpleFileVisitor<Path>() {
@@ -79,11 +156,15 @@ public class FileUtil {
               return FileVisitResult.CONTINUE;
             }
 
-            if (excludes.contains(dir)) {
+            Path relative = source.relativize(dir);
+            if (excluded.test(relative)) {
               return FileVisitResult.SKIP_SUBTREE;
             }
 
-            Files.copy(dir, destination.resolve(source.relativize(dir)), copyOptions);
+            Path target = destination.resolve(relative);
+            if (!reuseDirectories || !Files.isDirectory(target)) {
+              Files.copy(dir, target, copyOptions);
+            }
             return FileVisitResult.CONTINUE;
           }
 
@@ -91,13 +172,222 @@ public class FileUtil {
           public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
               throws IOException {
 
-            if (excludes.contains(file)) {
+            Path relative = source.relativize(file);
+            if (excluded.test(relative)) {
               return FileVisitResult.CONTINUE;
             }
 
-            Files.copy(file, destination.resolve(source.relativize(file)), copyOptions);
+            copier.copy(file, destination.resolve(relative), attrs);
             return FileVisitResult.CONTINUE;
           }
         });
   }
+
+  /**
+   * Converts paths under {@code source} to a set of paths relative to {@code source}, so that
+   * excludes can be looked up in constant time while walking the tree. Paths outside of {@code
+   * source} can never match and are dropped.
+   */
+  private static Set<Path> toRelativeSet(Path source, List<Path> paths) {
+    Path root = source.toAbsolutePath().normalize();
+    Set<Path> relativePaths = new HashSet<>();
+    for (Path path : paths) {
+      Path absolutePath = path.toAbsolutePath().normalize();
+      if (absolutePath.startsWith(root)) {
+        relativePaths.add(root.relativize(absolutePath));
+      }
+    }
+    return relativePaths;
+  }
+
+  /**
+   * Implementation of recursive directory copy that copies files concurrently on a {@link
+   * ForkJoinPool} with {@code workers} threads, does NOT overwrite.
+   *
+   * @param source an existing source directory to copy from
+   * @param destination an existing destination directory to copy to
+   * @param excludes a list of paths in "source" to exclude
+   * @param workers the number of threads copying files
+   * @return the number of files and bytes copied
+   * @throws IllegalArgumentException if source directory is same destination directory, either
+   *     source or destination is not a directory, or destination is inside source
+   */
+  public static CopyResult copyDirectory(
+      Path source, Path destination, List<Path> excludes, int workers) throws IOException {
+    Preconditions.checkArgument(workers > 0, "workers must be positive");
+    ForkJoinPool pool = new ForkJoinPool(workers);
+    try {
+      return copyDirectory(source, destination, excludes, pool, workers * PENDING_FILES_PER_WORKER);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Implementation of recursive directory copy that copies files concurrently on {@code
+   * executor}, does NOT overwrite. The tree is walked on the calling thread and each directory is
+   * created before any of its files are copied. At most {@code maxPendingFiles} file copies are
+   * queued on the executor at any time.
+   *
+   * @param source an existing source directory to copy from
+   * @param destination an existing destination directory to copy to
+   * @param excludes a list of paths in "source" to exclude
+   * @param executor the executor copying files
+   * @param maxPendingFiles the maximum number of file copies submitted but not yet finished
+   * @return the number of files and bytes copied
+   * @throws IllegalArgumentException if source directory is same destination directory, either
+   *     source or destination is not a directory, or destination is inside source
+   */
+  public static CopyResult copyDirectory(
+      Path source, Path destination, List<Path> excludes, Executor executor, int maxPendingFiles)
+      throws IOException {
+    checkCopyArguments(source, destination);
+    Preconditions.checkNotNull(executor);
+    Preconditions.checkArgument(maxPendingFiles > 0, "maxPendingFiles must be positive");
+
+    ParallelCopyVisitor visitor =
+        new ParallelCopyVisitor(
+            source, destination, toRelativeSet(source, excludes), executor, maxPendingFiles);
+    try {
+      Files.walkFileTree(source, visitor);
+    } finally {
+      visitor.awaitPendingFiles();
+    }
+    visitor.throwIfFailed();
+    return new CopyResult(visitor.files.get(), visitor.bytes.get());
+  }
+
+  private static void checkCopyArguments(Path source, Path destination) throws IOException {
+    Preconditions.checkNotNull(source);
+    Preconditions.checkNotNull(destination);
+    Preconditions.checkArgument(Files.isDirectory(source), "Source is not a directory");
+    Preconditions.checkArgument(Files.isDirectory(destination), "Destination is not a directory");
+    Preconditions.checkArgument(
+        !Files.isSameFile(source, destination), "Source and destination are the same");
+    Preconditions.checkArgument(
+        !destination.toAbsolutePath().startsWith(source.toAbsolutePath()),
+        "destination is child of source");
+  }
+
+  /** The number of files and bytes copied by a parallel directory copy. */
+  public static final class CopyResult {
+    private final long fileCount;
+    private final long byteCount;
+
+    private CopyResult(long fileCount, long byteCount) {
+      this.fileCount = fileCount;
+      this.byteCount = byteCount;
+    }
+
+    public long getFileCount() {
+      return fileCount;
+    }
+
+    public long getByteCount() {
+      return byteCount;
+    }
+  }
+
+  /**
+   * Creates directories while walking the tree and hands file copies to an executor. A semaphore
+   * bounds the number of queued copies, so the walk blocks rather than queueing the whole tree.
+   */
+  private static class ParallelCopyVisitor extends SimpleFileVisitor<Path> {
+    private static final CopyOption[] copyOptions =
+        new CopyOption[] {StandardCopyOption.COPY_ATTRIBUTES};
+
+    private final Path source;
+    private final Path destination;
+    private final Set<Path> excludes;
+    private final Executor executor;
+    private final int maxPendingFiles;
+    private final Semaphore pendingFiles;
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    // the first failure of any copy, including unchecked exceptions and errors of the provider
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private ParallelCopyVisitor(
+        Path source, Path destination, Set<Path> excludes, Executor executor, int maxPendingFiles) {
+      this.source = source;
+      this.destination = destination;
+      this.excludes = excludes;
+      this.executor = executor;
+      this.maxPendingFiles = maxPendingFiles;
+      this.pendingFiles = new Semaphore(maxPendingFiles);
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+        throws IOException {
+      throwIfFailed();
+      if (dir.equals(source)) {
+        return FileVisitResult.CONTINUE;
+      }
+      Path relative = source.relativize(dir);
+      if (excludes.contains(relative)) {
+        return FileVisitResult.SKIP_SUBTREE;
+      }
+      Files.copy(dir, destination.resolve(relative), copyOptions);
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+      throwIfFailed();
+      Path relative = source.relativize(file);
+      if (excludes.contains(relative)) {
+        return FileVisitResult.CONTINUE;
+      }
+      Path target = destination.resolve(relative);
+      long size = attrs.size();
+      try {
+        pendingFiles.acquire();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while copying " + file);
+      }
+      try {
+        executor.execute(() -> copyFile(file, target, size));
+      } catch (RejectedExecutionException ex) {
+        pendingFiles.release();
+        throw new IOException("Could not schedule copy of " + file, ex);
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    private void copyFile(Path file, Path target, long size) {
+      try {
+        if (failure.get() == null) {
+          Files.copy(file, target, copyOptions);
+          files.incrementAndGet();
+          bytes.addAndGet(size);
+        }
+      } catch (Throwable ex) {
+        failure.compareAndSet(null, ex);
+      } finally {
+        pendingFiles.release();
+      }
+    }
+
+    /** Blocks until every submitted file copy has finished. */
+    private void awaitPendingFiles() throws InterruptedIOException {
+      try {
+        pendingFiles.acquire(maxPendingFiles);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for file copies to finish");
+      }
+      pendingFiles.release(maxPendingFiles);
+    }
+
+    private void throwIfFailed() throws IOException {
+      Throwable ex = failure.get();
+      if (ex != null) {
+        Throwables.throwIfInstanceOf(ex, IOException.class);
+        Throwables.throwIfInstanceOf(ex, Error.class);
+        throw new IOException("Could not copy directory", ex);
+      }
+    }
+  }
 }
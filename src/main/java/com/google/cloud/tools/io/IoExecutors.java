@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Executors for tasks that spend most of their time blocked on I/O, such as process streams. */
+@Beta
+public final class IoExecutors {
+
+  private IoExecutors() {}
+
+  /**
+   * Returns an unbounded executor that never keeps the JVM alive. Virtual threads are used where
+   * the JVM supports them, and otherwise a cached pool of daemon threads named with {@code
+   * nameFormat}, for example {@code "stream-consumer-%d"}.
+   */
+  public static ExecutorService newDaemonExecutor(String nameFormat) {
+    try {
+      // Executors.newVirtualThreadPerTaskExecutor() is only available from Java 21
+      Method newVirtualThreadExecutor =
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) newVirtualThreadExecutor.invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      return Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.annotations.Beta;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import javax.annotation.Nullable;
+
+/**
+ * An exclusive lock on a file, held against other threads of this JVM and against other processes.
+ * File locks are held on behalf of a whole JVM, so threads are coordinated in memory before the
+ * file lock is taken. The lock file itself is created if needed and never deleted, because a
+ * process could be waiting on it.
+ */
+@Beta
+public final class LockFile implements Closeable {
+
+  private static final ConcurrentMap<Path, Semaphore> jvmLocks = new ConcurrentHashMap<>();
+
+  private final Semaphore jvmLock;
+  private final FileChannel channel;
+  private final FileLock fileLock;
+  private boolean closed;
+
+  private LockFile(Semaphore jvmLock, FileChannel channel, FileLock fileLock) {
+    this.jvmLock = jvmLock;
+    this.channel = channel;
+    this.fileLock = fileLock;
+  }
+
+  /** Returns true until the lock is released. */
+  public synchronized boolean isValid() {
+    return !closed && fileLock.isValid();
+  }
+
+  /**
+   * Acquires the lock, waiting for other threads and processes holding it to release it.
+   *
+   * @param path the lock file, its parent directory must exist
+   * @throws InterruptedIOException if the thread is interrupted while waiting
+   */
+  public static LockFile acquire(Path path) throws IOException {
+    Semaphore jvmLock = getJvmLock(path);
+    try {
+      jvmLock.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for lock on " + path);
+    }
+    try {
+      FileChannel channel = open(path);
+      try {
+        return new LockFile(jvmLock, channel, channel.lock());
+      } catch (IOException | RuntimeException ex) {
+        channel.close();
+        throw ex;
+      }
+    } catch (IOException | RuntimeException ex) {
+      jvmLock.release();
+      throw ex;
+    }
+  }
+
+  /**
+   * Acquires the lock if no other thread or process holds it.
+   *
+   * @param path the lock file, its parent directory must exist
+   * @return the lock, or null if it is held elsewhere
+   */
+  @Nullable
+  public static LockFile tryAcquire(Path path) throws IOException {
+    Semaphore jvmLock = getJvmLock(path);
+    if (!jvmLock.tryAcquire()) {
+      return null;
+    }
+    try {
+      FileChannel channel = open(path);
+      try {
+        FileLock fileLock = channel.tryLock();
+        if (fileLock == null) {
+          channel.close();
+          jvmLock.release();
+          return null;
+        }
+        return new LockFile(jvmLock, channel, fileLock);
+      } catch (IOException | RuntimeException ex) {
+        channel.close();
+        throw ex;
+      }
+    } catch (IOException | RuntimeException ex) {
+      jvmLock.release();
+      throw ex;
+    }
+  }
+
+  /** Releases the lock, further calls have no effect. */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      // closing the channel releases the file lock
+      channel.close();
+    } finally {
+      jvmLock.release();
+    }
+  }
+
+  private static Semaphore getJvmLock(Path path) {
+    return jvmLocks.computeIfAbsent(path.toAbsolutePath().normalize(), key -> new Semaphore(1));
+  }
+
+  private static FileChannel open(Path path) throws IOException {
+    return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+  }
+}
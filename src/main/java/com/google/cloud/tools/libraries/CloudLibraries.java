@@ -18,9 +18,11 @@ package com.google.cloud.tools.libraries;
 
 import com.google.cloud.tools.libraries.json.CloudLibrary;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -28,41 +30,101 @@ import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.MissingResourceException;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /** Returns helpful metadata for supported Google Cloud libraries. */
 public final class CloudLibraries {
 
+  private static final Logger logger = Logger.getLogger(CloudLibraries.class.getName());
+
   private static final String LIBRARIES_JSON = "libraries.json";
 
+  /** Compiled from {@code libraries.json} by the build, see {@link CloudLibrarySnapshot}. */
+  @VisibleForTesting static final String LIBRARIES_SNAPSHOT = "libraries.bin";
+
+  @Nullable private static volatile CloudLibraryCatalog catalog;
+
+  @Nullable private final String librariesSnapshotPath;
   private final String librariesJsonPath;
 
   @VisibleForTesting
   CloudLibraries(String librariesJsonPath) {
+    this(null, librariesJsonPath);
+  }
+
+  @VisibleForTesting
+  CloudLibraries(@Nullable String librariesSnapshotPath, String librariesJsonPath) {
+    this.librariesSnapshotPath = librariesSnapshotPath;
     this.librariesJsonPath = librariesJsonPath;
   }
 
   /**
    * Returns the list of {@link CloudLibrary} objects deserialized from the {@code libraries.json}
-   * file.
+   * file. The list cannot be modified.
    *
    * @throws IOException if there was a problem reading the {@code libraries.json} file
    */
   public static List<CloudLibrary> getCloudLibraries() throws IOException {
-    return new CloudLibraries(LIBRARIES_JSON).getLibraries();
+    return getCatalog().getLibraries();
+  }
+
+  /**
+   * Returns the indexed catalog of the libraries in the {@code libraries.json} file. The file is
+   * read on the first call only; the catalog is shared by all callers.
+   *
+   * @throws IOException if there was a problem reading the {@code libraries.json} file
+   */
+  public static CloudLibraryCatalog getCatalog() throws IOException {
+    CloudLibraryCatalog result = catalog;
+    if (result == null) {
+      synchronized (CloudLibraries.class) {
+        result = catalog;
+        if (result == null) {
+          // not cached on failure, so a later call tries again
+          result =
+              new CloudLibraryCatalog(
+                  new CloudLibraries(LIBRARIES_SNAPSHOT, LIBRARIES_JSON).getLibraries());
+          catalog = result;
+        }
+      }
+    }
+    return result;
   }
 
   @VisibleForTesting
   List<CloudLibrary> getLibraries() throws IOException {
+    byte[] json;
     try (InputStream inputStream = CloudLibraries.class.getResourceAsStream(librariesJsonPath)) {
       if (inputStream == null) {
         throw new MissingResourceException(
             "Resource not found when loading libraries", LIBRARIES_JSON, librariesJsonPath);
       }
+      json = ByteStreams.toByteArray(inputStream);
+    }
 
-      InputStreamReader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-      JsonReader jsonReader = new JsonReader(reader);
-      Type listType = new TypeToken<List<CloudLibrary>>() {}.getType();
-      return new Gson().fromJson(jsonReader, listType);
+    String snapshotPath = librariesSnapshotPath;
+    if (snapshotPath != null) {
+      try (InputStream inputStream = CloudLibraries.class.getResourceAsStream(snapshotPath)) {
+        if (inputStream == null) {
+          // builds that skip the snapshot step, such as IDE builds, only have the JSON
+          logger.fine("No libraries snapshot at " + snapshotPath + ", reading JSON");
+        } else {
+          List<CloudLibrary> libraries =
+              CloudLibrarySnapshot.read(inputStream, CloudLibrarySnapshot.sha256(json));
+          if (libraries != null) {
+            return libraries;
+          }
+          logger.fine("Libraries snapshot at " + snapshotPath + " is out of date, reading JSON");
+        }
+      }
     }
+
+    InputStreamReader reader =
+        new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8);
+    JsonReader jsonReader = new JsonReader(reader);
+    // Gson is only loaded on this path, so that reading the snapshot avoids its start-up cost
+    Type listType = new TypeToken<List<CloudLibrary>>() {}.getType();
+    return new Gson().fromJson(jsonReader, listType);
   }
 }
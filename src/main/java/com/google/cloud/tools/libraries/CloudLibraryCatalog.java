@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.libraries;
+
+import com.google.cloud.tools.libraries.json.CloudLibrary;
+import com.google.cloud.tools.libraries.json.CloudLibraryClient;
+import com.google.cloud.tools.libraries.json.CloudLibraryClientMavenCoordinates;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable catalog of Google Cloud libraries, indexed by ID, by the Maven coordinates of their
+ * clients, by service name and by the words of their names. The shared catalog of the bundled
+ * {@code libraries.json} is returned by {@link CloudLibraries#getCatalog()}; its {@link
+ * CloudLibrary} objects are shared by all callers and cannot be modified.
+ */
+public final class CloudLibraryCatalog {
+
+  private static final Splitter NAME_SPLITTER =
+      Splitter.onPattern("[^\\p{IsAlphabetic}\\p{IsDigit}]+").omitEmptyStrings();
+
+  private final ImmutableList<CloudLibrary> libraries;
+  private final ImmutableMap<String, CloudLibrary> librariesById;
+  private final ImmutableMap<String, CloudLibrary> librariesByMavenCoordinates;
+  private final ImmutableMap<String, CloudLibrary> librariesByServiceName;
+  // positions in libraries of the libraries with a name token, sorted for prefix lookups
+  private final ImmutableSortedMap<String, BitSet> positionsByNameToken;
+
+  CloudLibraryCatalog(List<CloudLibrary> libraries) {
+    this.libraries = ImmutableList.copyOf(libraries);
+
+    // when a key is used more than once, the first library wins
+    Map<String, CloudLibrary> byId = new HashMap<>();
+    Map<String, CloudLibrary> byMavenCoordinates = new HashMap<>();
+    Map<String, CloudLibrary> byServiceName = new HashMap<>();
+    TreeMap<String, BitSet> byNameToken = new TreeMap<>();
+    for (int i = 0; i < this.libraries.size(); i++) {
+      CloudLibrary library = this.libraries.get(i);
+      String id = library.getId();
+      if (id != null) {
+        byId.putIfAbsent(id, library);
+      }
+      String serviceName = library.getServiceName();
+      if (serviceName != null) {
+        byServiceName.putIfAbsent(serviceName, library);
+      }
+      List<CloudLibraryClient> clients = library.getClients();
+      if (clients != null) {
+        for (CloudLibraryClient client : clients) {
+          CloudLibraryClientMavenCoordinates coordinates = client.getMavenCoordinates();
+          if (coordinates == null) {
+            continue;
+          }
+          String groupId = coordinates.getGroupId();
+          String artifactId = coordinates.getArtifactId();
+          if (groupId != null && artifactId != null) {
+            byMavenCoordinates.putIfAbsent(mavenKey(groupId, artifactId), library);
+          }
+        }
+      }
+      String name = library.getName();
+      if (name != null) {
+        for (String token : tokenize(name)) {
+          BitSet positions = byNameToken.get(token);
+          if (positions == null) {
+            positions = new BitSet();
+            byNameToken.put(token, positions);
+          }
+          positions.set(i);
+        }
+      }
+    }
+    librariesById = ImmutableMap.copyOf(byId);
+    librariesByMavenCoordinates = ImmutableMap.copyOf(byMavenCoordinates);
+    librariesByServiceName = ImmutableMap.copyOf(byServiceName);
+    positionsByNameToken = ImmutableSortedMap.copyOfSorted(byNameToken);
+  }
+
+  /** Returns all libraries, in the order of the catalog. */
+  public ImmutableList<CloudLibrary> getLibraries() {
+    return libraries;
+  }
+
+  /** Returns the library with the given ID, or {@code null} if there is none. */
+  @Nullable
+  public CloudLibrary getLibraryById(String id) {
+    return librariesById.get(id);
+  }
+
+  /**
+   * Returns the library with a client published under the given Maven coordinates, or {@code null}
+   * if there is none.
+   */
+  @Nullable
+  public CloudLibrary getLibraryByMavenCoordinates(String groupId, String artifactId) {
+    return librariesByMavenCoordinates.get(mavenKey(groupId, artifactId));
+  }
+
+  /**
+   * Returns the library of the given service, for example {@code pubsub.googleapis.com}, or {@code
+   * null} if there is none.
+   */
+  @Nullable
+  public CloudLibrary getLibraryByServiceName(String serviceName) {
+    return librariesByServiceName.get(serviceName);
+  }
+
+  /**
+   * Returns the libraries whose names have, for every word of the query, a word starting with it,
+   * ignoring case. For example, {@code "cloud stor"} finds "Cloud Storage". The libraries are
+   * returned in the order of the catalog.
+   *
+   * @param query the words to search for, typically as they are typed
+   */
+  public ImmutableList<CloudLibrary> search(String query) {
+    List<String> tokens = tokenize(query);
+    if (tokens.isEmpty()) {
+      return ImmutableList.of();
+    }
+    BitSet matches = findPositions(tokens.get(0));
+    for (int i = 1; i < tokens.size(); i++) {
+      matches.and(findPositions(tokens.get(i)));
+    }
+
+    ImmutableList.Builder<CloudLibrary> result = ImmutableList.builder();
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      result.add(libraries.get(i));
+    }
+    return result.build();
+  }
+
+  /** Returns the positions of the libraries with a name token that starts with {@code prefix}. */
+  private BitSet findPositions(String prefix) {
+    BitSet positions = new BitSet();
+    for (BitSet tokenPositions :
+        positionsByNameToken.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+      positions.or(tokenPositions);
+    }
+    return positions;
+  }
+
+  private static String mavenKey(String groupId, String artifactId) {
+    return groupId + ':' + artifactId;
+  }
+
+  private static List<String> tokenize(String text) {
+    return NAME_SPLITTER.splitToList(text.toLowerCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.libraries;
+
+import com.google.cloud.tools.libraries.json.CloudLibrary;
+import com.google.cloud.tools.libraries.json.CloudLibraryClient;
+import com.google.cloud.tools.libraries.json.CloudLibraryClientMavenCoordinates;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Reads and writes a compact binary form of a list of {@link CloudLibrary} objects, so that the
+ * bundled {@code libraries.json} can be loaded without Gson's reflection. The build compiles the
+ * snapshot from {@code libraries.json} by running {@link #main}. The snapshot records the SHA-256
+ * of the JSON it was compiled from, so that a stale snapshot, for example one left behind by an IDE
+ * build that only copied the changed JSON, is never read in place of it.
+ */
+final class CloudLibrarySnapshot {
+
+  private static final int MAGIC = 0x434c4942; // "CLIB"
+  private static final int VERSION = 2;
+
+  // the model constructors are package-private so that they stay out of the public API; like Gson,
+  // the snapshot reaches them through reflection, but only looks them up once
+  private static final Constructor<CloudLibrary> NEW_LIBRARY =
+      getConstructor(
+          CloudLibrary.class,
+          String.class,
+          String.class,
+          String.class,
+          List.class,
+          String.class,
+          String.class,
+          List.class,
+          List.class);
+  private static final Constructor<CloudLibraryClient> NEW_CLIENT =
+      getConstructor(
+          CloudLibraryClient.class,
+          String.class,
+          String.class,
+          String.class,
+          String.class,
+          String.class,
+          String.class,
+          String.class,
+          String.class,
+          CloudLibraryClientMavenCoordinates.class);
+  private static final Constructor<CloudLibraryClientMavenCoordinates> NEW_MAVEN_COORDINATES =
+      getConstructor(
+          CloudLibraryClientMavenCoordinates.class, String.class, String.class, String.class);
+
+  private CloudLibrarySnapshot() {}
+
+  /**
+   * Compiles a {@code libraries.json} file into a snapshot.
+   *
+   * @param args the path of the {@code libraries.json} file and the path of the snapshot to write
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: CloudLibrarySnapshot <libraries.json> <snapshot>");
+    }
+    byte[] json = Files.readAllBytes(Paths.get(args[0]));
+    List<CloudLibrary> libraries =
+        new Gson()
+            .fromJson(
+                new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8),
+                new TypeToken<List<CloudLibrary>>() {}.getType());
+    Path snapshot = Paths.get(args[1]);
+    if (snapshot.getParent() != null) {
+      Files.createDirectories(snapshot.getParent());
+    }
+    try (OutputStream output = Files.newOutputStream(snapshot)) {
+      write(libraries, sha256(json), output);
+    }
+  }
+
+  /** Returns the hex encoded SHA-256 of the JSON a snapshot is compiled from. */
+  static String sha256(byte[] json) {
+    return Hashing.sha256().hashBytes(json).toString();
+  }
+
+  /**
+   * Writes libraries as a snapshot. The stream is not closed.
+   *
+   * @param sourceSha256 the SHA-256 of the JSON the libraries were read from
+   * @throws IOException if writing fails
+   */
+  static void write(List<CloudLibrary> libraries, String sourceSha256, OutputStream output)
+      throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeUTF(sourceSha256);
+    data.writeInt(libraries.size());
+    for (CloudLibrary library : libraries) {
+      writeString(data, library.getName());
+      writeString(data, library.getId());
+      writeString(data, library.getServiceName());
+      writeStrings(data, library.getServiceRoles());
+      writeString(data, library.getDocumentation());
+      writeString(data, library.getDescription());
+      writeStrings(data, library.getTransports());
+      List<CloudLibraryClient> clients = library.getClients();
+      data.writeInt(clients == null ? -1 : clients.size());
+      if (clients != null) {
+        for (CloudLibraryClient client : clients) {
+          writeClient(data, client);
+        }
+      }
+    }
+    data.flush();
+  }
+
+  /**
+   * Reads the libraries of a snapshot. The stream is not closed.
+   *
+   * @param sourceSha256 the SHA-256 of the JSON the snapshot must have been compiled from
+   * @return the libraries, or {@code null} if the snapshot was compiled from a different JSON or
+   *     by a different version of this class
+   * @throws IOException if reading fails or the stream is not a snapshot
+   */
+  @Nullable
+  static List<CloudLibrary> read(InputStream input, String sourceSha256) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a libraries snapshot");
+    }
+    if (data.readInt() != VERSION || !sourceSha256.equals(data.readUTF())) {
+      return null;
+    }
+    int count = data.readInt();
+    List<CloudLibrary> libraries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String name = readString(data);
+      String id = readString(data);
+      String serviceName = readString(data);
+      List<String> serviceRoles = readStrings(data);
+      String documentation = readString(data);
+      String description = readString(data);
+      List<String> transports = readStrings(data);
+      List<CloudLibraryClient> clients = null;
+      int clientCount = data.readInt();
+      if (clientCount >= 0) {
+        clients = new ArrayList<>(clientCount);
+        for (int j = 0; j < clientCount; j++) {
+          clients.add(readClient(data));
+        }
+      }
+      libraries.add(
+          newInstance(
+              NEW_LIBRARY,
+              name,
+              id,
+              serviceName,
+              serviceRoles,
+              documentation,
+              description,
+              transports,
+              clients));
+    }
+    return libraries;
+  }
+
+  private static void writeClient(DataOutputStream data, CloudLibraryClient client)
+      throws IOException {
+    writeString(data, client.getName());
+    writeString(data, client.getLanguage());
+    writeString(data, client.getSite());
+    writeString(data, client.getApiReference());
+    writeString(data, client.getInfoTip());
+    writeString(data, client.getLaunchStage());
+    writeString(data, client.getSource());
+    writeString(data, client.getLanguageLevel());
+    CloudLibraryClientMavenCoordinates coordinates = client.getMavenCoordinates();
+    data.writeBoolean(coordinates != null);
+    if (coordinates != null) {
+      writeString(data, coordinates.getGroupId());
+      writeString(data, coordinates.getArtifactId());
+      writeString(data, coordinates.getVersion());
+    }
+  }
+
+  private static CloudLibraryClient readClient(DataInputStream data) throws IOException {
+    String name = readString(data);
+    String language = readString(data);
+    String site = readString(data);
+    String apiReference = readString(data);
+    String infoTip = readString(data);
+    String launchStage = readString(data);
+    String source = readString(data);
+    String languageLevel = readString(data);
+    CloudLibraryClientMavenCoordinates coordinates = null;
+    if (data.readBoolean()) {
+      coordinates =
+          newInstance(
+              NEW_MAVEN_COORDINATES, readString(data), readString(data), readString(data));
+    }
+    return newInstance(
+        NEW_CLIENT,
+        name,
+        language,
+        site,
+        apiReference,
+        infoTip,
+        launchStage,
+        source,
+        languageLevel,
+        coordinates);
+  }
+
+  private static void writeStrings(DataOutputStream data, @Nullable List<String> values)
+      throws IOException {
+    data.writeInt(values == null ? -1 : values.size());
+    if (values != null) {
+      for (String value : values) {
+        writeString(data, value);
+      }
+    }
+  }
+
+  @Nullable
+  private static List<String> readStrings(DataInputStream data) throws IOException {
+    int count = data.readInt();
+    if (count < 0) {
+      return null;
+    }
+    List<String> values = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      values.add(readString(data));
+    }
+    return values;
+  }
+
+  private static void writeString(DataOutputStream data, @Nullable String value)
+      throws IOException {
+    data.writeBoolean(value != null);
+    if (value != null) {
+      data.writeUTF(value);
+    }
+  }
+
+  @Nullable
+  private static String readString(DataInputStream data) throws IOException {
+    return data.readBoolean() ? data.readUTF() : null;
+  }
+
+  private static <T> Constructor<T> getConstructor(Class<T> type, Class<?>... parameterTypes) {
+    try {
+      Constructor<T> constructor = type.getDeclaredConstructor(parameterTypes);
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (NoSuchMethodException ex) {
+      throw new IllegalStateException("No snapshot constructor in " + type.getName(), ex);
+    }
+  }
+
+  private static <T> T newInstance(Constructor<T> constructor, @Nullable Object... arguments)
+      throws IOException {
+    try {
+      return constructor.newInstance(arguments);
+    } catch (ReflectiveOperationException ex) {
+      throw new IOException("Cannot create " + constructor.getDeclaringClass().getName(), ex);
+    }
+  }
+}
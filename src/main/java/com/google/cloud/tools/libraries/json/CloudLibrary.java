@@ -16,10 +16,14 @@
 
 package com.google.cloud.tools.libraries.json;
 
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
 
-/** Holds metadata about a single Cloud Library. */
+/**
+ * Holds metadata about a single Cloud Library. Libraries are shared by all callers of {@link
+ * com.google.cloud.tools.libraries.CloudLibraries}, so their lists cannot be modified.
+ */
 public final class CloudLibrary {
 
   @Nullable private String name;
@@ -34,6 +38,26 @@ public final class CloudLibrary {
   /** Prevents direct instantiation. GSON instantiates these objects using dark magic. */
   private CloudLibrary() {}
 
+  /** Creates a library read from a libraries snapshot. */
+  CloudLibrary(
+      @Nullable String name,
+      @Nullable String id,
+      @Nullable String serviceName,
+      @Nullable List<String> serviceRoles,
+      @Nullable String documentation,
+      @Nullable String description,
+      @Nullable List<String> transports,
+      @Nullable List<CloudLibraryClient> clients) {
+    this.name = name;
+    this.id = id;
+    this.serviceName = serviceName;
+    this.serviceRoles = serviceRoles;
+    this.documentation = documentation;
+    this.description = description;
+    this.transports = transports;
+    this.clients = clients;
+  }
+
   /** Returns the name of this library. */
   @Nullable
   public String getName() {
@@ -55,7 +79,7 @@ public final class CloudLibrary {
   /** Returns the service roles associated with this library. */
   @Nullable
   public List<String> getServiceRoles() {
-    return serviceRoles;
+    return unmodifiable(serviceRoles);
   }
 
   /** Returns a URL to the documentation for this library. */
@@ -73,12 +97,17 @@ public final class CloudLibrary {
   /** Returns the list of supported transports for this library (e.g. http, grpc, etc.). */
   @Nullable
   public List<String> getTransports() {
-    return transports;
+    return unmodifiable(transports);
   }
 
   /** Returns the list of available clients for this library. */
   @Nullable
   public List<CloudLibraryClient> getClients() {
-    return clients;
+    return unmodifiable(clients);
+  }
+
+  @Nullable
+  private static <T> List<T> unmodifiable(@Nullable List<T> list) {
+    return list == null ? null : Collections.unmodifiableList(list);
   }
 }
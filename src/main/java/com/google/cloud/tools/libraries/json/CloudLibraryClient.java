@@ -34,6 +34,28 @@ public final class CloudLibraryClient {
   /** Prevents direct instantiation. GSON instantiates these objects using dark magic. */
   private CloudLibraryClient() {}
 
+  /** Creates a client read from a libraries snapshot. */
+  CloudLibraryClient(
+      @Nullable String name,
+      @Nullable String language,
+      @Nullable String site,
+      @Nullable String apireference,
+      @Nullable String infotip,
+      @Nullable String launchStage,
+      @Nullable String source,
+      @Nullable String languageLevel,
+      @Nullable CloudLibraryClientMavenCoordinates mavenCoordinates) {
+    this.name = name;
+    this.language = language;
+    this.site = site;
+    this.apireference = apireference;
+    this.infotip = infotip;
+    this.launchStage = launchStage;
+    this.source = source;
+    this.languageLevel = languageLevel;
+    this.mavenCoordinates = mavenCoordinates;
+  }
+
   /** Returns the name of this client. */
   @Nullable
   public String getName() {
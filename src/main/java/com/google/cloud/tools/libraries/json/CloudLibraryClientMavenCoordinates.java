@@ -28,6 +28,14 @@ public final class CloudLibraryClientMavenCoordinates {
   /** Prevents direct instantiation. GSON instantiates these objects using dark magic. */
   private CloudLibraryClientMavenCoordinates() {}
 
+  /** Creates Maven coordinates read from a libraries snapshot. */
+  CloudLibraryClientMavenCoordinates(
+      @Nullable String groupId, @Nullable String artifactId, @Nullable String version) {
+    this.groupId = groupId;
+    this.artifactId = artifactId;
+    this.version = version;
+  }
+
   /** Returns the group ID of this client's Maven artifact. */
   @Nullable
   public String getGroupId() {
@@ -23,9 +23,11 @@ import com.google.cloud.tools.appengine.operations.cloudsdk.serialization.CloudS
 import com.google.cloud.tools.managedcloudsdk.command.CommandCaller;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
+import com.google.cloud.tools.managedcloudsdk.components.ComponentStateCache;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponent;
 import com.google.cloud.tools.managedcloudsdk.components.SdkComponentInstaller;
 import com.google.cloud.tools.managedcloudsdk.components.SdkUpdater;
+import com.google.cloud.tools.managedcloudsdk.install.ArchiveCache;
 import com.google.cloud.tools.managedcloudsdk.install.SdkInstaller;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
@@ -34,9 +36,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 /** A manager for installing, configuring and updating the Cloud SDK. */
@@ -44,6 +50,9 @@ public class ManagedCloudSdk {
 
   private static final Logger logger = Logger.getLogger(ManagedCloudSdk.class.getName());
 
+  /** Shared by all instances, which are often created for a single call. */
+  private static final ComponentStateCache componentStateCache = new ComponentStateCache();
+
   private final Version version;
   private final Path managedSdkDirectory;
   private final OsInfo osInfo;
@@ -100,14 +109,38 @@ public class ManagedCloudSdk {
   }
 
   /**
-   * Query gcloud to see if component is installed. Uses gcloud's '--local-state-only' to avoid
-   * network accesses.
+   * Check if a component is installed. The installation state of the SDK is read from its files
+   * and cached until the SDK changes; if it cannot be read, gcloud is queried with
+   * '--local-state-only' to avoid network accesses.
    */
   public boolean hasComponent(SdkComponent component) throws ManagedSdkVerificationException {
+    return hasComponents(Collections.singletonList(component));
+  }
+
+  /** Check if all {@code components} are installed, see {@link #hasComponent}. */
+  public boolean hasComponents(Collection<SdkComponent> components)
+      throws ManagedSdkVerificationException {
     if (!Files.isRegularFile(getGcloudPath())) {
       return false;
     }
 
+    Set<String> installed;
+    try {
+      installed = componentStateCache.getInstalledComponents(getSdkHome());
+    } catch (IOException ex) {
+      throw new ManagedSdkVerificationException(ex);
+    }
+    for (SdkComponent component : components) {
+      boolean hasComponent =
+          installed != null ? installed.contains(component.toString()) : queryComponent(component);
+      if (!hasComponent) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean queryComponent(SdkComponent component) throws ManagedSdkVerificationException {
     List<String> listComponentCommand =
         Arrays.asList(
             getGcloudPath().toString(),
@@ -170,8 +203,21 @@ public class ManagedCloudSdk {
     return SdkInstaller.newInstaller(managedSdkDirectory, version, osInfo, userAgentString, false);
   }
 
+  /**
+   * Returns a new installer that shares downloaded archives with other managed SDKs, for example
+   * of other users or build executors, through {@code archiveCache}. Archives of the LATEST version
+   * are not cached.
+   */
+  public SdkInstaller newInstaller(ArchiveCache archiveCache) {
+    String userAgentString = "google-cloud-tools-java";
+    return SdkInstaller.builder(managedSdkDirectory, version, osInfo, userAgentString)
+        .setArchiveCache(archiveCache)
+        .build();
+  }
+
   public SdkComponentInstaller newComponentInstaller() {
-    return SdkComponentInstaller.newComponentInstaller(osInfo.name(), getGcloudPath());
+    return SdkComponentInstaller.newComponentInstaller(
+        osInfo.name(), getGcloudPath(), componentStateCache);
   }
 
   /**
@@ -184,7 +230,22 @@ public class ManagedCloudSdk {
     if (version != Version.LATEST) {
       throw new UnsupportedOperationException("Cannot update a fixed version SDK.");
     }
-    return SdkUpdater.newUpdater(osInfo.name(), getGcloudPath());
+    return SdkUpdater.newUpdater(
+        osInfo.name(),
+        getGcloudPath(),
+        getLockFile(),
+        new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws ManagedSdkVerificationException {
+            return isUpToDate();
+          }
+        });
+  }
+
+  /** The file locked while this SDK is installed or updated, shared with {@link SdkInstaller}. */
+  @VisibleForTesting
+  Path getLockFile() {
+    return managedSdkDirectory.resolve(version.getVersion() + ".lock");
   }
 
   /** Get a new {@link ManagedCloudSdk} instance for @{link Version} specified. */
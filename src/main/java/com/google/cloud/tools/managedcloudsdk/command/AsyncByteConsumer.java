@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.managedcloudsdk.command;
 
+import com.google.cloud.tools.io.IoExecutors;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -24,25 +25,43 @@ import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * AsyncWrapper to handle stream consumption on a separate thread. Do not re-use this on streams -
- * it can only handle one stream per instance.
+ * it can only handle one stream per instance. Streams are consumed on an executor that is shared
+ * by default, so running commands does not create and tear down a thread pool per stream.
  */
 class AsyncByteConsumer implements AsyncStreamSaver {
 
+  /** The default number of bytes read from a stream at once. */
+  static final int DEFAULT_BUFFER_SIZE = 1024;
+
+  /**
+   * Consumes the streams of consumers created without an executor, on threads that are reused
+   * across streams. It is not bounded, because every stream of a running process needs its own
+   * thread until the process exits.
+   */
+  private static final ListeningExecutorService defaultExecutor =
+      MoreExecutors.listeningDecorator(IoExecutors.newDaemonExecutor("stream-consumer-%d"));
+
   private final ByteHandler byteHandler;
   private final ListeningExecutorService executorService;
   private final SettableFuture<String> result;
-  private static final int BUFFER_SIZE = 1024;
+  private final int bufferSize;
+  private final AtomicBoolean started = new AtomicBoolean();
 
-  /** Create a new instance. */
+  /** Create a new instance consuming the stream on the shared default executor. */
   AsyncByteConsumer(ByteHandler byteHandler) {
-    this(
-        Preconditions.checkNotNull(byteHandler),
-        MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor()),
-        SettableFuture.<String>create());
+    this(Preconditions.checkNotNull(byteHandler), defaultExecutor, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a new instance consuming the stream on {@code executorService}, which is not shut down.
+   */
+  AsyncByteConsumer(
+      ByteHandler byteHandler, ListeningExecutorService executorService, int bufferSize) {
+    this(byteHandler, executorService, SettableFuture.<String>create(), bufferSize);
   }
 
   @VisibleForTesting
@@ -50,25 +69,39 @@ class AsyncByteConsumer implements AsyncStreamSaver {
       ByteHandler byteHandler,
       ListeningExecutorService executorService,
       SettableFuture<String> result) {
+    this(byteHandler, executorService, result, DEFAULT_BUFFER_SIZE);
+  }
+
+  private AsyncByteConsumer(
+      ByteHandler byteHandler,
+      ListeningExecutorService executorService,
+      SettableFuture<String> result,
+      int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
     this.byteHandler = byteHandler;
     this.executorService = executorService;
     this.result = result;
+    this.bufferSize = bufferSize;
+  }
+
+  /** Returns the executor shared by consumers created without one. */
+  static ListeningExecutorService getDefaultExecutor() {
+    return defaultExecutor;
   }
 
   /** Handle an input stream on a separate thread. */
   @Override
   public void handleStream(final InputStream inputStream) {
-    if (executorService.isShutdown()) {
+    if (!started.compareAndSet(false, true)) {
       throw new IllegalStateException("Cannot reuse " + this.getClass().getName());
     }
     ListenableFuture<String> submit = executorService.submit(() -> consumeBytes(inputStream));
     result.setFuture(submit);
-    executorService.shutdown();
   }
 
   @VisibleForTesting
   String consumeBytes(final InputStream inputStream) throws IOException {
-    byte[] byteBuffer = new byte[BUFFER_SIZE];
+    byte[] byteBuffer = new byte[bufferSize];
     int bytesRead;
     try (InputStream in = inputStream) {
       while ((bytesRead = in.read(byteBuffer)) != -1) {
@@ -18,17 +18,40 @@ package com.google.cloud.tools.managedcloudsdk.command;
 
 import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
 import com.google.cloud.tools.managedcloudsdk.process.AsyncStreamHandler;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
 
 /** Factory to create default implementations of {@link AsyncStreamHandler}. */
 class AsyncStreamHandlerFactory {
 
+  private final ListeningExecutorService executor;
+  private final int bufferSize;
+
+  /** Creates handlers consuming streams on the shared default executor. */
+  AsyncStreamHandlerFactory() {
+    this(AsyncByteConsumer.getDefaultExecutor(), AsyncByteConsumer.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates handlers consuming streams on {@code executor}, reading {@code bufferSize} bytes at
+   * once.
+   */
+  AsyncStreamHandlerFactory(ExecutorService executor, int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
+    this.executor = MoreExecutors.listeningDecorator(executor);
+    this.bufferSize = bufferSize;
+  }
+
   /**
    * Create a new AsyncStreamHandler using the {@link ConsoleListenerForwardingByteHandler}
    * implementation.
    */
   AsyncStreamHandler newHandler(ConsoleListener consoleListener) {
-    return new AsyncByteConsumer(new ConsoleListenerForwardingByteHandler(consoleListener));
+    return new AsyncByteConsumer(
+        new ConsoleListenerForwardingByteHandler(consoleListener), executor, bufferSize);
   }
 
   static class ConsoleListenerForwardingByteHandler implements ByteHandler {
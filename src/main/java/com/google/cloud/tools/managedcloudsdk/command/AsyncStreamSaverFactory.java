@@ -16,15 +16,47 @@
 
 package com.google.cloud.tools.managedcloudsdk.command;
 
+import com.google.cloud.tools.io.CapturedOutput;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
 
 /** Factory to create default implementations of {@link AsyncStreamSaver}. */
 class AsyncStreamSaverFactory {
 
+  private final ListeningExecutorService executor;
+  private final int bufferSize;
+
+  /** Creates savers consuming streams on the shared default executor. */
+  AsyncStreamSaverFactory() {
+    this(AsyncByteConsumer.getDefaultExecutor(), AsyncByteConsumer.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates savers consuming streams on {@code executor}, reading {@code bufferSize} bytes at once.
+   */
+  AsyncStreamSaverFactory(ExecutorService executor, int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
+    this.executor = MoreExecutors.listeningDecorator(executor);
+    this.bufferSize = bufferSize;
+  }
+
   /** Create a new AsyncStreamSaver using the {@link CollectingByteHandler} implementation. */
   AsyncStreamSaver newSaver() {
-    return new AsyncByteConsumer(new CollectingByteHandler());
+    return new AsyncByteConsumer(new CollectingByteHandler(), executor, bufferSize);
+  }
+
+  /**
+   * Create a new AsyncStreamSaver using the {@link CapturingByteHandler} implementation, its result
+   * is empty and only signals that the stream was fully written to {@code output}.
+   */
+  AsyncStreamSaver newSaver(CapturedOutput output) {
+    return new AsyncByteConsumer(new CapturingByteHandler(output), executor, bufferSize);
   }
 
   @VisibleForTesting
@@ -42,4 +74,29 @@ class AsyncStreamSaverFactory {
       return result.toString();
     }
   }
+
+  @VisibleForTesting
+  static class CapturingByteHandler implements ByteHandler {
+
+    private final CapturedOutput output;
+
+    CapturingByteHandler(CapturedOutput output) {
+      this.output = output;
+    }
+
+    @Override
+    public void bytes(byte[] bytes, int length) {
+      try {
+        output.getOutputStream().write(bytes, 0, length);
+      } catch (IOException ex) {
+        // fails the result of the consumer
+        throw new UncheckedIOException(ex);
+      }
+    }
+
+    @Override
+    public String getResult() {
+      return "";
+    }
+  }
 }
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.managedcloudsdk.command;
 
+import com.google.cloud.tools.io.CapturedOutput;
 import com.google.cloud.tools.managedcloudsdk.process.ProcessExecutor;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
@@ -23,6 +24,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
@@ -87,7 +89,64 @@ public class CommandCaller {
     }
   }
 
+  /**
+   * Runs the command and returns the process's stdout without converting it to a string, so large
+   * outputs can be parsed incrementally from {@link CapturedOutput#openReader()}. The output is
+   * kept in memory up to {@code memoryThreshold} bytes and spilled to a temporary file beyond that.
+   * The caller must close the returned output. Only stderr is reported on failure.
+   */
+  public CapturedOutput callStreaming(
+      List<String> command,
+      @Nullable Path workingDirectory,
+      @Nullable Map<String, String> environment,
+      int memoryThreshold)
+      throws CommandExitException, CommandExecutionException, InterruptedException {
+    ProcessExecutor processExecutor = processExecutorSupplier.get();
+
+    CapturedOutput stdOut = new CapturedOutput(memoryThreshold);
+    AsyncStreamSaver stdOutSaver = streamSaverFactory.newSaver(stdOut);
+    AsyncStreamSaver stdErrSaver = streamSaverFactory.newSaver();
+
+    boolean succeeded = false;
+    try {
+      int exitCode =
+          processExecutor.run(command, workingDirectory, environment, stdOutSaver, stdErrSaver);
+      // wait until stdout is fully captured
+      stdOutSaver.getResult().get();
+      if (exitCode != 0) {
+        throw new CommandExitException(exitCode, stdErrSaver.getResult().get());
+      }
+      succeeded = true;
+      return stdOut;
+    } catch (IOException | ExecutionException ex) {
+      String stdErr;
+      try {
+        stdErr = stdErrSaver.getResult().get();
+      } catch (InterruptedException | ExecutionException ignored) {
+        stdErr = "stderr collection interrupted";
+      }
+      throw new CommandExecutionException(stdErr, ex);
+    } finally {
+      if (!succeeded) {
+        try {
+          stdOut.close();
+        } catch (IOException ignored) {
+          // only a temporary file is left behind
+        }
+      }
+    }
+  }
+
   public static CommandCaller newCaller() {
     return new CommandCaller(ProcessExecutor::new, new AsyncStreamSaverFactory());
   }
+
+  /**
+   * Returns a caller that consumes process output on {@code executor}, which must be able to run
+   * two tasks per concurrently running command, reading {@code bufferSize} bytes at once.
+   */
+  public static CommandCaller newCaller(ExecutorService executor, int bufferSize) {
+    return new CommandCaller(
+        ProcessExecutor::new, new AsyncStreamSaverFactory(executor, bufferSize));
+  }
 }
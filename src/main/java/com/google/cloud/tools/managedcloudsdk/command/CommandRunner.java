@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
@@ -66,4 +67,13 @@ public class CommandRunner {
   public static CommandRunner newRunner() {
     return new CommandRunner(ProcessExecutor::new, new AsyncStreamHandlerFactory());
   }
+
+  /**
+   * Returns a runner that consumes process output on {@code executor}, which must be able to run
+   * two tasks per concurrently running command, reading {@code bufferSize} bytes at once.
+   */
+  public static CommandRunner newRunner(ExecutorService executor, int bufferSize) {
+    return new CommandRunner(
+        ProcessExecutor::new, new AsyncStreamHandlerFactory(executor, bufferSize));
+  }
 }
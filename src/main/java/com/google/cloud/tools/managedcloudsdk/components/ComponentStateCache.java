@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.components;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the installed components of Cloud SDKs, read from the installation state that gcloud
+ * keeps in the {@code .install} directory of the SDK, instead of running {@code gcloud components
+ * list}. gcloud records each installed component in a {@code <component-id>.snapshot.json} file
+ * there, so installing or removing a component changes the modification time of the directory,
+ * which invalidates the cached state.
+ */
+public final class ComponentStateCache {
+
+  @VisibleForTesting static final String STATE_DIRECTORY = ".install";
+  @VisibleForTesting static final String SNAPSHOT_SUFFIX = ".snapshot.json";
+
+  /**
+   * State read this soon after its directory was modified is read again on the next call, because
+   * a further change within the resolution of the file system's timestamps would keep the same
+   * modification time.
+   */
+  private static final long RACY_INTERVAL_MILLIS = 2000;
+
+  private final ConcurrentMap<Path, ComponentState> states = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the ids of the components installed in a Cloud SDK.
+   *
+   * @param sdkHome the {@code google-cloud-sdk} directory
+   * @return the installed component ids, or null if the SDK has no installation state to read
+   */
+  @Nullable
+  public ImmutableSet<String> getInstalledComponents(Path sdkHome) throws IOException {
+    Path stateDirectory = sdkHome.resolve(STATE_DIRECTORY).toAbsolutePath().normalize();
+    if (!Files.isDirectory(stateDirectory)) {
+      states.remove(stateDirectory);
+      return null;
+    }
+
+    // the stamp is taken before reading, so a change during the read invalidates the result
+    FileTime stamp = Files.getLastModifiedTime(stateDirectory);
+    ComponentState cached = states.get(stateDirectory);
+    if (cached != null && cached.isValid(stamp)) {
+      return cached.components;
+    }
+
+    long readTime = System.currentTimeMillis();
+    ImmutableSet<String> components = readComponents(stateDirectory);
+    states.put(stateDirectory, new ComponentState(stamp, readTime, components));
+    return components;
+  }
+
+  private static ImmutableSet<String> readComponents(Path stateDirectory) throws IOException {
+    ImmutableSet.Builder<String> components = ImmutableSet.builder();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(stateDirectory, "*" + SNAPSHOT_SUFFIX)) {
+      for (Path snapshot : stream) {
+        String fileName = snapshot.getFileName().toString();
+        String id = fileName.substring(0, fileName.length() - SNAPSHOT_SUFFIX.length());
+        // ".snapshot.json" is the snapshot of the whole SDK, not of a component
+        if (!id.isEmpty() && Files.isRegularFile(snapshot)) {
+          components.add(id);
+        }
+      }
+    }
+    return components.build();
+  }
+
+  private static class ComponentState {
+    private final FileTime stamp;
+    private final long readTime;
+    private final ImmutableSet<String> components;
+
+    private ComponentState(FileTime stamp, long readTime, ImmutableSet<String> components) {
+      this.stamp = stamp;
+      this.readTime = readTime;
+      this.components = components;
+    }
+
+    private boolean isValid(FileTime currentStamp) {
+      return stamp.equals(currentStamp) && readTime - stamp.toMillis() >= RACY_INTERVAL_MILLIS;
+    }
+  }
+}
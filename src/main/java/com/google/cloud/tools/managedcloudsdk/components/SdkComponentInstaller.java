@@ -24,28 +24,55 @@ import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandRunner;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 /** Install an SDK component. */
 public class SdkComponentInstaller {
 
+  private static final Logger logger = Logger.getLogger(SdkComponentInstaller.class.getName());
+
+  /** Start of the console lines in which gcloud reports each component it installs. */
+  private static final String INSTALLING_PREFIX = "Installing: ";
+
+  private static final Pattern TRAILING_FRAME = Pattern.compile("[^\\p{Alnum})]+$");
+
   private final Path gcloudPath;
   private final CommandRunner commandRunner;
   @Nullable private final BundledPythonCopier pythonCopier;
+  private final ComponentStateCache componentStateCache;
 
   /** Use {@link #newComponentInstaller} to instantiate. */
   @VisibleForTesting
   SdkComponentInstaller(
       Path gcloudPath, CommandRunner commandRunner, @Nullable BundledPythonCopier pythonCopier) {
+    this(gcloudPath, commandRunner, pythonCopier, new ComponentStateCache());
+  }
+
+  /** Use {@link #newComponentInstaller} to instantiate. */
+  @VisibleForTesting
+  SdkComponentInstaller(
+      Path gcloudPath,
+      CommandRunner commandRunner,
+      @Nullable BundledPythonCopier pythonCopier,
+      ComponentStateCache componentStateCache) {
     Preconditions.checkArgument(gcloudPath.isAbsolute());
     this.gcloudPath = Preconditions.checkNotNull(gcloudPath);
     this.commandRunner = Preconditions.checkNotNull(commandRunner);
     this.pythonCopier = pythonCopier;
+    this.componentStateCache = Preconditions.checkNotNull(componentStateCache);
   }
 
   /**
@@ -74,6 +101,128 @@ public class SdkComponentInstaller {
     progressListener.done();
   }
 
+  /**
+   * Install several components with a single gcloud invocation. Components that are already
+   * installed are skipped, and progress is reported per component as gcloud installs them.
+   *
+   * @param components components to install
+   * @param progressListener listener to action progress feedback
+   * @param consoleListener listener to process console feedback
+   */
+  public void installComponents(
+      Collection<SdkComponent> components,
+      ProgressListener progressListener,
+      ConsoleListener consoleListener)
+      throws InterruptedException, CommandExitException, CommandExecutionException {
+    Set<SdkComponent> missing = getMissingComponents(components);
+    if (missing.isEmpty()) {
+      progressListener.start("Components already installed", ProgressListener.UNKNOWN);
+      progressListener.done();
+      return;
+    }
+
+    progressListener.start("Installing " + Joiner.on(", ").join(missing), missing.size());
+
+    Map<String, String> environment = null;
+    if (pythonCopier != null) {
+      environment = pythonCopier.copyPython();
+    }
+
+    Path workingDirectory = gcloudPath.getRoot();
+    List<String> command = new ArrayList<>();
+    command.add(gcloudPath.toString());
+    command.add("components");
+    command.add("install");
+    for (SdkComponent component : missing) {
+      command.add(component.toString());
+    }
+    command.add("--quiet");
+
+    ComponentProgressListener componentProgress =
+        new ComponentProgressListener(consoleListener, progressListener, missing.size());
+    commandRunner.run(command, workingDirectory, environment, componentProgress);
+    componentProgress.finish();
+    progressListener.done();
+  }
+
+  /** Returns the components that are not installed yet, all of them if that cannot be read. */
+  private Set<SdkComponent> getMissingComponents(Collection<SdkComponent> components) {
+    Set<SdkComponent> missing = new LinkedHashSet<>(components);
+    Path binDirectory = gcloudPath.getParent();
+    Path sdkHome = binDirectory == null ? null : binDirectory.getParent();
+    if (sdkHome == null) {
+      return missing;
+    }
+    try {
+      Set<String> installed = componentStateCache.getInstalledComponents(sdkHome);
+      if (installed != null) {
+        missing.removeIf(component -> installed.contains(component.toString()));
+      }
+    } catch (IOException ex) {
+      logger.warning("Failed to read installed components, installing all: " + ex);
+    }
+    return missing;
+  }
+
+  /**
+   * Passes gcloud's output on and advances the progress by one component for each component that
+   * gcloud reports installing. gcloud can install more components than requested, like platform
+   * specific dependencies, so progress never exceeds the requested count.
+   */
+  private static class ComponentProgressListener implements ConsoleListener {
+    private final ConsoleListener consoleListener;
+    private final ProgressListener progressListener;
+    private final int componentCount;
+    private final StringBuilder line = new StringBuilder();
+    private int componentsReported;
+
+    private ComponentProgressListener(
+        ConsoleListener consoleListener, ProgressListener progressListener, int componentCount) {
+      this.consoleListener = consoleListener;
+      this.progressListener = progressListener;
+      this.componentCount = componentCount;
+    }
+
+    @Override
+    public void console(String rawString) {
+      consoleListener.console(rawString);
+      for (int i = 0; i < rawString.length(); i++) {
+        char c = rawString.charAt(i);
+        if (c == '\n' || c == '\r') {
+          processLine(line.toString());
+          line.setLength(0);
+        } else {
+          line.append(c);
+        }
+      }
+    }
+
+    private void processLine(String text) {
+      int start = text.indexOf(INSTALLING_PREFIX);
+      if (start < 0) {
+        return;
+      }
+      // the line is framed with box drawing characters, which are dropped from the name
+      String name =
+          TRAILING_FRAME.matcher(text.substring(start + INSTALLING_PREFIX.length())).replaceAll("");
+      progressListener.update("Installing " + name);
+      if (componentsReported < componentCount) {
+        componentsReported++;
+        progressListener.update(1);
+      }
+    }
+
+    /** Reports the components that gcloud installed without a recognized console line. */
+    private void finish() {
+      processLine(line.toString());
+      line.setLength(0);
+      if (componentsReported < componentCount) {
+        progressListener.update(componentCount - componentsReported);
+        componentsReported = componentCount;
+      }
+    }
+  }
+
   /**
    * Configure and create a new Component Installer instance.
    *
@@ -81,14 +230,28 @@ public class SdkComponentInstaller {
    * @return a new configured Cloud SDK component installer
    */
   public static SdkComponentInstaller newComponentInstaller(OsInfo.Name osName, Path gcloudPath) {
+    return newComponentInstaller(osName, gcloudPath, new ComponentStateCache());
+  }
+
+  /**
+   * Configure and create a new Component Installer instance.
+   *
+   * @param gcloudPath full path to gcloud in the Cloud SDK
+   * @param componentStateCache cache of installed components, used to skip installed components
+   * @return a new configured Cloud SDK component installer
+   */
+  public static SdkComponentInstaller newComponentInstaller(
+      OsInfo.Name osName, Path gcloudPath, ComponentStateCache componentStateCache) {
     switch (osName) {
       case WINDOWS:
         return new SdkComponentInstaller(
             gcloudPath,
             CommandRunner.newRunner(),
-            new WindowsBundledPythonCopier(gcloudPath, CommandCaller.newCaller()));
+            new WindowsBundledPythonCopier(gcloudPath, CommandCaller.newCaller()),
+            componentStateCache);
       default:
-        return new SdkComponentInstaller(gcloudPath, CommandRunner.newRunner(), null);
+        return new SdkComponentInstaller(
+            gcloudPath, CommandRunner.newRunner(), null, componentStateCache);
     }
   }
 }
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.managedcloudsdk.components;
 
+import com.google.cloud.tools.io.LockFile;
 import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
 import com.google.cloud.tools.managedcloudsdk.OsInfo;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
@@ -24,35 +25,98 @@ import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandRunner;
 import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
 /** Update an SDK. */
 public class SdkUpdater {
 
+  private static final Logger logger = Logger.getLogger(SdkUpdater.class.getName());
+
   private final Path gcloudPath;
   private final CommandRunner commandRunner;
   @Nullable private final BundledPythonCopier pythonCopier;
+  @Nullable private final Path lockFile;
+  @Nullable private final Callable<Boolean> upToDateCheck;
 
   SdkUpdater(
       Path gcloudPath, CommandRunner commandRunner, @Nullable BundledPythonCopier pythonCopier) {
+    this(gcloudPath, commandRunner, pythonCopier, null, null);
+  }
+
+  SdkUpdater(
+      Path gcloudPath,
+      CommandRunner commandRunner,
+      @Nullable BundledPythonCopier pythonCopier,
+      @Nullable Path lockFile,
+      @Nullable Callable<Boolean> upToDateCheck) {
     Preconditions.checkArgument(gcloudPath.isAbsolute());
     this.gcloudPath = gcloudPath;
     this.commandRunner = commandRunner;
     this.pythonCopier = pythonCopier;
+    this.lockFile = lockFile;
+    this.upToDateCheck = upToDateCheck;
   }
 
   /**
-   * Update the Cloud SDK.
+   * Update the Cloud SDK. If the updater has a lock file, the update holds it against other
+   * processes. An update that had to wait for another holder checks the SDK again once it holds
+   * the lock and is skipped if the SDK is up to date, because the holder may have updated it or
+   * may have failed.
    *
    * @param progressListener listener to action progress feedback
    * @param consoleListener listener to process console feedback
    */
   public void update(ProgressListener progressListener, ConsoleListener consoleListener)
       throws InterruptedException, CommandExitException, CommandExecutionException {
+    if (lockFile == null) {
+      runUpdate(progressListener, consoleListener);
+      return;
+    }
+
+    try {
+      Files.createDirectories(lockFile.getParent());
+      LockFile lock = LockFile.tryAcquire(lockFile);
+      boolean waited = lock == null;
+      if (lock == null) {
+        logger.info("Waiting for another update to release " + lockFile);
+        lock = LockFile.acquire(lockFile);
+      }
+      try (LockFile updateLock = lock) {
+        if (waited && isUpToDate()) {
+          logger.info("Cloud SDK was updated by another process, skipping update");
+          progressListener.start("Updating Cloud SDK", ProgressListener.UNKNOWN);
+          progressListener.done();
+          return;
+        }
+        runUpdate(progressListener, consoleListener);
+      }
+    } catch (IOException ex) {
+      throw new CommandExecutionException("Failed to lock " + lockFile, ex);
+    }
+  }
+
+  private boolean isUpToDate() {
+    if (upToDateCheck == null) {
+      return false;
+    }
+    try {
+      return upToDateCheck.call();
+    } catch (Exception ex) {
+      logger.warning("Failed to check whether Cloud SDK is up to date, updating: " + ex);
+      return false;
+    }
+  }
+
+  private void runUpdate(ProgressListener progressListener, ConsoleListener consoleListener)
+      throws InterruptedException, CommandExitException, CommandExecutionException {
     progressListener.start("Updating Cloud SDK", ProgressListener.UNKNOWN);
 
     Map<String, String> environment = null;
@@ -73,14 +137,35 @@ public class SdkUpdater {
    * @return a new configured Cloud SDK updater
    */
   public static SdkUpdater newUpdater(OsInfo.Name osName, Path gcloudPath) {
+    return newUpdater(osName, gcloudPath, null, null);
+  }
+
+  /**
+   * Configure and create a new Updater instance that coordinates with installs and updates of the
+   * same SDK in other processes.
+   *
+   * @param gcloudPath path to gcloud in the Cloud SDK
+   * @param lockFile file locked while updating, or null to update without locking
+   * @param upToDateCheck returns whether the SDK is up to date, checked after waiting for the lock;
+   *     if null, the update always runs
+   * @return a new configured Cloud SDK updater
+   */
+  public static SdkUpdater newUpdater(
+      OsInfo.Name osName,
+      Path gcloudPath,
+      @Nullable Path lockFile,
+      @Nullable Callable<Boolean> upToDateCheck) {
     switch (osName) {
       case WINDOWS:
         return new SdkUpdater(
             gcloudPath,
             CommandRunner.newRunner(),
-            new WindowsBundledPythonCopier(gcloudPath, CommandCaller.newCaller()));
+            new WindowsBundledPythonCopier(gcloudPath, CommandCaller.newCaller()),
+            lockFile,
+            upToDateCheck);
       default:
-        return new SdkUpdater(gcloudPath, CommandRunner.newRunner(), null);
+        return new SdkUpdater(
+            gcloudPath, CommandRunner.newRunner(), null, lockFile, upToDateCheck);
     }
   }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.install;
+
+import com.google.cloud.tools.io.LockFile;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+/**
+ * A cache of downloaded Cloud SDK archives that can be shared by several managed SDK directories
+ * and by concurrent processes on the same machine. Each archive is stored in an entry named after
+ * the digest of its source URL, which includes the SDK version, together with the SHA-256 of the
+ * archive content. Entries are locked with a {@link LockFile} while they are filled or copied, so
+ * concurrent installers of the same archive wait for a single download. When the cache grows over
+ * its maximum size, the least recently used entries are deleted.
+ *
+ * <p>Only archives whose URL always refers to the same content, like versioned Cloud SDK archives,
+ * should be cached.
+ */
+public final class ArchiveCache {
+
+  private static final Logger logger = Logger.getLogger(ArchiveCache.class.getName());
+
+  /** The default maximum size of a cache, in bytes. */
+  public static final long DEFAULT_MAX_SIZE = 2L * 1024 * 1024 * 1024;
+
+  @VisibleForTesting static final String DIGEST_FILE = "archive.sha256";
+
+  private final Path directory;
+  private final long maxSize;
+
+  /** Creates a cache in {@code directory} bounded by {@link #DEFAULT_MAX_SIZE}. */
+  public ArchiveCache(Path directory) {
+    this(directory, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param directory the cache directory, created when the first archive is cached
+   * @param maxSize the size in bytes above which least recently used archives are deleted
+   */
+  public ArchiveCache(Path directory, long maxSize) {
+    Preconditions.checkArgument(maxSize >= 0, "maxSize must not be negative");
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /** Downloads an archive into a cache entry. */
+  interface Fetcher {
+    void fetch(Path archive) throws IOException, InterruptedException;
+  }
+
+  /**
+   * Places the archive downloaded from {@code source} at {@code destination}, as a hard link to the
+   * cached archive if possible or else as a copy. If the archive is not cached yet, or its recorded
+   * SHA-256 does not match {@code expectedSha256}, it is first downloaded into the cache with
+   * {@code fetcher}.
+   *
+   * @return true if the archive was downloaded, false if it was already cached
+   */
+  boolean copyTo(URL source, Path destination, @Nullable String expectedSha256, Fetcher fetcher)
+      throws IOException, InterruptedException {
+    String key = getKey(source);
+    Path entry = directory.resolve(key);
+    Path archive = entry.resolve(destination.getFileName().toString());
+    Path digestFile = entry.resolve(DIGEST_FILE);
+    Files.createDirectories(directory);
+
+    boolean downloaded = false;
+    try (LockFile lock = LockFile.acquire(directory.resolve(key + ".lock"))) {
+      String digest = readDigest(digestFile);
+      if (digest != null
+          && Files.isRegularFile(archive)
+          && (expectedSha256 == null || digest.equalsIgnoreCase(expectedSha256))) {
+        logger.info("Using cached archive " + archive);
+        // the digest file's modification time records the last use of the entry
+        Files.setLastModifiedTime(digestFile, FileTime.fromMillis(System.currentTimeMillis()));
+      } else {
+        Files.deleteIfExists(digestFile);
+        Files.deleteIfExists(archive);
+        Files.createDirectories(entry);
+        fetcher.fetch(archive);
+        writeDigest(digestFile, MoreFiles.asByteSource(archive).hash(Hashing.sha256()).toString());
+        downloaded = true;
+      }
+
+      Files.deleteIfExists(destination);
+      Files.createDirectories(destination.getParent());
+      try {
+        Files.createLink(destination, archive);
+      } catch (IOException | UnsupportedOperationException ex) {
+        Files.copy(archive, destination);
+      }
+    }
+
+    if (downloaded) {
+      evict(key);
+    }
+    return downloaded;
+  }
+
+  /**
+   * Deletes least recently used entries until the cache fits its maximum size. Entries that are
+   * locked or still being filled are neither deleted nor counted as evictable.
+   *
+   * @param keep key of an entry that must be kept
+   */
+  @VisibleForTesting
+  void evict(String keep) throws IOException {
+    List<CacheEntry> entries = new ArrayList<>();
+    long totalSize = 0;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isDirectory)) {
+      for (Path entry : stream) {
+        long size = getSize(entry);
+        totalSize += size;
+        Path digestFile = entry.resolve(DIGEST_FILE);
+        if (!entry.getFileName().toString().equals(keep) && Files.isRegularFile(digestFile)) {
+          entries.add(new CacheEntry(entry, size, Files.getLastModifiedTime(digestFile)));
+        }
+      }
+    }
+    entries.sort(Comparator.comparing(cacheEntry -> cacheEntry.lastUsed));
+
+    for (CacheEntry cacheEntry : entries) {
+      if (totalSize <= maxSize) {
+        return;
+      }
+      Path lockFile = directory.resolve(cacheEntry.path.getFileName() + ".lock");
+      try (LockFile lock = LockFile.tryAcquire(lockFile)) {
+        if (lock != null) {
+          logger.info("Evicting cached archive " + cacheEntry.path);
+          // the digest goes first, so an interrupted eviction leaves an incomplete entry
+          Files.deleteIfExists(cacheEntry.path.resolve(DIGEST_FILE));
+          MoreFiles.deleteRecursively(cacheEntry.path, RecursiveDeleteOption.ALLOW_INSECURE);
+          totalSize -= cacheEntry.size;
+        }
+      }
+    }
+  }
+
+  @VisibleForTesting
+  static String getKey(URL source) {
+    return Hashing.sha256().hashString(source.toString(), StandardCharsets.UTF_8).toString();
+  }
+
+  private static long getSize(Path entry) throws IOException {
+    try (Stream<Path> files = Files.walk(entry)) {
+      long size = 0;
+      for (Path file : (Iterable<Path>) files::iterator) {
+        if (Files.isRegularFile(file)) {
+          size += Files.size(file);
+        }
+      }
+      return size;
+    }
+  }
+
+  @Nullable
+  private static String readDigest(Path digestFile) throws IOException {
+    if (!Files.isRegularFile(digestFile)) {
+      return null;
+    }
+    return new String(Files.readAllBytes(digestFile), StandardCharsets.UTF_8).trim();
+  }
+
+  private static void writeDigest(Path digestFile, String digest) throws IOException {
+    // written last and atomically, so only complete entries have a digest
+    Path temporary = digestFile.resolveSibling(DIGEST_FILE + ".tmp");
+    Files.write(temporary, digest.getBytes(StandardCharsets.UTF_8));
+    try {
+      Files.move(temporary, digestFile, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(temporary, digestFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static class CacheEntry {
+    private final Path path;
+    private final long size;
+    private final FileTime lastUsed;
+
+    private CacheEntry(Path path, long size, FileTime lastUsed) {
+      this.path = path;
+      this.size = size;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.install;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * A fixed size buffer passing bytes from one thread to another. The writing thread blocks while
+ * the buffer is full and the reading thread while it is empty, so neither runs far ahead of the
+ * other.
+ */
+final class BoundedPipe {
+
+  private final byte[] buffer;
+  private int readPosition;
+  private int count;
+  private boolean writerClosed;
+  private boolean readerClosed;
+  @Nullable private IOException writerFailure;
+
+  private final InputStream inputStream =
+      new InputStream() {
+        @Override
+        public int read() throws IOException {
+          byte[] single = new byte[1];
+          return BoundedPipe.this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+          return BoundedPipe.this.read(bytes, offset, length);
+        }
+
+        @Override
+        public void close() {
+          closeReader();
+        }
+      };
+
+  private final OutputStream outputStream =
+      new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          BoundedPipe.this.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+          BoundedPipe.this.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() {
+          closeWriter(null);
+        }
+      };
+
+  BoundedPipe(int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
+    buffer = new byte[bufferSize];
+  }
+
+  /** Returns the end of the pipe read from, closing it makes further writes fail. */
+  InputStream getInputStream() {
+    return inputStream;
+  }
+
+  /** Returns the end of the pipe written to, closing it ends the stream seen by the reader. */
+  OutputStream getOutputStream() {
+    return outputStream;
+  }
+
+  /**
+   * Closes the writing end. Once the buffered bytes are read, the reader sees the end of the
+   * stream, or {@code failure} wrapped in an {@link IOException} if it is not null.
+   */
+  synchronized void closeWriter(@Nullable IOException failure) {
+    if (!writerClosed) {
+      writerClosed = true;
+      writerFailure = failure;
+      notifyAll();
+    }
+  }
+
+  private synchronized void closeReader() {
+    readerClosed = true;
+    notifyAll();
+  }
+
+  private synchronized int read(byte[] bytes, int offset, int length) throws IOException {
+    Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+    if (readerClosed) {
+      throw new IOException("Pipe closed");
+    }
+    if (length == 0) {
+      return 0;
+    }
+    while (count == 0) {
+      if (writerClosed) {
+        if (writerFailure != null) {
+          throw new IOException("Writing to pipe failed", writerFailure);
+        }
+        return -1;
+      }
+      awaitChange();
+    }
+
+    int read = Math.min(length, count);
+    int firstPart = Math.min(read, buffer.length - readPosition);
+    System.arraycopy(buffer, readPosition, bytes, offset, firstPart);
+    System.arraycopy(buffer, 0, bytes, offset + firstPart, read - firstPart);
+    readPosition = (readPosition + read) % buffer.length;
+    count -= read;
+    notifyAll();
+    return read;
+  }
+
+  private synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+    Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+    while (length > 0) {
+      if (writerClosed) {
+        throw new IOException("Pipe closed");
+      }
+      if (readerClosed) {
+        throw new IOException("Pipe closed by reader");
+      }
+      if (count == buffer.length) {
+        awaitChange();
+        continue;
+      }
+      int writePosition = (readPosition + count) % buffer.length;
+      int written =
+          Math.min(length, Math.min(buffer.length - count, buffer.length - writePosition));
+      System.arraycopy(bytes, offset, buffer, writePosition, written);
+      count += written;
+      offset += written;
+      length -= written;
+      notifyAll();
+    }
+  }
+
+  private void awaitChange() throws InterruptedIOException {
+    try {
+      wait();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting on pipe");
+    }
+  }
+}
@@ -17,17 +17,43 @@
 package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.MoreFiles;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /** Downloader for downloading a single Cloud SDK archive. */
 final class Downloader {
@@ -35,18 +61,67 @@ final class Downloader {
   private static final Logger logger = Logger.getLogger(Downloader.class.getName());
 
   static final int BUFFER_SIZE = 8 * 1024;
+  private static final int SEGMENT_BUFFER_SIZE = 64 * 1024;
+
+  /** Downloads are split into segments of at least this many bytes. */
+  @VisibleForTesting static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
   private final URL address;
   private final Path destinationFile;
   private final String userAgentString;
   private final ProgressListener progressListener;
+  private final boolean resume;
+  @Nullable private final String expectedSha256;
+  private final int segments;
 
   /** Use {@link DownloaderFactory} to instantiate. */
   Downloader(
       URL source, Path destinationFile, String userAgentString, ProgressListener progressListener) {
+    this(source, destinationFile, userAgentString, progressListener, false, null);
+  }
+
+  /**
+   * Use {@link DownloaderFactory} to instantiate.
+   *
+   * @param resume download to a {@code .part} file that is kept when the download is interrupted,
+   *     and continue from its end with a range request next time
+   * @param expectedSha256 if not null, the hex encoded SHA-256 the downloaded file must have
+   */
+  Downloader(
+      URL source,
+      Path destinationFile,
+      String userAgentString,
+      ProgressListener progressListener,
+      boolean resume,
+      @Nullable String expectedSha256) {
+    this(source, destinationFile, userAgentString, progressListener, resume, expectedSha256, 1);
+  }
+
+  /**
+   * Use {@link DownloaderFactory} to instantiate.
+   *
+   * @param resume download to a {@code .part} file that is kept when the download is interrupted,
+   *     and continue from its end with a range request next time
+   * @param expectedSha256 if not null, the hex encoded SHA-256 the downloaded file must have
+   * @param segments the maximum number of byte ranges to download concurrently, when the server
+   *     supports range requests
+   */
+  Downloader(
+      URL source,
+      Path destinationFile,
+      String userAgentString,
+      ProgressListener progressListener,
+      boolean resume,
+      @Nullable String expectedSha256,
+      int segments) {
+    Preconditions.checkArgument(segments > 0, "segments must be positive");
     this.address = source;
     this.destinationFile = destinationFile;
     this.userAgentString = userAgentString;
     this.progressListener = progressListener;
+    this.resume = resume;
+    this.expectedSha256 = expectedSha256;
+    this.segments = segments;
   }
 
   /** Download an archive, this will NOT overwrite a previously existing file. */
@@ -58,6 +133,18 @@ final class Downloader {
     if (Files.exists(destinationFile)) {
       throw new FileAlreadyExistsException(destinationFile.toString());
     }
+
+    // a partial download is resumed rather than downloaded again in segments
+    boolean hasPartFile = resume && Files.isRegularFile(getPartFile());
+    if (segments > 1 && !hasPartFile && downloadSegmented()) {
+      return;
+    }
+
+    if (resume) {
+      downloadResumable(true);
+      return;
+    }
+
     URLConnection connection = address.openConnection();
     connection.setRequestProperty("User-Agent", userAgentString);
 
@@ -74,28 +161,563 @@ final class Downloader {
         progressListener.start(
             getDownloadStatus(contentLength, Locale.getDefault()), contentLength);
 
-        int bytesRead;
-        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+          copy(in, out);
+        } catch (InterruptedException ex) {
+          cleanUp();
+          throw ex;
+        }
+      }
+    }
+    try {
+      verifySha256(destinationFile);
+    } catch (IOException ex) {
+      cleanUp();
+      throw ex;
+    }
+    progressListener.done();
+  }
+
+  /**
+   * Downloads the file and writes its bytes to {@code out} as they arrive, so they can be consumed
+   * while the download is still running. Streamed downloads are never resumed or segmented, and
+   * the SHA-256 is only verified once all bytes have been written to {@code out}.
+   *
+   * @param out receives the downloaded bytes, it is not closed
+   * @param saveFile if true, also write the downloaded bytes to the destination file
+   */
+  public void download(OutputStream out, boolean saveFile)
+      throws IOException, InterruptedException {
+    if (saveFile) {
+      if (!Files.exists(destinationFile.getParent())) {
+        Files.createDirectories(destinationFile.getParent());
+      }
+      if (Files.exists(destinationFile)) {
+        throw new FileAlreadyExistsException(destinationFile.toString());
+      }
+    }
+
+    URLConnection connection = address.openConnection();
+    connection.setRequestProperty("User-Agent", userAgentString);
 
+    try (InputStream in = connection.getInputStream()) {
+      long contentLength = connection.getContentLengthLong();
+      logger.info("Streaming download of " + address);
+
+      try (OutputStream file =
+          saveFile
+              ? new BufferedOutputStream(
+                  Files.newOutputStream(destinationFile, StandardOpenOption.CREATE_NEW))
+              : ByteStreams.nullOutputStream()) {
+        progressListener.start(
+            getDownloadStatus(contentLength, Locale.getDefault()), contentLength);
+
+        Hasher hasher = Hashing.sha256().newHasher();
+        byte[] buffer = new byte[SEGMENT_BUFFER_SIZE];
+        int bytesRead;
         while ((bytesRead = in.read(buffer)) != -1) {
           if (Thread.currentThread().isInterrupted()) {
-            logger.warning("Download was interrupted\n");
-            cleanUp();
             throw new InterruptedException("Download was interrupted");
           }
-
           out.write(buffer, 0, bytesRead);
+          file.write(buffer, 0, bytesRead);
+          hasher.putBytes(buffer, 0, bytesRead);
           progressListener.update(bytesRead);
         }
+        checkSha256(hasher.hash().toString());
       }
+    } catch (IOException | InterruptedException ex) {
+      if (saveFile) {
+        cleanUp();
+      }
+      throw ex;
     }
     progressListener.done();
   }
 
+  /**
+   * Downloads into {@link #getPartFile()}, continuing after the bytes already in it if the server
+   * still has the same file. The metadata file records the URL, the validator (ETag or
+   * Last-Modified) and the length of the download the part file belongs to. A part file without a
+   * validator is downloaded again, because a changed file could not be detected.
+   *
+   * @param retry if the server rejects the requested range, start over once
+   */
+  private void downloadResumable(boolean retry) throws IOException, InterruptedException {
+    Path partFile = getPartFile();
+    Path metadataFile = getMetadataFile();
+
+    Properties metadata = readMetadata(metadataFile);
+    String validator = metadata.getProperty("validator");
+    long offset = 0;
+    if (validator != null
+        && Files.isRegularFile(partFile)
+        && address.toString().equals(metadata.getProperty("url"))) {
+      offset = Files.size(partFile);
+    } else {
+      Files.deleteIfExists(partFile);
+      metadata.clear();
+    }
+
+    URLConnection connection = address.openConnection();
+    connection.setRequestProperty("User-Agent", userAgentString);
+    if (offset > 0 && validator != null) {
+      connection.setRequestProperty("Range", "bytes=" + offset + "-");
+      connection.setRequestProperty("If-Range", validator);
+    }
+    int status = -1;
+    if (connection instanceof HttpURLConnection) {
+      status = ((HttpURLConnection) connection).getResponseCode();
+    }
+
+    if (status == 416 && offset > 0) {
+      // Range Not Satisfiable, which is the expected answer when the part file is complete
+      if (String.valueOf(offset).equals(metadata.getProperty("length"))) {
+        logger.info("Download of " + address + " already complete in " + partFile);
+        progressListener.start(getDownloadStatus(offset, Locale.getDefault()), offset);
+        progressListener.update(offset);
+        completePartFile(partFile, metadataFile);
+        return;
+      }
+      restart(retry, partFile, metadataFile);
+      return;
+    }
+
+    boolean resumed = status == HttpURLConnection.HTTP_PARTIAL && offset > 0;
+    if (resumed && !isContentRangeFrom(connection.getHeaderField("Content-Range"), offset)) {
+      restart(retry, partFile, metadataFile);
+      return;
+    }
+    if (!resumed) {
+      offset = 0;
+    }
+
+    try (InputStream in = connection.getInputStream()) {
+      long contentLength = connection.getContentLengthLong();
+      long totalLength = contentLength == -1 ? -1 : offset + contentLength;
+
+      String newValidator = connection.getHeaderField("ETag");
+      if (newValidator == null) {
+        newValidator = connection.getHeaderField("Last-Modified");
+      }
+      metadata.clear();
+      metadata.setProperty("url", address.toString());
+      if (newValidator != null) {
+        metadata.setProperty("validator", newValidator);
+      }
+      if (totalLength != -1) {
+        metadata.setProperty("length", String.valueOf(totalLength));
+      }
+      writeMetadata(metadataFile, metadata);
+
+      if (resumed) {
+        logger.info("Resuming download of " + address + " at byte " + offset);
+      } else {
+        logger.info("Downloading " + address + " to " + partFile);
+      }
+
+      try (BufferedOutputStream out =
+          new BufferedOutputStream(
+              resumed
+                  ? Files.newOutputStream(partFile, StandardOpenOption.APPEND)
+                  : Files.newOutputStream(partFile))) {
+
+        progressListener.start(getDownloadStatus(totalLength, Locale.getDefault()), totalLength);
+        if (offset > 0) {
+          progressListener.update(offset);
+        }
+        // an interrupted download keeps its part file, so it can be resumed later
+        copy(in, out);
+      }
+      // a dropped connection can look like the end of the stream, keep the part file to resume
+      if (totalLength != -1 && Files.size(partFile) != totalLength) {
+        throw new IOException(
+            "Download of " + address + " ended after " + Files.size(partFile) + " bytes");
+      }
+    }
+    completePartFile(partFile, metadataFile);
+  }
+
+  /**
+   * Downloads the file as up to {@link #segments} byte ranges fetched concurrently, each written at
+   * its own offset into a preallocated file. When {@link #resume} is set and the server sent a
+   * validator, a failed download keeps the segments file and records how far each range got, and
+   * the next download only fetches the missing bytes if the server still has the same file.
+   *
+   * @return false, without downloading anything, if the server does not advertise range support or
+   *     the content length, or the file is too small to be worth splitting
+   */
+  private boolean downloadSegmented() throws IOException, InterruptedException {
+    URLConnection connection = address.openConnection();
+    if (!(connection instanceof HttpURLConnection)) {
+      return false;
+    }
+    HttpURLConnection head = (HttpURLConnection) connection;
+    head.setRequestMethod("HEAD");
+    head.setRequestProperty("User-Agent", userAgentString);
+    if (head.getResponseCode() != HttpURLConnection.HTTP_OK
+        || !"bytes".equalsIgnoreCase(head.getHeaderField("Accept-Ranges"))) {
+      deleteSegments();
+      return false;
+    }
+    long contentLength = head.getContentLengthLong();
+    String validator = head.getHeaderField("ETag");
+    if (validator == null) {
+      validator = head.getHeaderField("Last-Modified");
+    }
+
+    Path segmentsFile = getSegmentsFile();
+    Path metadataFile = getSegmentsMetadataFile();
+    List<Segment> segmentList =
+        resume ? readSegments(segmentsFile, metadataFile, contentLength, validator) : null;
+    boolean resumed = segmentList != null;
+    if (segmentList == null) {
+      deleteSegments();
+      int segmentCount = (int) Math.min(segments, contentLength / MIN_SEGMENT_SIZE);
+      if (segmentCount < 2) {
+        return false;
+      }
+      segmentList = split(contentLength, segmentCount);
+    }
+
+    long completed = 0;
+    List<Segment> pending = new ArrayList<>();
+    for (Segment segment : segmentList) {
+      completed += segment.position - segment.start;
+      if (segment.position <= segment.end) {
+        pending.add(segment);
+      }
+    }
+    if (resumed) {
+      logger.info(
+          "Resuming download of " + address + " with " + pending.size() + " incomplete segments");
+    } else {
+      logger.info(
+          "Downloading "
+              + address
+              + " to "
+              + destinationFile
+              + " in "
+              + segmentList.size()
+              + " segments");
+    }
+    progressListener.start(getDownloadStatus(contentLength, Locale.getDefault()), contentLength);
+    if (completed > 0) {
+      progressListener.update(completed);
+    }
+
+    try (RandomAccessFile file = new RandomAccessFile(segmentsFile.toFile(), "rw")) {
+      file.setLength(contentLength);
+      downloadSegments(file.getChannel(), pending, validator);
+    } catch (IOException | InterruptedException ex) {
+      boolean kept = false;
+      if (resume && validator != null) {
+        try {
+          writeSegments(metadataFile, contentLength, validator, segmentList);
+          kept = true;
+        } catch (IOException writeException) {
+          ex.addSuppressed(writeException);
+        }
+      }
+      if (!kept) {
+        deleteSegments();
+      }
+      throw ex;
+    }
+    try {
+      verifySha256(segmentsFile);
+    } catch (IOException ex) {
+      deleteSegments();
+      throw ex;
+    }
+    moveToDestination(segmentsFile);
+    Files.deleteIfExists(metadataFile);
+    progressListener.done();
+    return true;
+  }
+
+  private static List<Segment> split(long contentLength, int segmentCount) {
+    List<Segment> segmentList = new ArrayList<>();
+    long segmentSize = contentLength / segmentCount;
+    for (int i = 0; i < segmentCount; i++) {
+      long start = i * segmentSize;
+      long end = i == segmentCount - 1 ? contentLength - 1 : start + segmentSize - 1;
+      segmentList.add(new Segment(start, start, end));
+    }
+    return segmentList;
+  }
+
+  /**
+   * Returns the segments recorded by a failed download, or null if there are none or they belong
+   * to a different version of the file.
+   */
+  @Nullable
+  private List<Segment> readSegments(
+      Path segmentsFile, Path metadataFile, long contentLength, @Nullable String validator)
+      throws IOException {
+    Properties metadata = readMetadata(metadataFile);
+    if (validator == null
+        || !validator.equals(metadata.getProperty("validator"))
+        || !address.toString().equals(metadata.getProperty("url"))
+        || !String.valueOf(contentLength).equals(metadata.getProperty("length"))
+        || !Files.isRegularFile(segmentsFile)
+        || Files.size(segmentsFile) != contentLength) {
+      return null;
+    }
+    try {
+      int segmentCount = Integer.parseInt(metadata.getProperty("segments", ""));
+      List<Segment> segmentList = new ArrayList<>();
+      for (int i = 0; i < segmentCount; i++) {
+        long start = Long.parseLong(metadata.getProperty("segment." + i + ".start", ""));
+        long position = Long.parseLong(metadata.getProperty("segment." + i + ".position", ""));
+        long end = Long.parseLong(metadata.getProperty("segment." + i + ".end", ""));
+        if (start < 0 || position < start || position > end + 1 || end >= contentLength) {
+          return null;
+        }
+        segmentList.add(new Segment(start, position, end));
+      }
+      return segmentList.isEmpty() ? null : segmentList;
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  private void writeSegments(
+      Path metadataFile, long contentLength, String validator, List<Segment> segmentList)
+      throws IOException {
+    Properties metadata = new Properties();
+    metadata.setProperty("url", address.toString());
+    metadata.setProperty("validator", validator);
+    metadata.setProperty("length", String.valueOf(contentLength));
+    metadata.setProperty("segments", String.valueOf(segmentList.size()));
+    for (int i = 0; i < segmentList.size(); i++) {
+      Segment segment = segmentList.get(i);
+      metadata.setProperty("segment." + i + ".start", String.valueOf(segment.start));
+      metadata.setProperty("segment." + i + ".position", String.valueOf(segment.position));
+      metadata.setProperty("segment." + i + ".end", String.valueOf(segment.end));
+    }
+    writeMetadata(metadataFile, metadata);
+  }
+
+  private void downloadSegments(
+      final FileChannel channel, List<Segment> pending, @Nullable final String validator)
+      throws IOException, InterruptedException {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, pending.size()),
+            new ThreadFactoryBuilder().setNameFormat("downloader-%d").setDaemon(true).build());
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (final Segment segment : pending) {
+        futures.add(
+            executor.submit(
+                new Callable<Void>() {
+                  @Override
+                  public Void call() throws IOException, InterruptedException {
+                    downloadSegment(channel, segment, validator);
+                    return null;
+                  }
+                }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      if (ex.getCause() instanceof InterruptedException) {
+        throw (InterruptedException) ex.getCause();
+      }
+      throw new IOException(ex.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Fetches the rest of one byte range and writes it at the same position of the shared file
+   * channel, advancing {@link Segment#position} as the bytes are written.
+   */
+  private void downloadSegment(FileChannel channel, Segment segment, @Nullable String validator)
+      throws IOException, InterruptedException {
+    long position = segment.position;
+    long end = segment.end;
+    HttpURLConnection connection = (HttpURLConnection) address.openConnection();
+    connection.setRequestProperty("User-Agent", userAgentString);
+    connection.setRequestProperty("Range", "bytes=" + position + "-" + end);
+    if (validator != null) {
+      // if the file changed since the HEAD request, the server sends all of it instead
+      connection.setRequestProperty("If-Range", validator);
+    }
+    if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL
+        || !isContentRangeFrom(connection.getHeaderField("Content-Range"), position)) {
+      throw new IOException("Server did not honor range request for " + address);
+    }
+
+    try (InputStream in = connection.getInputStream()) {
+      byte[] buffer = new byte[SEGMENT_BUFFER_SIZE];
+      ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+      int bytesRead;
+      while (position <= end
+          && (bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, end + 1 - position)))
+              != -1) {
+        if (Thread.currentThread().isInterrupted()) {
+          throw new InterruptedException("Download was interrupted");
+        }
+        byteBuffer.clear();
+        byteBuffer.limit(bytesRead);
+        while (byteBuffer.hasRemaining()) {
+          position += channel.write(byteBuffer, position);
+        }
+        // only bytes that are in the file are recorded, so a failed download resumes after them
+        segment.position = position;
+        synchronized (progressListener) {
+          progressListener.update(bytesRead);
+        }
+      }
+    }
+    if (position != end + 1) {
+      throw new IOException(
+          "Download of bytes "
+              + segment.start
+              + "-"
+              + end
+              + " of "
+              + address
+              + " ended at "
+              + position);
+    }
+  }
+
+  /** Deletes the segments file and its metadata of a previous segmented download. */
+  private void deleteSegments() throws IOException {
+    Files.deleteIfExists(getSegmentsFile());
+    Files.deleteIfExists(getSegmentsMetadataFile());
+  }
+
+  private void restart(boolean retry, Path partFile, Path metadataFile)
+      throws IOException, InterruptedException {
+    Files.deleteIfExists(partFile);
+    Files.deleteIfExists(metadataFile);
+    if (!retry) {
+      throw new IOException("Server did not honor range request for " + address);
+    }
+    logger.info("Cannot resume download of " + address + ", starting over");
+    downloadResumable(false);
+  }
+
+  /** Verifies the part file and moves it to the destination file. */
+  private void completePartFile(Path partFile, Path metadataFile) throws IOException {
+    try {
+      verifySha256(partFile);
+    } catch (IOException ex) {
+      Files.deleteIfExists(partFile);
+      Files.deleteIfExists(metadataFile);
+      throw ex;
+    }
+    moveToDestination(partFile);
+    Files.deleteIfExists(metadataFile);
+    progressListener.done();
+  }
+
+  private void moveToDestination(Path file) throws IOException {
+    try {
+      Files.move(file, destinationFile, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(file, destinationFile);
+    }
+  }
+
+  private void copy(InputStream in, OutputStream out) throws IOException, InterruptedException {
+    int bytesRead;
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    while ((bytesRead = in.read(buffer)) != -1) {
+      if (Thread.currentThread().isInterrupted()) {
+        logger.warning("Download was interrupted\n");
+        throw new InterruptedException("Download was interrupted");
+      }
+
+      out.write(buffer, 0, bytesRead);
+      progressListener.update(bytesRead);
+    }
+  }
+
+  private void verifySha256(Path file) throws IOException {
+    if (expectedSha256 != null) {
+      checkSha256(MoreFiles.asByteSource(file).hash(Hashing.sha256()).toString());
+    }
+  }
+
+  private void checkSha256(String sha256) throws IOException {
+    if (expectedSha256 != null && !sha256.equalsIgnoreCase(expectedSha256)) {
+      throw new IOException(
+          "SHA-256 of download from "
+              + address
+              + " is "
+              + sha256
+              + " but expected "
+              + expectedSha256);
+    }
+  }
+
   private void cleanUp() throws IOException {
     Files.deleteIfExists(destinationFile);
   }
 
+  @VisibleForTesting
+  Path getPartFile() {
+    return destinationFile.resolveSibling(destinationFile.getFileName() + ".part");
+  }
+
+  private Path getMetadataFile() {
+    return destinationFile.resolveSibling(destinationFile.getFileName() + ".part.properties");
+  }
+
+  @VisibleForTesting
+  Path getSegmentsFile() {
+    return destinationFile.resolveSibling(destinationFile.getFileName() + ".segments");
+  }
+
+  private Path getSegmentsMetadataFile() {
+    return destinationFile.resolveSibling(destinationFile.getFileName() + ".segments.properties");
+  }
+
+  private static boolean isContentRangeFrom(@Nullable String contentRange, long offset) {
+    // for example "bytes 100-999/1000"
+    return contentRange != null && contentRange.trim().startsWith("bytes " + offset + "-");
+  }
+
+  private static Properties readMetadata(Path metadataFile) throws IOException {
+    Properties metadata = new Properties();
+    if (Files.isRegularFile(metadataFile)) {
+      try (Reader reader = Files.newBufferedReader(metadataFile, StandardCharsets.UTF_8)) {
+        metadata.load(reader);
+      }
+    }
+    return metadata;
+  }
+
+  private static void writeMetadata(Path metadataFile, Properties metadata) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(metadataFile, StandardCharsets.UTF_8)) {
+      metadata.store(writer, null);
+    }
+  }
+
+  /** A byte range of a segmented download, and how far it has been written. */
+  private static class Segment {
+    private final long start;
+    private final long end;
+    private volatile long position;
+
+    private Segment(long start, long position, long end) {
+      this.start = start;
+      this.position = position;
+      this.end = end;
+    }
+  }
+
   static String getDownloadStatus(long bytes, Locale locale) {
     return String.format(locale, "Downloading %,.2f MB", bytes / 1024.0f / 1024.0f);
   }
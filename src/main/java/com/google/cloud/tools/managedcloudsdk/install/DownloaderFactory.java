@@ -19,11 +19,14 @@ package com.google.cloud.tools.managedcloudsdk.install;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import java.net.URL;
 import java.nio.file.Path;
+import javax.annotation.Nullable;
 
 /** Downloader factory. */
 final class DownloaderFactory {
 
   private final String userAgentString;
+  private final boolean resume;
+  private final int segments;
 
   /**
    * Creates a new factory.
@@ -32,7 +35,33 @@ final class DownloaderFactory {
    *     "Cloud Tools for Eclipse" or "com.google.cloud.tools.appengine-maven-plguin".
    */
   public DownloaderFactory(String userAgentString) {
+    this(userAgentString, false);
+  }
+
+  /**
+   * Creates a new factory.
+   *
+   * @param userAgentString for server side tracking of clients downloading the sdk
+   * @param resume if true, interrupted downloads are kept and continued by the next download of
+   *     the same URL to the same destination
+   */
+  public DownloaderFactory(String userAgentString, boolean resume) {
+    this(userAgentString, resume, 1);
+  }
+
+  /**
+   * Creates a new factory.
+   *
+   * @param userAgentString for server side tracking of clients downloading the sdk
+   * @param resume if true, interrupted downloads are kept and continued by the next download of
+   *     the same URL to the same destination
+   * @param segments the maximum number of connections used to download a file in byte ranges, or
+   *     1 to always use a single connection
+   */
+  public DownloaderFactory(String userAgentString, boolean resume, int segments) {
     this.userAgentString = userAgentString;
+    this.resume = resume;
+    this.segments = segments;
   }
 
   /**
@@ -44,6 +73,24 @@ final class DownloaderFactory {
    * @return a {@link Downloader} instance
    */
   public Downloader newDownloader(URL source, Path destination, ProgressListener progressListener) {
-    return new Downloader(source, destination, userAgentString, progressListener);
+    return newDownloader(source, destination, null, progressListener);
+  }
+
+  /**
+   * Returns a new {@link Downloader} implementation that verifies the downloaded file.
+   *
+   * @param source URL of file to download (remote)
+   * @param destination Path on local file system to save the file
+   * @param expectedSha256 hex encoded SHA-256 of the file, or null to skip verification
+   * @param progressListener Progress feedback handler
+   * @return a {@link Downloader} instance
+   */
+  public Downloader newDownloader(
+      URL source,
+      Path destination,
+      @Nullable String expectedSha256,
+      ProgressListener progressListener) {
+    return new Downloader(
+        source, destination, userAgentString, progressListener, resume, expectedSha256, segments);
   }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.install;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The directory an archive is extracted to. Entries are resolved against it and refused if they
+ * would be written outside of it.
+ *
+ * <p>Entry names are first checked lexically. Directories are then created one path component at a
+ * time, refusing every component that already exists as a symbolic link, and files are opened
+ * without following symbolic links. This way no link, whether it was in the destination before or
+ * was created by an earlier entry, can redirect a write outside of the destination, without
+ * resolving the real path of every entry. Instances are not thread safe; files may be written
+ * concurrently once their directories have been created.
+ */
+final class ExtractionDestination {
+
+  private final Path destination;
+  private final Set<Path> createdDirectories = new HashSet<>();
+
+  ExtractionDestination(Path destination) throws IOException {
+    this.destination = destination.toAbsolutePath().normalize();
+    Files.createDirectories(this.destination);
+  }
+
+  /**
+   * Returns the normalized path an entry is extracted to.
+   *
+   * @throws IOException if the entry would be extracted outside of the destination
+   */
+  Path resolve(String entryName) throws IOException {
+    Path entryTarget = destination.resolve(entryName).normalize();
+    if (!entryTarget.startsWith(destination) || entryTarget.equals(destination)) {
+      throw new IOException("Blocked unzipping files outside destination: " + entryName);
+    }
+    return entryTarget;
+  }
+
+  /**
+   * Creates a directory returned by {@link #resolve} or one of its parents, and the missing
+   * directories above it.
+   *
+   * @throws IOException if a directory on the way is a symbolic link
+   */
+  void createDirectories(Path directory) throws IOException {
+    if (directory.equals(destination) || createdDirectories.contains(directory)) {
+      return;
+    }
+    Path parent = directory.getParent();
+    if (parent == null || !parent.startsWith(destination)) {
+      throw new IOException("Blocked unzipping files outside destination: " + directory);
+    }
+    createDirectories(parent);
+    if (Files.isSymbolicLink(directory)) {
+      throw new IOException("Blocked unzipping files through symbolic link: " + directory);
+    }
+    if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+      Files.createDirectory(directory);
+    }
+    createdDirectories.add(directory);
+  }
+
+  /**
+   * Opens a file returned by {@link #resolve} for writing, replacing its contents. Its directory
+   * must have been created by {@link #createDirectories}.
+   *
+   * @throws IOException if the file is a symbolic link
+   */
+  static OutputStream newOutputStream(Path file) throws IOException {
+    return Files.newOutputStream(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE,
+        LinkOption.NOFOLLOW_LINKS);
+  }
+}
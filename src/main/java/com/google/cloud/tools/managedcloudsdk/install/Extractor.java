@@ -18,9 +18,11 @@ package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.logging.Logger;
 
@@ -73,6 +75,39 @@ final class Extractor {
     }
   }
 
+  /**
+   * Extracts the archive from a stream of its contents instead of from the archive file, for
+   * example while it is being downloaded. Only tar.gz archives can be extracted this way.
+   */
+  public void extract(InputStream archiveStream) throws IOException, InterruptedException {
+    Preconditions.checkState(
+        extractorProvider instanceof TarGzExtractorProvider,
+        "%s cannot be extracted from a stream",
+        archive);
+
+    progressListener.start(
+        "Extracting archive: " + archive.getFileName(), ProgressListener.UNKNOWN);
+    try {
+      ((TarGzExtractorProvider) extractorProvider)
+          .extract(archiveStream, destination, progressListener);
+    } catch (IOException ex) {
+      try {
+        logger.warning("Extraction failed, cleaning up " + destination);
+        cleanUp(destination);
+      } catch (IOException exx) {
+        logger.warning("Failed to cleanup directory");
+      }
+      // intentional rethrow after cleanup
+      throw ex;
+    }
+    progressListener.done();
+
+    if (Thread.currentThread().isInterrupted()) {
+      logger.warning("Process was interrupted");
+      throw new InterruptedException("Process was interrupted");
+    }
+  }
+
   @VisibleForTesting
   ExtractorProvider getExtractorProvider() {
     return extractorProvider;
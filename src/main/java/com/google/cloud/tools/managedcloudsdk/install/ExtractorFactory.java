@@ -45,4 +45,12 @@ final class ExtractorFactory {
     }
     throw new UnknownArchiveTypeException(archive);
   }
+
+  /**
+   * Returns true if the extractor created for {@code archive} can extract it from a stream, see
+   * {@link Extractor#extract(java.io.InputStream)}.
+   */
+  public boolean isStreamable(Path archive) {
+    return archive.toString().toLowerCase().endsWith(".tar.gz");
+  }
 }
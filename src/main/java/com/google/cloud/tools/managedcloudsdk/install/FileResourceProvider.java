@@ -58,4 +58,16 @@ class FileResourceProvider {
   public Path getExtractedGcloud() {
     return getExtractedSdkHome().resolve("bin").resolve(gcloudExecutableName);
   }
+
+  /** Returns the file locked by processes installing or updating this SDK. */
+  public Path getLockFile() {
+    return archiveExtractionDestination.resolveSibling(
+        archiveExtractionDestination.getFileName() + ".lock");
+  }
+
+  /** Returns a provider for the same archive that is extracted into {@code destination}. */
+  FileResourceProvider withExtractionDestination(Path destination) {
+    return new FileResourceProvider(
+        archiveSource, archiveDestination, destination, gcloudExecutableName);
+  }
 }
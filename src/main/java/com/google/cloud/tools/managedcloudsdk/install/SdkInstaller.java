@@ -16,17 +16,35 @@
 
 package com.google.cloud.tools.managedcloudsdk.install;
 
+import com.google.cloud.tools.io.LockFile;
 import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
 import com.google.cloud.tools.managedcloudsdk.OsInfo;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.cloud.tools.managedcloudsdk.Version;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
 
@@ -35,10 +53,19 @@ public class SdkInstaller {
 
   private static final Logger logger = Logger.getLogger(SdkInstaller.class.getName());
 
+  /** Size of the buffer between the download and the extraction of a streaming install. */
+  private static final int STREAMING_BUFFER_SIZE = 4 * 1024 * 1024;
+
+  /** Inserted into the names of the temporary directories that installs are staged in. */
+  @VisibleForTesting static final String STAGING_SUFFIX = "-installing-";
+
   private final FileResourceProviderFactory fileResourceProviderFactory;
   private final ExtractorFactory extractorFactory;
   private final DownloaderFactory downloaderFactory;
   @Nullable private final InstallerFactory installerFactory;
+  @Nullable private final String archiveSha256;
+  private final boolean streamingExtraction;
+  @Nullable private final ArchiveCache archiveCache;
 
   /** Use {@link #newInstaller} to instantiate. */
   SdkInstaller(
@@ -46,13 +73,50 @@ public class SdkInstaller {
       DownloaderFactory downloaderFactory,
       ExtractorFactory extractorFactory,
       @Nullable InstallerFactory installerFactory) {
+    this(fileResourceProviderFactory, downloaderFactory, extractorFactory, installerFactory, null);
+  }
+
+  /** Use {@link #newInstaller} to instantiate. */
+  SdkInstaller(
+      FileResourceProviderFactory fileResourceProviderFactory,
+      DownloaderFactory downloaderFactory,
+      ExtractorFactory extractorFactory,
+      @Nullable InstallerFactory installerFactory,
+      @Nullable String archiveSha256) {
+    this(
+        fileResourceProviderFactory,
+        downloaderFactory,
+        extractorFactory,
+        installerFactory,
+        archiveSha256,
+        false,
+        null);
+  }
+
+  /** Use {@link #newInstaller} to instantiate. */
+  SdkInstaller(
+      FileResourceProviderFactory fileResourceProviderFactory,
+      DownloaderFactory downloaderFactory,
+      ExtractorFactory extractorFactory,
+      @Nullable InstallerFactory installerFactory,
+      @Nullable String archiveSha256,
+      boolean streamingExtraction,
+      @Nullable ArchiveCache archiveCache) {
     this.fileResourceProviderFactory = fileResourceProviderFactory;
     this.downloaderFactory = downloaderFactory;
     this.extractorFactory = extractorFactory;
     this.installerFactory = installerFactory;
+    this.archiveSha256 = archiveSha256;
+    this.streamingExtraction = streamingExtraction;
+    this.archiveCache = archiveCache;
   }
 
-  /** Download and install a new Cloud SDK. */
+  /**
+   * Download and install a new Cloud SDK. Installs of the same SDK are serialized with a lock file
+   * shared by all processes. The SDK is extracted and installed in a temporary directory next to
+   * its final location and then moved there with an atomic rename, so other processes never see a
+   * partial install. A caller that had to wait for another install reuses its result.
+   */
   public Path install(
       final ProgressListener progressListener, final ConsoleListener consoleListener)
       throws IOException, InterruptedException, SdkInstallerException, CommandExecutionException,
@@ -60,6 +124,35 @@ public class SdkInstaller {
 
     FileResourceProvider fileResourceProvider =
         fileResourceProviderFactory.newFileResourceProvider();
+    Path lockFile = fileResourceProvider.getLockFile();
+    Files.createDirectories(lockFile.getParent());
+
+    LockFile lock = LockFile.tryAcquire(lockFile);
+    boolean waited = lock == null;
+    if (lock == null) {
+      logger.info("Waiting for another install to release " + lockFile);
+      lock = LockFile.acquire(lockFile);
+    }
+
+    try (LockFile installLock = lock) {
+      if (waited && Files.isRegularFile(fileResourceProvider.getExtractedGcloud())) {
+        logger.info(
+            "Using Cloud SDK installed while waiting for the lock: "
+                + fileResourceProvider.getExtractedSdkHome());
+        progressListener.start("Installing Cloud SDK", ProgressListener.UNKNOWN);
+        progressListener.done();
+        return fileResourceProvider.getExtractedSdkHome();
+      }
+      return installLocked(fileResourceProvider, progressListener, consoleListener);
+    }
+  }
+
+  private Path installLocked(
+      FileResourceProvider fileResourceProvider,
+      ProgressListener progressListener,
+      ConsoleListener consoleListener)
+      throws IOException, InterruptedException, SdkInstallerException, CommandExecutionException,
+          CommandExitException {
 
     // Cleanup, remove old downloaded archive if exists
     if (Files.isRegularFile(fileResourceProvider.getArchiveDestination())) {
@@ -67,69 +160,234 @@ public class SdkInstaller {
       Files.delete(fileResourceProvider.getArchiveDestination());
     }
 
-    // Cleanup, remove old SDK directory if exists
-    if (Files.exists(fileResourceProvider.getArchiveExtractionDestination())) {
-      logger.info(
-          "Removing stale install: " + fileResourceProvider.getArchiveExtractionDestination());
-
-      MoreFiles.deleteRecursively(
-          fileResourceProvider.getArchiveExtractionDestination(),
-          RecursiveDeleteOption.ALLOW_INSECURE);
+    // Cleanup, remove temporary directories of interrupted installs
+    Path extractionDestination = fileResourceProvider.getArchiveExtractionDestination();
+    String stagingPrefix = extractionDestination.getFileName() + STAGING_SUFFIX;
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(extractionDestination.getParent(), stagingPrefix + "*")) {
+      for (Path staleStaging : stream) {
+        logger.info("Removing stale install: " + staleStaging);
+        MoreFiles.deleteRecursively(staleStaging, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
     }
 
-    progressListener.start("Installing Cloud SDK", installerFactory != null ? 300 : 200);
+    // created with default permissions, unlike Files.createTempDirectory, because the staging
+    // directory becomes the SDK that other users of a shared managed SDK directory run
+    Path staging = extractionDestination.resolveSibling(stagingPrefix + UUID.randomUUID());
+    Files.createDirectory(staging);
+    FileResourceProvider stagingProvider = fileResourceProvider.withExtractionDestination(staging);
+    try {
+      progressListener.start("Installing Cloud SDK", installerFactory != null ? 300 : 200);
 
-    // download and verify
-    Downloader downloader =
-        downloaderFactory.newDownloader(
-            fileResourceProvider.getArchiveSource(),
-            fileResourceProvider.getArchiveDestination(),
-            progressListener.newChild(100));
-    downloader.download();
-    if (!Files.isRegularFile(fileResourceProvider.getArchiveDestination())) {
-      throw new SdkInstallerException(
-          "Download succeeded but valid archive not found at "
-              + fileResourceProvider.getArchiveDestination());
-    }
+      if (archiveCache == null
+          && streamingExtraction
+          && extractorFactory.isStreamable(stagingProvider.getArchiveDestination())) {
+        // download, verify and extract at the same time
+        downloadAndExtract(stagingProvider, progressListener);
+      } else {
+        // download and verify
+        if (archiveCache != null) {
+          downloadWithCache(stagingProvider, archiveCache, progressListener.newChild(100));
+        } else {
+          Downloader downloader =
+              downloaderFactory.newDownloader(
+                  stagingProvider.getArchiveSource(),
+                  stagingProvider.getArchiveDestination(),
+                  archiveSha256,
+                  progressListener.newChild(100));
+          downloader.download();
+        }
+        if (!Files.isRegularFile(stagingProvider.getArchiveDestination())) {
+          throw new SdkInstallerException(
+              "Download succeeded but valid archive not found at "
+                  + stagingProvider.getArchiveDestination());
+        }
 
-    try {
-      // extract and verify
-      extractorFactory
-          .newExtractor(
-              fileResourceProvider.getArchiveDestination(),
-              fileResourceProvider.getArchiveExtractionDestination(),
-              progressListener.newChild(100))
-          .extract();
-      if (!Files.isDirectory(fileResourceProvider.getExtractedSdkHome())) {
+        // extract
+        newExtractor(stagingProvider, progressListener.newChild(100)).extract();
+      }
+
+      // verify extraction
+      if (!Files.isDirectory(stagingProvider.getExtractedSdkHome())) {
         throw new SdkInstallerException(
             "Extraction succeeded but valid sdk home not found at "
-                + fileResourceProvider.getExtractedSdkHome());
+                + stagingProvider.getExtractedSdkHome());
+      }
+
+      // install if necessary
+      if (installerFactory != null) {
+        installerFactory
+            .newInstaller(
+                stagingProvider.getExtractedSdkHome(),
+                progressListener.newChild(100),
+                consoleListener)
+            .install();
+      }
+
+      // verify final state
+      if (!Files.isRegularFile(stagingProvider.getExtractedGcloud())) {
+        throw new SdkInstallerException(
+            "Installation succeeded but gcloud executable not found at "
+                + stagingProvider.getExtractedGcloud());
+      }
+
+      // publish, an old SDK directory is only replaced by a complete install
+      publish(staging, extractionDestination, stagingPrefix);
+    } finally {
+      if (Files.exists(staging)) {
+        MoreFiles.deleteRecursively(staging, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
+    }
+
+    progressListener.done();
+    return fileResourceProvider.getExtractedSdkHome();
+  }
+
+  /**
+   * Renames a complete install into place. An old install is first moved aside with a staging
+   * name, restored if the rename fails and deleted only once the new install is in place, so the
+   * SDK directory is only missing between two renames. An old install left aside by a crash is
+   * removed as a stale staging directory by the next install.
+   */
+  private static void publish(Path staging, Path extractionDestination, String stagingPrefix)
+      throws IOException {
+    Path replaced = null;
+    if (Files.exists(extractionDestination)) {
+      replaced = extractionDestination.resolveSibling(stagingPrefix + UUID.randomUUID());
+      Files.move(extractionDestination, replaced, StandardCopyOption.ATOMIC_MOVE);
+    }
+    try {
+      Files.move(staging, extractionDestination, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      if (replaced != null) {
+        try {
+          Files.move(replaced, extractionDestination, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException restoreException) {
+          ex.addSuppressed(restoreException);
+        }
+      }
+      throw ex;
+    }
+    if (replaced != null) {
+      logger.info("Removing replaced install: " + replaced);
+      try {
+        MoreFiles.deleteRecursively(replaced, RecursiveDeleteOption.ALLOW_INSECURE);
+      } catch (IOException ex) {
+        // the next install removes it as a stale staging directory
+        logger.warning("Failed to remove replaced install " + replaced + ": " + ex);
       }
+    }
+  }
+
+  /** Places the archive from the shared cache at the archive destination, downloading if needed. */
+  private void downloadWithCache(
+      FileResourceProvider fileResourceProvider,
+      ArchiveCache archiveCache,
+      ProgressListener progressListener)
+      throws IOException, InterruptedException {
+    URL source = fileResourceProvider.getArchiveSource();
+    Path destination = fileResourceProvider.getArchiveDestination();
+    boolean downloaded =
+        archiveCache.copyTo(
+            source,
+            destination,
+            archiveSha256,
+            archive ->
+                downloaderFactory
+                    .newDownloader(source, archive, archiveSha256, progressListener)
+                    .download());
+    if (!downloaded) {
+      progressListener.start(
+          "Using cached archive: " + destination.getFileName(), ProgressListener.UNKNOWN);
+      progressListener.done();
+    }
+  }
+
+  private Extractor newExtractor(
+      FileResourceProvider fileResourceProvider, ProgressListener progressListener) {
+    try {
+      return extractorFactory.newExtractor(
+          fileResourceProvider.getArchiveDestination(),
+          fileResourceProvider.getArchiveExtractionDestination(),
+          progressListener);
     } catch (UnknownArchiveTypeException e) {
       // fileResourceProviderFactory.newFileResourceProvider() creates a fileResourceProvider that
       // returns either .tar.gz or .zip for getArchiveDestination().
       throw new RuntimeException(e);
     }
+  }
 
-    // install if necessary
-    if (installerFactory != null) {
-      installerFactory
-          .newInstaller(
-              fileResourceProvider.getExtractedSdkHome(),
-              progressListener.newChild(100),
-              consoleListener)
-          .install();
-    }
+  /**
+   * Downloads the archive on a background thread and extracts it from the downloaded bytes as they
+   * arrive, through a bounded buffer. The archive is still saved to its usual destination. If the
+   * download fails, including its checksum verification, the extracted files are deleted.
+   */
+  private void downloadAndExtract(
+      FileResourceProvider fileResourceProvider, ProgressListener progressListener)
+      throws IOException, InterruptedException {
+    Downloader downloader =
+        downloaderFactory.newDownloader(
+            fileResourceProvider.getArchiveSource(),
+            fileResourceProvider.getArchiveDestination(),
+            archiveSha256,
+            progressListener.newChild(100));
+    Extractor extractor = newExtractor(fileResourceProvider, progressListener.newChild(100));
 
-    // verify final state
-    if (!Files.isRegularFile(fileResourceProvider.getExtractedGcloud())) {
-      throw new SdkInstallerException(
-          "Installation succeeded but gcloud executable not found at "
-              + fileResourceProvider.getExtractedGcloud());
+    BoundedPipe pipe = new BoundedPipe(STREAMING_BUFFER_SIZE);
+    ExecutorService executor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("sdk-download-%d").setDaemon(true).build());
+    try {
+      Future<Void> download =
+          executor.submit(
+              new Callable<Void>() {
+                @Override
+                public Void call() throws IOException, InterruptedException {
+                  try {
+                    downloader.download(pipe.getOutputStream(), true);
+                  } catch (IOException ex) {
+                    pipe.closeWriter(ex);
+                    throw ex;
+                  } catch (InterruptedException ex) {
+                    pipe.closeWriter(new InterruptedIOException("Download was interrupted"));
+                    throw ex;
+                  }
+                  pipe.closeWriter(null);
+                  return null;
+                }
+              });
+
+      try (InputStream in = pipe.getInputStream()) {
+        // the extractor closes its stream and can stop before the end of the download, like the
+        // gzip trailer, so the rest is drained from the pipe afterwards
+        extractor.extract(
+            new FilterInputStream(in) {
+              @Override
+              public void close() {}
+            });
+        ByteStreams.exhaust(in);
+      }
+      download.get();
+    } catch (IOException | InterruptedException ex) {
+      cleanUpExtraction(fileResourceProvider);
+      throw ex;
+    } catch (ExecutionException ex) {
+      cleanUpExtraction(fileResourceProvider);
+      Throwables.throwIfInstanceOf(ex.getCause(), IOException.class);
+      Throwables.throwIfInstanceOf(ex.getCause(), InterruptedException.class);
+      throw new IOException(ex.getCause());
+    } finally {
+      executor.shutdownNow();
     }
+  }
 
-    progressListener.done();
-    return fileResourceProvider.getExtractedSdkHome();
+  private static void cleanUpExtraction(FileResourceProvider fileResourceProvider)
+      throws IOException {
+    Path extractionDestination = fileResourceProvider.getArchiveExtractionDestination();
+    if (Files.exists(extractionDestination)) {
+      logger.warning("Streaming install failed, cleaning up " + extractionDestination);
+      MoreFiles.deleteRecursively(extractionDestination, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
   }
 
   /**
@@ -148,16 +406,119 @@ public class SdkInstaller {
       OsInfo osInfo,
       String userAgentString,
       boolean usageReporting) {
-    DownloaderFactory downloaderFactory = new DownloaderFactory(userAgentString);
-    ExtractorFactory extractorFactory = new ExtractorFactory();
+    return builder(managedSdkDirectory, version, osInfo, userAgentString)
+        .setUsageReporting(usageReporting)
+        .build();
+  }
+
+  /**
+   * Returns a builder for an installer with the download, verification and caching options that
+   * {@link #newInstaller} uses the defaults of.
+   *
+   * @param managedSdkDirectory home directory of google cloud java managed cloud SDKs
+   * @param version version of the Cloud SDK we want to install
+   * @param osInfo target operating system for installation
+   * @param userAgentString user agent string for https requests
+   */
+  public static Builder builder(
+      Path managedSdkDirectory, Version version, OsInfo osInfo, String userAgentString) {
+    return new Builder(managedSdkDirectory, version, osInfo, userAgentString);
+  }
+
+  public static class Builder {
+    private final Path managedSdkDirectory;
+    private final Version version;
+    private final OsInfo osInfo;
+    private final String userAgentString;
+
+    private boolean usageReporting;
+    @Nullable private String archiveSha256;
+    private boolean resumeDownloads = true;
+    private boolean streamingExtraction;
+    @Nullable private ArchiveCache archiveCache;
+    private int downloadSegments = 1;
+
+    private Builder(
+        Path managedSdkDirectory, Version version, OsInfo osInfo, String userAgentString) {
+      this.managedSdkDirectory = managedSdkDirectory;
+      this.version = version;
+      this.osInfo = osInfo;
+      this.userAgentString = userAgentString;
+    }
 
-    InstallerFactory installerFactory =
-        version == Version.LATEST ? new InstallerFactory(osInfo, usageReporting) : null;
+    /** Enables client side usage reporting on gcloud. The default is false. */
+    public Builder setUsageReporting(boolean usageReporting) {
+      this.usageReporting = usageReporting;
+      return this;
+    }
+
+    /**
+     * Sets the hex encoded SHA-256 of the Cloud SDK archive, which is verified before the archive
+     * is installed. By default the archive is not verified.
+     */
+    public Builder setArchiveSha256(@Nullable String archiveSha256) {
+      this.archiveSha256 = archiveSha256;
+      return this;
+    }
+
+    /**
+     * Keeps interrupted downloads, so that the next install continues them where they stopped.
+     * The default is true.
+     */
+    public Builder setResumeDownloads(boolean resumeDownloads) {
+      this.resumeDownloads = resumeDownloads;
+      return this;
+    }
+
+    /**
+     * Extracts tar.gz archives while they are being downloaded, instead of after the download.
+     * Such downloads are not resumed, use a single connection and are verified after extraction.
+     * Ignored when the archive is cached. The default is false.
+     */
+    public Builder setStreamingExtraction(boolean streamingExtraction) {
+      this.streamingExtraction = streamingExtraction;
+      return this;
+    }
 
-    FileResourceProviderFactory fileResourceProviderFactory =
-        new FileResourceProviderFactory(version, osInfo, managedSdkDirectory);
+    /**
+     * Shares downloaded archives with other installers through a cache. Archives of the LATEST
+     * version are never cached, because their content changes.
+     */
+    public Builder setArchiveCache(@Nullable ArchiveCache archiveCache) {
+      this.archiveCache = archiveCache;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of connections used to download the archive, each fetching a byte
+     * range, when the server supports range requests. The default is 1, a single connection.
+     */
+    public Builder setDownloadSegments(int downloadSegments) {
+      Preconditions.checkArgument(downloadSegments > 0, "downloadSegments must be positive");
+      this.downloadSegments = downloadSegments;
+      return this;
+    }
+
+    /** Build a new configured Cloud SDK Installer. */
+    public SdkInstaller build() {
+      DownloaderFactory downloaderFactory =
+          new DownloaderFactory(userAgentString, resumeDownloads, downloadSegments);
+      ExtractorFactory extractorFactory = new ExtractorFactory();
 
-    return new SdkInstaller(
-        fileResourceProviderFactory, downloaderFactory, extractorFactory, installerFactory);
+      InstallerFactory installerFactory =
+          version == Version.LATEST ? new InstallerFactory(osInfo, usageReporting) : null;
+
+      FileResourceProviderFactory fileResourceProviderFactory =
+          new FileResourceProviderFactory(version, osInfo, managedSdkDirectory);
+
+      return new SdkInstaller(
+          fileResourceProviderFactory,
+          downloaderFactory,
+          extractorFactory,
+          installerFactory,
+          archiveSha256,
+          streamingExtraction,
+          version == Version.LATEST ? null : archiveCache);
+    }
   }
 }
@@ -17,31 +17,64 @@
 package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedOutputStream;
-import java.io.File;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 
 /**
- * {@link ExtractorProvider} implementation for *.tar.gz files.
- *
- * <p>NOTE: this does not handle links or symlinks or any other kind of special types in the tar. It
- * will only create files and directories.
+ * Extracts tar.gz archives. The calling thread inflates the archive and reads entries in order,
+ * while small file bodies are buffered in memory and written to disk by a pool of writer threads.
  */
 final class TarGzExtractorProvider implements ExtractorProvider {
 
   private static final Logger logger = Logger.getLogger(TarGzExtractorProvider.class.getName());
 
+  /** Files larger than this are written by the reading thread instead of being buffered. */
+  @VisibleForTesting static final int MAX_BUFFERED_FILE_SIZE = 1024 * 1024;
+
+  /** Upper bound on file contents read from the archive but not yet written to disk. */
+  private static final int MAX_BUFFERED_BYTES = 32 * 1024 * 1024;
+
+  private final int writerThreads;
+
   /** Only instantiated in {@link ExtractorFactory}. */
-  TarGzExtractorProvider() {}
+  TarGzExtractorProvider() {
+    this(Math.min(4, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Creates an extractor.
+   *
+   * @param writerThreads the number of threads writing files, if 1 all files are written by the
+   *     thread reading the archive
+   */
+  @VisibleForTesting
+  TarGzExtractorProvider(int writerThreads) {
+    Preconditions.checkArgument(writerThreads > 0, "writerThreads must be positive");
+    this.writerThreads = writerThreads;
+  }
 
   @Override
   public void extract(Path archive, Path destination, ProgressListener progressListener)
@@ -50,44 +83,172 @@ final class TarGzExtractorProvider implements ExtractorProvider {
     progressListener.start(
         "Extracting archive: " + archive.getFileName(), ProgressListener.UNKNOWN);
 
-    String canonicalDestination = destination.toFile().getCanonicalPath();
+    try (InputStream in = Files.newInputStream(archive)) {
+      extract(in, destination, progressListener);
+    }
+    progressListener.done();
+  }
+
+  /**
+   * Extracts a tar.gz stream into {@code destination}, reporting one unit of progress per entry.
+   */
+  void extract(InputStream archive, Path destination, ProgressListener progressListener)
+      throws IOException {
+    ExecutorService writers =
+        writerThreads > 1
+            ? Executors.newFixedThreadPool(
+                writerThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("tar-gz-extractor-%d")
+                    .setDaemon(true)
+                    .build())
+            : null;
+    try {
+      new Extraction(destination, writers).run(archive, progressListener);
+    } finally {
+      if (writers != null) {
+        writers.shutdownNow();
+      }
+    }
+  }
+
+  /** State of a single extraction. */
+  private static class Extraction {
+    private final Path destination;
+    @Nullable private final ExecutorService writers;
+    private final Semaphore bufferedBytes = new Semaphore(MAX_BUFFERED_BYTES);
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final Set<Path> writtenFiles = new HashSet<>();
 
-    GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(Files.newInputStream(archive));
-    try (TarArchiveInputStream in = new TarArchiveInputStream(gzipIn)) {
-      TarArchiveEntry entry;
-      while ((entry = in.getNextTarEntry()) != null) {
-        Path entryTarget = destination.resolve(entry.getName());
+    private Extraction(Path destination, @Nullable ExecutorService writers) {
+      this.destination = destination;
+      this.writers = writers;
+    }
 
-        String canonicalTarget = entryTarget.toFile().getCanonicalPath();
-        if (!canonicalTarget.startsWith(canonicalDestination + File.separator)) {
-          throw new IOException("Blocked unzipping files outside destination: " + entry.getName());
-        }
+    private void run(InputStream archive, ProgressListener progressListener) throws IOException {
+      ExtractionDestination extractionDestination = new ExtractionDestination(destination);
+      GzipCompressorInputStream gzipIn = new GzipCompressorInputStream(archive);
+      try (TarArchiveInputStream in = new TarArchiveInputStream(gzipIn)) {
+        TarArchiveEntry entry;
+        while ((entry = in.getNextTarEntry()) != null) {
+          throwIfFailed();
+          Path entryTarget = extractionDestination.resolve(entry.getName());
 
-        progressListener.update(1);
-        logger.fine(entryTarget.toString());
+          progressListener.update(1);
+          logger.fine(entryTarget.toString());
 
-        if (entry.isDirectory()) {
-          if (!Files.exists(entryTarget)) {
-            Files.createDirectories(entryTarget);
-          }
-        } else if (entry.isFile()) {
-          if (!Files.exists(entryTarget.getParent())) {
-            Files.createDirectories(entryTarget.getParent());
-          }
-          try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(entryTarget))) {
-            IOUtils.copy(in, out);
-            PosixFileAttributeView attributeView =
-                Files.getFileAttributeView(entryTarget, PosixFileAttributeView.class);
-            if (attributeView != null) {
-              attributeView.setPermissions(PosixUtil.getPosixFilePermissions(entry.getMode()));
+          if (entry.isDirectory()) {
+            extractionDestination.createDirectories(entryTarget);
+          } else if (entry.isFile()) {
+            extractionDestination.createDirectories(entryTarget.getParent());
+            if (!writtenFiles.add(entryTarget)) {
+              // a duplicate entry replaces the earlier one, which may still be queued
+              awaitBufferedFiles(entry.getName());
             }
+            writeFile(in, entry, entryTarget);
+          } else {
+            // we don't know what kind of entry this is (we only process directories and files).
+            logger.warning("Skipping entry (unknown type): " + entry.getName());
+          }
+        }
+      }
+      awaitWriters();
+      throwIfFailed();
+    }
+
+    private void writeFile(InputStream in, TarArchiveEntry entry, Path entryTarget)
+        throws IOException {
+      int mode = entry.getMode();
+      long size = entry.getSize();
+      if (writers == null || size > MAX_BUFFERED_FILE_SIZE) {
+        try (OutputStream out =
+            new BufferedOutputStream(ExtractionDestination.newOutputStream(entryTarget))) {
+          IOUtils.copy(in, out);
+        }
+        setPermissions(entryTarget, mode);
+        return;
+      }
+
+      int permits = Math.max(1, (int) size);
+      try {
+        bufferedBytes.acquire(permits);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while extracting " + entry.getName());
+      }
+      boolean submitted = false;
+      try {
+        byte[] contents = new byte[(int) size];
+        if (IOUtils.readFully(in, contents) != contents.length) {
+          throw new EOFException("Truncated archive entry: " + entry.getName());
+        }
+        writers.execute(() -> writeBufferedFile(entryTarget, contents, mode, permits));
+        submitted = true;
+      } finally {
+        if (!submitted) {
+          bufferedBytes.release(permits);
+        }
+      }
+    }
+
+    private void writeBufferedFile(Path entryTarget, byte[] contents, int mode, int permits) {
+      try {
+        if (failure.get() == null) {
+          try (OutputStream out = ExtractionDestination.newOutputStream(entryTarget)) {
+            out.write(contents);
           }
-        } else {
-          // we don't know what kind of entry this is (we only process directories and files).
-          logger.warning("Skipping entry (unknown type): " + entry.getName());
+          setPermissions(entryTarget, mode);
+        }
+      } catch (IOException ex) {
+        failure.compareAndSet(null, ex);
+      } finally {
+        bufferedBytes.release(permits);
+      }
+    }
+
+    /** Blocks until every buffered file has been written. */
+    private void awaitBufferedFiles(String entryName) throws IOException {
+      if (writers == null) {
+        return;
+      }
+      try {
+        bufferedBytes.acquire(MAX_BUFFERED_BYTES);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while extracting " + entryName);
+      }
+      bufferedBytes.release(MAX_BUFFERED_BYTES);
+      throwIfFailed();
+    }
+
+    private void awaitWriters() throws IOException {
+      if (writers == null) {
+        return;
+      }
+      writers.shutdown();
+      try {
+        while (!writers.awaitTermination(1, TimeUnit.SECONDS)) {
+          throwIfFailed();
         }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while writing extracted files");
+      }
+    }
+
+    private void throwIfFailed() throws IOException {
+      IOException ex = failure.get();
+      if (ex != null) {
+        throw ex;
+      }
+    }
+
+    private static void setPermissions(Path file, int mode) throws IOException {
+      PosixFileAttributeView attributeView =
+          Files.getFileAttributeView(file, PosixFileAttributeView.class);
+      if (attributeView != null) {
+        attributeView.setPermissions(PosixUtil.getPosixFilePermissions(mode));
       }
-      progressListener.done();
     }
   }
 }
@@ -18,83 +18,199 @@ package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.common.annotations.VisibleForTesting;
-import java.io.BufferedOutputStream;
-import java.io.File;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.PosixFileAttributeView;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
-import org.apache.commons.compress.utils.IOUtils;
 
 /**
- * {@link ExtractorProvider} implementation for *.zip files.
- *
- * <p>NOTE: this does not handle links or symlinks or any other kind of special types in the tar. It
- * will only create files and directories.
+ * Extracts zip archives. Directories are created up front, then file entries are extracted by a
+ * number of workers that each read their own entries through the random access {@link ZipFile}.
  */
 final class ZipExtractorProvider implements ExtractorProvider {
 
   private static final Logger logger = Logger.getLogger(ZipExtractorProvider.class.getName());
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final int workers;
+
   /** Only instantiated in {@link ExtractorFactory}. */
   @VisibleForTesting
-  ZipExtractorProvider() {}
+  ZipExtractorProvider() {
+    this(Math.min(4, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Creates an extractor.
+   *
+   * @param workers the number of threads extracting files, if 1 all files are extracted by the
+   *     calling thread
+   */
+  @VisibleForTesting
+  ZipExtractorProvider(int workers) {
+    Preconditions.checkArgument(workers > 0, "workers must be positive");
+    this.workers = workers;
+  }
 
   @Override
   public void extract(Path archive, Path destination, ProgressListener progressListener)
       throws IOException {
 
-    progressListener.start(
-        "Extracting archive: " + archive.getFileName(), ProgressListener.UNKNOWN);
-
-    String canonicalDestination = destination.toFile().getCanonicalPath();
-
     // Use ZipFile instead of ZipArchiveInputStream so that we can obtain file permissions
     // on unix-like systems via getUnixMode(). ZipArchiveInputStream doesn't have access to
-    // all the zip file data and will return "0" for any call to getUnixMode().
+    // all the zip file data and will return "0" for any call to getUnixMode(). It also gives us
+    // random access to entries, so they can be extracted concurrently.
     try (ZipFile zipFile = new ZipFile(archive.toFile())) {
-      // TextProgressBar progressBar = textBarFactory.newProgressBar(messageListener, count);
-      Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
-      while (zipEntries.hasMoreElements()) {
-        ZipArchiveEntry entry = zipEntries.nextElement();
-        Path entryTarget = destination.resolve(entry.getName());
-
-        String canonicalTarget = entryTarget.toFile().getCanonicalPath();
-        if (!canonicalTarget.startsWith(canonicalDestination + File.separator)) {
-          throw new IOException("Blocked unzipping files outside destination: " + entry.getName());
-        }
+      List<ZipArchiveEntry> entries = Collections.list(zipFile.getEntries());
+      progressListener.start("Extracting archive: " + archive.getFileName(), entries.size());
 
-        progressListener.update(1);
-        logger.fine(entryTarget.toString());
+      ExtractionDestination extractionDestination = new ExtractionDestination(destination);
+      List<Path> targets = new ArrayList<>(entries.size());
+      for (ZipArchiveEntry entry : entries) {
+        targets.add(extractionDestination.resolve(entry.getName()));
+      }
+      // only the last of duplicate entries is extracted, as if they were extracted in order
+      boolean[] replaced = new boolean[entries.size()];
+      Set<Path> laterTargets = new HashSet<>();
+      for (int i = entries.size() - 1; i >= 0; i--) {
+        replaced[i] = !laterTargets.add(targets.get(i));
+      }
 
-        if (entry.isDirectory()) {
-          if (!Files.exists(entryTarget)) {
-            Files.createDirectories(entryTarget);
-          }
+      // create every directory once, before any file is written
+      List<Integer> files = new ArrayList<>();
+      for (int i = 0; i < entries.size(); i++) {
+        Path entryTarget = targets.get(i);
+        if (entries.get(i).isDirectory()) {
+          extractionDestination.createDirectories(entryTarget);
+          progressListener.update(1);
+        } else if (replaced[i]) {
+          progressListener.update(1);
         } else {
-          if (!Files.exists(entryTarget.getParent())) {
-            Files.createDirectories(entryTarget.getParent());
-          }
-          try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(entryTarget))) {
-            try (InputStream in = zipFile.getInputStream(entry)) {
-              IOUtils.copy(in, out);
-              PosixFileAttributeView attributeView =
-                  Files.getFileAttributeView(entryTarget, PosixFileAttributeView.class);
-              if (attributeView != null) {
-                attributeView.setPermissions(
-                    PosixUtil.getPosixFilePermissions(entry.getUnixMode()));
-              }
-            }
-          }
+          extractionDestination.createDirectories(entryTarget.getParent());
+          files.add(i);
         }
       }
+
+      FileWorker worker = new FileWorker(zipFile, entries, targets, files, progressListener);
+      if (workers == 1 || files.size() < 2) {
+        worker.call();
+      } else {
+        runInParallel(worker, Math.min(workers, files.size()));
+      }
     }
     progressListener.done();
   }
+
+  private static void runInParallel(FileWorker worker, int threads) throws IOException {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat("zip-extractor-%d").setDaemon(true).build());
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(worker));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException ex) {
+      worker.failed.set(true);
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException(ex.getCause());
+    } catch (InterruptedException ex) {
+      worker.failed.set(true);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while extracting archive");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Extracts file entries until there are none left. Entries are claimed one at a time from a
+   * shared index, so threads running the same worker balance the load between them.
+   */
+  private static class FileWorker implements Callable<Void> {
+    private final ZipFile zipFile;
+    private final List<ZipArchiveEntry> entries;
+    private final List<Path> targets;
+    private final List<Integer> files;
+    private final ProgressListener progressListener;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    private FileWorker(
+        ZipFile zipFile,
+        List<ZipArchiveEntry> entries,
+        List<Path> targets,
+        List<Integer> files,
+        ProgressListener progressListener) {
+      this.zipFile = zipFile;
+      this.entries = entries;
+      this.targets = targets;
+      this.files = files;
+      this.progressListener = progressListener;
+    }
+
+    @Override
+    public Void call() throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int index;
+      while (!failed.get() && (index = next.getAndIncrement()) < files.size()) {
+        ZipArchiveEntry entry = entries.get(files.get(index));
+        Path entryTarget = targets.get(files.get(index));
+        logger.fine(entryTarget.toString());
+        try {
+          extractFile(entry, entryTarget, buffer);
+        } catch (IOException ex) {
+          failed.set(true);
+          throw ex;
+        }
+        synchronized (progressListener) {
+          progressListener.update(1);
+        }
+      }
+      return null;
+    }
+
+    private void extractFile(ZipArchiveEntry entry, Path entryTarget, byte[] buffer)
+        throws IOException {
+      try (InputStream in = zipFile.getInputStream(entry);
+          OutputStream out = ExtractionDestination.newOutputStream(entryTarget)) {
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+          out.write(buffer, 0, bytesRead);
+        }
+      }
+      PosixFileAttributeView attributeView =
+          Files.getFileAttributeView(entryTarget, PosixFileAttributeView.class);
+      if (attributeView != null) {
+        attributeView.setPermissions(PosixUtil.getPosixFilePermissions(entry.getUnixMode()));
+      }
+    }
+  }
 }
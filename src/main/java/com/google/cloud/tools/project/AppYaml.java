@@ -19,11 +19,23 @@ package com.google.cloud.tools.project;
 import com.google.cloud.tools.appengine.AppEngineException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
 import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.resolver.Resolver;
 
 /** Tools for reading {@code app.yaml}. */
 public class AppYaml {
@@ -38,6 +50,8 @@ public class AppYaml {
   private static final String MODULE_KEY = "module";
   private static final String ENVIRONMENT_VARIABLES_KEY = "env_variables";
 
+  private static final Resolver resolver = new Resolver();
+
   private final Map<String, ?> yamlMap;
 
   /**
@@ -50,15 +64,43 @@ public class AppYaml {
   @SuppressWarnings("unchecked")
   public static AppYaml parse(InputStream input) throws AppEngineException {
     try {
-      // our needs are simple so just load using primitive objects
-      Yaml yaml = new Yaml(new SafeConstructor());
-      Map<String, ?> contents = (Map<String, ?>) yaml.load(input);
-      return new AppYaml(contents);
+      Object contents = newYaml().load(input);
+      if (contents != null && !(contents instanceof Map)) {
+        throw new AppEngineException("Malformed 'app.yaml'.");
+      }
+      return new AppYaml((Map<String, ?>) contents);
     } catch (YAMLException ex) {
       throw new AppEngineException("Malformed 'app.yaml'.", ex);
     }
   }
 
+  /**
+   * Scan an app.yaml file for its top-level string values only, without building the nested
+   * mappings and sequences of the document. This is much cheaper than {@link #parse} for large
+   * files, but the returned object only answers the getters of top-level string fields: {@link
+   * #getEnvironmentVariables()} returns {@code null} and merge keys ({@code <<}) are not expanded.
+   *
+   * @param input the input, typically the contents of an {@code app.yaml} file
+   * @throws AppEngineException if reading app.yaml fails while scanning such as due to malformed
+   *     YAML
+   */
+  public static AppYaml scan(InputStream input) throws AppEngineException {
+    try {
+      return new AppYaml(new Scanner().scan(newYaml().parse(new UnicodeReader(input))));
+    } catch (YAMLException ex) {
+      throw new AppEngineException("Malformed 'app.yaml'.", ex);
+    }
+  }
+
+  /**
+   * Returns a new Yaml instance. Yaml instances are not thread-safe and cheap to create compared to
+   * parsing, so none is kept, which would also keep this class loader alive on pooled threads.
+   */
+  private static Yaml newYaml() {
+    // our needs are simple so just load using primitive objects
+    return new Yaml(new SafeConstructor());
+  }
+
   private AppYaml(@Nullable Map<String, ?> yamlMap) {
     this.yamlMap = yamlMap == null ? Collections.emptyMap() : yamlMap;
   }
@@ -136,4 +178,90 @@ public class AppYaml {
     Object value = yamlMap.get(key);
     return value instanceof Map<?, ?> ? (Map<String, ?>) value : null;
   }
+
+  /** Collects the string values of the root mapping from the events of a YAML stream. */
+  private static class Scanner {
+    private final Map<String, String> values = new HashMap<>();
+    private final Map<String, String> anchors = new HashMap<>();
+    private boolean expectingKey = true;
+    @Nullable private String key;
+
+    private Map<String, String> scan(Iterable<Event> events) throws AppEngineException {
+      int documents = 0;
+      int depth = 0;
+      // the whole stream is read, so that malformed YAML fails as it does in parse()
+      for (Event event : events) {
+        if (event instanceof DocumentStartEvent && ++documents > 1) {
+          throw new AppEngineException("Malformed 'app.yaml'.");
+        } else if (event instanceof CollectionStartEvent) {
+          String anchor = ((CollectionStartEvent) event).getAnchor();
+          if (anchor != null) {
+            anchors.remove(anchor);
+          }
+          if (depth == 0 && !(event instanceof MappingStartEvent)) {
+            throw new AppEngineException("Malformed 'app.yaml'.");
+          }
+          depth++;
+        } else if (event instanceof CollectionEndEvent) {
+          depth--;
+          if (depth == 1) {
+            addNode(null);
+          }
+        } else if (event instanceof ScalarEvent) {
+          ScalarEvent scalar = (ScalarEvent) event;
+          String value = toString(scalar);
+          if (scalar.getAnchor() != null) {
+            if (value == null) {
+              anchors.remove(scalar.getAnchor());
+            } else {
+              anchors.put(scalar.getAnchor(), value);
+            }
+          }
+          if (depth == 0 && !isNull(scalar)) {
+            throw new AppEngineException("Malformed 'app.yaml'.");
+          } else if (depth == 1) {
+            addNode(value);
+          }
+        } else if (event instanceof AliasEvent && depth == 1) {
+          String anchor = ((AliasEvent) event).getAnchor();
+          addNode(anchor == null ? null : anchors.get(anchor));
+        }
+      }
+      return values;
+    }
+
+    /** Adds a complete key or value node of the root mapping, {@code null} if not a string. */
+    private void addNode(@Nullable String value) {
+      if (expectingKey) {
+        key = value;
+      } else if (key != null) {
+        // later keys win, as in parse()
+        if (value == null) {
+          values.remove(key);
+        } else {
+          values.put(key, value);
+        }
+      }
+      expectingKey = !expectingKey;
+    }
+
+    /** Returns the value of a scalar that is loaded as a string, or {@code null}. */
+    @Nullable
+    private static String toString(ScalarEvent scalar) {
+      return Tag.STR.equals(resolve(scalar)) ? scalar.getValue() : null;
+    }
+
+    private static boolean isNull(ScalarEvent scalar) {
+      return Tag.NULL.equals(resolve(scalar));
+    }
+
+    private static Tag resolve(ScalarEvent scalar) {
+      String explicitTag = scalar.getTag();
+      if (explicitTag == null || "!".equals(explicitTag)) {
+        return resolver.resolve(
+            NodeId.scalar, scalar.getValue(), scalar.getImplicit().canOmitTagInPlainScalar());
+      }
+      return new Tag(explicitTag);
+    }
+  }
 }
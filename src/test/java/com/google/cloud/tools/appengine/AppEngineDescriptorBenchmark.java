@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Compares reading all values of a large appengine-web.xml with the streaming {@link
+ * AppEngineDescriptor} parser and with the DOM parse and per-getter lookups it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("NullAway")
+public class AppEngineDescriptorBenchmark {
+
+  private static final String APP_ENGINE_NAMESPACE = "http://appengine.google.com/ns/1.0";
+
+  /** Number of static file includes and environment variables in the descriptor. */
+  @Param({"1000"})
+  public int entries;
+
+  private byte[] descriptor;
+
+  @Setup(Level.Trial)
+  public void createDescriptor() {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version='1.0' encoding='utf-8'?>\n")
+        .append("<appengine-web-app xmlns='")
+        .append(APP_ENGINE_NAMESPACE)
+        .append("'>\n")
+        .append("  <static-files>\n");
+    for (int i = 0; i < entries; i++) {
+      xml.append("    <include path='/static/").append(i).append("/**' expiration='1d' />\n");
+    }
+    xml.append("  </static-files>\n").append("  <env-variables>\n");
+    for (int i = 0; i < entries; i++) {
+      xml.append("    <env-var name='KEY_").append(i).append("' value='value").append(i);
+      xml.append("' />\n");
+    }
+    xml.append("  </env-variables>\n")
+        .append("  <application>my-project</application>\n")
+        .append("  <version>v1</version>\n")
+        .append("  <service>default</service>\n")
+        .append("  <runtime>java8</runtime>\n")
+        .append("</appengine-web-app>\n");
+    descriptor = xml.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public void streaming(Blackhole blackhole) throws IOException, SAXException, AppEngineException {
+    AppEngineDescriptor parsed = AppEngineDescriptor.parse(new ByteArrayInputStream(descriptor));
+    blackhole.consume(parsed.getProjectId());
+    blackhole.consume(parsed.getProjectVersion());
+    blackhole.consume(parsed.getServiceId());
+    blackhole.consume(parsed.isSandboxEnforced());
+    blackhole.consume(parsed.getEnvironment());
+  }
+
+  @Benchmark
+  public void dom(Blackhole blackhole)
+      throws IOException, SAXException, ParserConfigurationException {
+    DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+    documentBuilderFactory.setNamespaceAware(true);
+    Document document =
+        documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(descriptor));
+    blackhole.consume(getText(document, "application"));
+    blackhole.consume(getText(document, "version"));
+    blackhole.consume(getText(document, "service"));
+    blackhole.consume(getText(document, "runtime"));
+    blackhole.consume(getEnvironment(document));
+  }
+
+  private static String getText(Document document, String name) {
+    Node node = getNode(document, name);
+    return node == null ? null : node.getTextContent();
+  }
+
+  private static Map<String, String> getEnvironment(Document document) {
+    Map<String, String> environment = new HashMap<>();
+    Node parent = getNode(document, "env-variables");
+    if (parent != null) {
+      NodeList children = parent.getChildNodes();
+      for (int i = 0; i < children.getLength(); i++) {
+        Node child = children.item(i);
+        if ("env-var".equals(child.getNodeName())) {
+          Element variable = (Element) child;
+          environment.put(variable.getAttribute("name"), variable.getAttribute("value"));
+        }
+      }
+    }
+    return environment;
+  }
+
+  private static Node getNode(Document document, String name) {
+    NodeList roots = document.getElementsByTagNameNS(APP_ENGINE_NAMESPACE, "appengine-web-app");
+    if (roots.getLength() > 0) {
+      NodeList children = roots.item(0).getChildNodes();
+      for (int i = 0; i < children.getLength(); i++) {
+        if (children.item(i).getNodeName().equals(name)) {
+          return children.item(i);
+        }
+      }
+    }
+    return null;
+  }
+}
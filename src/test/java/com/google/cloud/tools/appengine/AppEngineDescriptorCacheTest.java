@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+public class AppEngineDescriptorCacheTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final AppEngineDescriptorCache cache = new AppEngineDescriptorCache();
+
+  @Test
+  public void testGet_cached() throws IOException, SAXException, AppEngineException {
+    Path appEngineWebXml = writeDescriptor("service.xml", "default", 60_000);
+
+    AppEngineDescriptor descriptor = cache.get(appEngineWebXml);
+    Assert.assertEquals("default", descriptor.getServiceId());
+    Assert.assertSame(descriptor, cache.get(appEngineWebXml));
+  }
+
+  @Test
+  public void testGet_modified() throws IOException, SAXException, AppEngineException {
+    Path appEngineWebXml = writeDescriptor("service.xml", "default", 60_000);
+    AppEngineDescriptor descriptor = cache.get(appEngineWebXml);
+
+    writeDescriptor("service.xml", "backend", 30_000);
+    Assert.assertNotSame(descriptor, cache.get(appEngineWebXml));
+    Assert.assertEquals("backend", cache.get(appEngineWebXml).getServiceId());
+  }
+
+  @Test
+  public void testGet_recentlyModified() throws IOException, SAXException {
+    // a file modified within the timestamp resolution could change again unnoticed
+    Path appEngineWebXml = writeDescriptor("service.xml", "default", 0);
+
+    Assert.assertNotSame(cache.get(appEngineWebXml), cache.get(appEngineWebXml));
+  }
+
+  @Test
+  public void testGetAll() throws IOException, SAXException, AppEngineException {
+    List<Path> appEngineWebXmls = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      appEngineWebXmls.add(writeDescriptor("service" + i + ".xml", "service" + i, 60_000));
+    }
+
+    Map<Path, AppEngineDescriptor> descriptors = cache.getAll(appEngineWebXmls);
+
+    Assert.assertEquals(appEngineWebXmls, new ArrayList<>(descriptors.keySet()));
+    for (int i = 0; i < 20; i++) {
+      AppEngineDescriptor descriptor =
+          Preconditions.checkNotNull(descriptors.get(appEngineWebXmls.get(i)));
+      Assert.assertEquals("service" + i, descriptor.getServiceId());
+      Assert.assertSame(descriptor, cache.get(appEngineWebXmls.get(i)));
+    }
+  }
+
+  @Test
+  public void testGetAll_malformedXml() throws IOException {
+    List<Path> appEngineWebXmls = new ArrayList<>();
+    appEngineWebXmls.add(writeDescriptor("service.xml", "default", 60_000));
+    Path malformed = temporaryFolder.getRoot().toPath().resolve("malformed.xml");
+    Files.write(malformed, "<appengine-web-app".getBytes(StandardCharsets.UTF_8));
+    appEngineWebXmls.add(malformed);
+
+    try {
+      cache.getAll(appEngineWebXmls);
+      Assert.fail("SAXException expected but not thrown");
+    } catch (SAXException ex) {
+      Assert.assertEquals("Cannot parse appengine-web.xml", ex.getMessage());
+    }
+  }
+
+  private Path writeDescriptor(String fileName, String service, long ageMillis) throws IOException {
+    Path appEngineWebXml = temporaryFolder.getRoot().toPath().resolve(fileName);
+    String xml =
+        "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+            + "<service>"
+            + service
+            + "</service>"
+            + "</appengine-web-app>";
+    Files.write(appEngineWebXml, xml.getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(
+        appEngineWebXml, FileTime.fromMillis(System.currentTimeMillis() - ageMillis));
+    return appEngineWebXml;
+  }
+}
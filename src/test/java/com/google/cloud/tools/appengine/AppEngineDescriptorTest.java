@@ -219,6 +219,55 @@ public class AppEngineDescriptorTest {
     assertEquals(expectedEnvironment, environment);
   }
 
+  @Test
+  public void testParse_firstElementAndNestedText()
+      throws AppEngineException, IOException, SAXException {
+    AppEngineDescriptor descriptor =
+        parse(
+            ROOT_START_TAG
+                + "<runtime>java<b>8</b></runtime>"
+                + "<runtime>java11</runtime>"
+                + "<service><![CDATA[foo]]>Id</service>"
+                + "<other><version>nested</version></other>"
+                + ROOT_END_TAG);
+
+    assertEquals("java8", descriptor.getRuntime());
+    assertEquals("fooId", descriptor.getServiceId());
+    assertNull(descriptor.getProjectVersion());
+  }
+
+  @Test
+  public void testParse_malformedXml() throws IOException {
+    try {
+      parse(ROOT_START_TAG + PROJECT_ID);
+      Assert.fail("SAXException expected but not thrown");
+    } catch (SAXException ex) {
+      assertEquals("Cannot parse appengine-web.xml", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testParse_externalEntityNotResolved() throws IOException {
+    try {
+      parse(
+          "<!DOCTYPE appengine-web-app [<!ENTITY xxe SYSTEM 'file:///etc/passwd'>]>"
+              + ROOT_START_TAG
+              + "<application>&xxe;</application>"
+              + ROOT_END_TAG);
+      Assert.fail("SAXException expected but not thrown");
+    } catch (SAXException ex) {
+      // pass
+    }
+  }
+
+  @Test
+  public void testGetEnvironment_copy() throws AppEngineException, IOException, SAXException {
+    AppEngineDescriptor descriptor = parse(ROOT_START_TAG + ENVIRONMENT + ROOT_END_TAG);
+    descriptor.getEnvironment().clear();
+
+    assertEquals(3, descriptor.getEnvironment().size());
+  }
+
   private static AppEngineDescriptor parse(String xmlString) throws IOException, SAXException {
     return AppEngineDescriptor.parse(
         new ByteArrayInputStream(xmlString.getBytes(StandardCharsets.UTF_8)));
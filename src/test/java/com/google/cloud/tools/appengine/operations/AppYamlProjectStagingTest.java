@@ -37,6 +37,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -422,7 +423,7 @@ public class AppYamlProjectStagingTest {
   }
 
   @Test
-  public void testFindRuntime_malformedAppYaml() throws IOException {
+  public void testReadAppYaml_malformedAppYaml() throws IOException {
 
     Path file = appEngineDirectory.resolve("app.yaml");
     Files.write(
@@ -431,7 +432,7 @@ public class AppYamlProjectStagingTest {
         StandardOpenOption.CREATE_NEW);
 
     try {
-      AppYamlProjectStaging.findRuntime(config);
+      AppYamlProjectStaging.readAppYaml(config);
       fail();
     } catch (AppEngineException ex) {
       assertEquals("Malformed 'app.yaml'.", ex.getMessage());
@@ -439,23 +440,23 @@ public class AppYamlProjectStagingTest {
   }
 
   @Test
-  public void testHasCustomEntrypoint_true() throws IOException, AppEngineException {
+  public void testReadAppYaml_customEntrypoint() throws IOException, AppEngineException {
     Path file = appEngineDirectory.resolve("app.yaml");
     Files.write(
         file,
         "entrypoint: custom custom".getBytes(StandardCharsets.UTF_8),
         StandardOpenOption.CREATE_NEW);
 
-    assertTrue(AppYamlProjectStaging.hasCustomEntrypoint(config));
+    assertEquals("custom custom", AppYamlProjectStaging.readAppYaml(config).getEntrypoint());
   }
 
   @Test
-  public void testHasCustomEntrypoint_false() throws IOException, AppEngineException {
+  public void testReadAppYaml_noEntrypoint() throws IOException, AppEngineException {
     Path file = appEngineDirectory.resolve("app.yaml");
     Files.write(
         file, "runtime: java".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
 
-    Assert.assertFalse(AppYamlProjectStaging.hasCustomEntrypoint(config));
+    Assert.assertNull(AppYamlProjectStaging.readAppYaml(config).getEntrypoint());
   }
 
   @Test
@@ -596,4 +597,97 @@ public class AppYamlProjectStagingTest {
 
     assertArrayEquals(Files.readAllBytes(srcFile), Files.readAllBytes(destFile));
   }
+
+  @Test
+  public void testNewCopyService_default() throws IOException {
+    assertEquals(
+        AppYamlProjectStaging.CopyService.class,
+        AppYamlProjectStaging.newCopyService(config).getClass());
+  }
+
+  @Test
+  public void testNewCopyService_incremental() throws IOException {
+    config =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(artifact)
+            .stagingDirectory(stagingDirectory)
+            .incremental(true)
+            .build();
+
+    assertTrue(AppYamlProjectStaging.newCopyService(config) instanceof IncrementalCopyService);
+  }
+
+  @Test
+  public void testCopyService_linksFiles() throws IOException {
+    AppYamlProjectStaging.CopyService copier = new AppYamlProjectStaging.CopyService(true);
+    Path root = temporaryFolder.getRoot().toPath();
+
+    Path srcFile = root.resolve("srcFile");
+    Files.write(
+        srcFile, "some content".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
+    Path destFile = root.resolve("destDir").resolve("destFile");
+    Files.createDirectories(destFile.getParent());
+    Files.createFile(destFile);
+
+    copier.copyFileAndReplace(srcFile, destFile);
+
+    assertTrue(Files.isSameFile(srcFile, destFile));
+    assertArrayEquals(Files.readAllBytes(srcFile), Files.readAllBytes(destFile));
+  }
+
+  @Test
+  public void testStageStandardArchive_linkArtifacts() throws IOException, AppEngineException {
+    Files.write(
+        appEngineDirectory.resolve("app.yaml"),
+        "runtime: java11\n".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.CREATE_NEW);
+    Path linkedArtifact = temporaryFolder.getRoot().toPath().resolve("linked.jar");
+    Files.copy(Paths.get("src/test/resources/jars/libs/simpleLib.jar"), linkedArtifact);
+    config =
+        AppYamlProjectStageConfiguration.builder()
+            .appEngineDirectory(appEngineDirectory)
+            .artifact(linkedArtifact)
+            .stagingDirectory(stagingDirectory)
+            .linkArtifacts(true)
+            .build();
+
+    new AppYamlProjectStaging().stageStandardArchive(config);
+
+    Path stagedArtifact = stagingDirectory.resolve("linked.jar");
+    assertEquals(
+        Files.readAttributes(linkedArtifact, BasicFileAttributes.class).fileKey(),
+        Files.readAttributes(stagedArtifact, BasicFileAttributes.class).fileKey());
+    assertTrue(
+        Files.isSameFile(
+            appEngineDirectory.resolve("app.yaml"), stagingDirectory.resolve("app.yaml")));
+  }
+
+  @Test
+  public void testCopyService_linkToItself() throws IOException {
+    AppYamlProjectStaging.CopyService copier = new AppYamlProjectStaging.CopyService(true);
+    Path srcFile = temporaryFolder.getRoot().toPath().resolve("srcFile");
+    Files.write(
+        srcFile, "some content".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
+
+    copier.copyFileAndReplace(srcFile, srcFile);
+
+    assertArrayEquals("some content".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(srcFile));
+  }
+
+  @Test
+  public void testCopyService_copiesByDefault() throws IOException {
+    AppYamlProjectStaging.CopyService copier = new AppYamlProjectStaging.CopyService();
+    Path root = temporaryFolder.getRoot().toPath();
+
+    Path srcFile = root.resolve("srcFile");
+    Files.write(
+        srcFile, "some content".getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW);
+    Path destFile = root.resolve("destFile");
+
+    copier.copyFileAndReplace(srcFile, destFile);
+
+    assertFalse(Files.isSameFile(srcFile, destFile));
+    assertArrayEquals(Files.readAllBytes(srcFile), Files.readAllBytes(destFile));
+  }
 }
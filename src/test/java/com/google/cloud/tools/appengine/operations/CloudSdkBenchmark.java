@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkNotFoundException;
+import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkOutOfDateException;
+import com.google.cloud.tools.appengine.operations.cloudsdk.CloudSdkVersionFileException;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CloudSdk#validateCloudSdk()} on a fake SDK, when the result of an earlier
+ * validation is reused and when the SDK is checked and its VERSION file parsed again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("NullAway")
+public class CloudSdkBenchmark {
+
+  private Path root;
+  private CloudSdk sdk;
+
+  @Setup(Level.Trial)
+  public void createSdk() throws IOException, CloudSdkNotFoundException {
+    root = Files.createTempDirectory("cloud-sdk-benchmark");
+    Path bin = Files.createDirectory(root.resolve("bin"));
+    Files.createFile(bin.resolve("gcloud"));
+    Files.createFile(bin.resolve("gcloud.cmd"));
+    Files.createFile(bin.resolve("dev_appserver.py"));
+    Files.write(root.resolve("VERSION"), "300.0.0".getBytes(StandardCharsets.UTF_8));
+    sdk = new CloudSdk.Builder().sdkPath(root).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteSdk() throws IOException {
+    CloudSdk.clearVersionFileStates();
+    MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public void validateCached()
+      throws CloudSdkNotFoundException, CloudSdkOutOfDateException, CloudSdkVersionFileException {
+    sdk.validateCloudSdk();
+  }
+
+  @Benchmark
+  public void validateUncached()
+      throws CloudSdkNotFoundException, CloudSdkOutOfDateException, CloudSdkVersionFileException {
+    CloudSdk.clearVersionFileStates();
+    sdk.validateCloudSdk();
+  }
+}
@@ -21,6 +21,7 @@ import static org.hamcrest.core.AnyOf.anyOf;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.StringEndsWith.endsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -130,6 +131,41 @@ public class CloudSdkTest {
     assertEquals(version, sdk.getVersion().toString());
   }
 
+  @Test
+  public void testGetVersion_cachedUntilVersionFileChanges()
+      throws IOException, CloudSdkVersionFileException {
+    writeVersionFile("300.0.0");
+    CloudSdkVersion version = sdk.getVersion();
+    assertSame(version, new CloudSdk.Builder().sdkPath(root).build().getVersion());
+
+    writeVersionFile("310.10.0");
+    assertEquals("310.10.0", sdk.getVersion().toString());
+  }
+
+  @Test
+  public void testValidateCloudSdk_cachedUntilVersionFileChanges()
+      throws IOException, CloudSdkNotFoundException, CloudSdkOutOfDateException,
+          CloudSdkVersionFileException {
+    writeVersionFile("300.0.0");
+    root.resolve("bin").toFile().mkdir();
+    root.resolve("bin/gcloud").toFile().createNewFile();
+    root.resolve("bin/gcloud.cmd").toFile().createNewFile(); // for Windows
+    root.resolve("bin/dev_appserver.py").toFile().createNewFile();
+    sdk.validateCloudSdk();
+
+    // not checked again while the VERSION file is unchanged
+    root.resolve("bin/dev_appserver.py").toFile().delete();
+    sdk.validateCloudSdk();
+
+    writeVersionFile("310.10.0");
+    try {
+      sdk.validateCloudSdk();
+      fail();
+    } catch (CloudSdkNotFoundException ex) {
+      assertThat(ex.getMessage(), endsWith("dev_appserver.py' is not a file."));
+    }
+  }
+
   @Test
   public void testValidateAppEngineJavaComponents()
       throws AppEngineJavaComponentsNotInstalledException, CloudSdkNotFoundException {
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GcloudExecutionPoolTest {
+
+  @Test
+  public void testReleaseOnExit() throws IOException, InterruptedException {
+    GcloudExecutionPool pool = new GcloudExecutionPool(1);
+    pool.acquire();
+    Assert.assertEquals(0, pool.getAvailablePermits());
+
+    Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+    Process process = new ProcessBuilder(java.toString(), "-version").start();
+    pool.releaseOnExit(process);
+    process.waitFor();
+
+    // the permit is released by a waiter thread, or right away if the process already exited
+    for (int i = 0; i < 100 && pool.getAvailablePermits() == 0; i++) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(1, pool.getAvailablePermits());
+  }
+
+  @Test
+  public void testNonPositiveConcurrency() {
+    try {
+      new GcloudExecutionPool(0);
+      Assert.fail("IllegalArgumentException expected but not thrown");
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("maxConcurrentCommands must be positive", ex.getMessage());
+    }
+  }
+}
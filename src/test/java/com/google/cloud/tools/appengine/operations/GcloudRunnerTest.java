@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -118,6 +119,45 @@ public class GcloudRunnerTest {
     Mockito.verify(processHandler).handleProcess(process);
   }
 
+  @Test
+  public void testRun_withExecutionPool()
+      throws CloudSdkOutOfDateException, CloudSdkNotFoundException, ProcessHandlerException,
+          CloudSdkVersionFileException, IOException {
+    GcloudExecutionPool executionPool = new GcloudExecutionPool(2);
+    GcloudRunner gcloudRunner =
+        new GcloudRunner.Factory(processBuilderFactory)
+            .withExecutionPool(executionPool)
+            .newRunner(sdk, null, null, null, null, null, null, null, processHandler);
+
+    gcloudRunner.run(ImmutableList.of("some", "command"), workingDirectory);
+    gcloudRunner.run(ImmutableList.of("other", "command"), workingDirectory);
+
+    // the sdk is validated by every command, and the permits are back once the processes exited
+    Mockito.verify(sdk, Mockito.times(2)).validateCloudSdk();
+    Mockito.verify(processHandler, Mockito.times(2)).handleProcess(process);
+    assertEquals(2, executionPool.getAvailablePermits());
+  }
+
+  @Test
+  public void testRun_withExecutionPoolStartFailure()
+      throws CloudSdkOutOfDateException, CloudSdkNotFoundException, ProcessHandlerException,
+          CloudSdkVersionFileException, IOException {
+    when(processBuilder.start()).thenThrow(new IOException("cannot start"));
+    GcloudExecutionPool executionPool = new GcloudExecutionPool(1);
+    GcloudRunner gcloudRunner =
+        new GcloudRunner.Factory(processBuilderFactory)
+            .withExecutionPool(executionPool)
+            .newRunner(sdk, null, null, null, null, null, null, null, processHandler);
+
+    try {
+      gcloudRunner.run(ImmutableList.of("some", "command"), workingDirectory);
+      Assert.fail("IOException expected but not thrown");
+    } catch (IOException ex) {
+      assertEquals("cannot start", ex.getMessage());
+    }
+    assertEquals(1, executionPool.getAvailablePermits());
+  }
+
   @Test
   public void testGcloudCommandEnvironment() {
     GcloudRunner gcloudRunner =
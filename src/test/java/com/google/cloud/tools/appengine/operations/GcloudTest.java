@@ -65,4 +65,12 @@ public class GcloudTest {
             verbosity,
             processHandler);
   }
+
+  @Test
+  public void testBuild_withExecutionPool() {
+    GcloudExecutionPool executionPool = new GcloudExecutionPool(4);
+    new Gcloud.Builder(sdk, gcloudRunnerFactory).setExecutionPool(executionPool).build();
+
+    Mockito.verify(gcloudRunnerFactory).withExecutionPool(executionPool);
+  }
 }
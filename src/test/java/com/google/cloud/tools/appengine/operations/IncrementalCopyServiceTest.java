@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link IncrementalCopyService}. */
+public class IncrementalCopyServiceTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path stagingDirectory;
+  private Path extraFiles;
+  private Path artifact;
+
+  @Before
+  public void setUp() throws IOException {
+    stagingDirectory = temporaryFolder.newFolder("staging").toPath();
+    extraFiles = temporaryFolder.newFolder("extra").toPath();
+    Files.createDirectories(extraFiles.resolve("sub"));
+    write(extraFiles.resolve("root.txt"), "root");
+    write(extraFiles.resolve("sub/nested.txt"), "nested");
+    artifact = temporaryFolder.newFile("artifact.jar").toPath();
+    write(artifact, "artifact");
+  }
+
+  @Test
+  public void testStage_firstRunCopiesEverything() throws IOException {
+    IncrementalCopyService copyService = stage();
+
+    assertEquals(3, copyService.getCopiedCount());
+    assertEquals(0, copyService.getSkippedCount());
+    assertEquals("root", read(stagingDirectory.resolve("root.txt")));
+    assertEquals("nested", read(stagingDirectory.resolve("sub/nested.txt")));
+    assertEquals("artifact", read(stagingDirectory.resolve("artifact.jar")));
+    assertTrue(Files.isRegularFile(IncrementalCopyService.getManifest(stagingDirectory)));
+  }
+
+  @Test
+  public void testStage_manifestIsNotStaged() throws IOException {
+    stage();
+
+    try (Stream<Path> staged = Files.list(stagingDirectory)) {
+      assertEquals(
+          ImmutableSet.of("root.txt", "sub", "artifact.jar"),
+          staged.map(path -> path.getFileName().toString()).collect(Collectors.toSet()));
+    }
+  }
+
+  @Test
+  public void testStage_unchangedFilesAreSkipped() throws IOException {
+    stage();
+    IncrementalCopyService copyService = stage();
+
+    assertEquals(0, copyService.getCopiedCount());
+    assertEquals(3, copyService.getSkippedCount());
+  }
+
+  @Test
+  public void testStage_changedFileIsCopied() throws IOException {
+    stage();
+    write(artifact, "new artifact");
+    IncrementalCopyService copyService = stage();
+
+    assertEquals(1, copyService.getCopiedCount());
+    assertEquals(2, copyService.getSkippedCount());
+    assertEquals("new artifact", read(stagingDirectory.resolve("artifact.jar")));
+  }
+
+  @Test
+  public void testStage_touchedFileWithSameContentIsSkipped() throws IOException {
+    stage();
+    Files.setLastModifiedTime(artifact, FileTime.fromMillis(1000L));
+    IncrementalCopyService copyService = stage();
+
+    assertEquals(0, copyService.getCopiedCount());
+    assertEquals(3, copyService.getSkippedCount());
+  }
+
+  @Test
+  public void testStage_changedFileWithSameSizeIsCopied() throws IOException {
+    stage();
+    write(artifact, "ARTIFACT");
+    Files.setLastModifiedTime(artifact, FileTime.fromMillis(1000L));
+    IncrementalCopyService copyService = stage();
+
+    assertEquals(1, copyService.getCopiedCount());
+    assertEquals("ARTIFACT", read(stagingDirectory.resolve("artifact.jar")));
+
+    // the hash computed for the comparison is kept, a later touch is detected against it
+    Files.setLastModifiedTime(artifact, FileTime.fromMillis(2000L));
+    assertEquals(0, stage().getCopiedCount());
+  }
+
+  @Test
+  public void testStage_modifiedStagedFileIsRestored() throws IOException {
+    stage();
+    write(stagingDirectory.resolve("root.txt"), "tampered with");
+    IncrementalCopyService copyService = stage();
+
+    assertEquals(1, copyService.getCopiedCount());
+    assertEquals("root", read(stagingDirectory.resolve("root.txt")));
+  }
+
+  @Test
+  public void testStage_staleFilesAreDeleted() throws IOException {
+    stage();
+    Files.delete(extraFiles.resolve("sub/nested.txt"));
+    Files.delete(extraFiles.resolve("sub"));
+    stage();
+
+    assertFalse(Files.exists(stagingDirectory.resolve("sub/nested.txt")));
+    assertFalse(Files.exists(stagingDirectory.resolve("sub")));
+    assertTrue(Files.exists(stagingDirectory.resolve("root.txt")));
+  }
+
+  @Test
+  public void testStage_filesOutsideStagingAreNeverDeleted() throws IOException {
+    Path outside = temporaryFolder.newFolder("outside").toPath();
+    Path copiedOutside = outside.resolve("copied.txt");
+    IncrementalCopyService copyService = stage();
+    copyService.copyFileAndReplace(artifact, copiedOutside);
+    copyService.commit();
+
+    Path absolute = write(outside.resolve("absolute.txt"), "absolute");
+    Path relative = write(outside.resolve("relative.txt"), "relative");
+    String entry = "{\"source\":\"x\",\"size\":1,\"lastModified\":1,\"stagedLastModified\":1}";
+    write(
+        IncrementalCopyService.getManifest(stagingDirectory),
+        "{\""
+            + absolute.toString().replace("\\", "\\\\")
+            + "\":"
+            + entry
+            + ",\"../outside/relative.txt\":"
+            + entry
+            + "}");
+    stage();
+
+    assertTrue(Files.exists(copiedOutside));
+    assertTrue(Files.exists(absolute));
+    assertTrue(Files.exists(relative));
+  }
+
+  @Test
+  public void testCopyDirectory_failsOnFileStagedInSameRun() throws IOException {
+    Path otherExtraFiles = temporaryFolder.newFolder("other").toPath();
+    write(otherExtraFiles.resolve("root.txt"), "other root");
+
+    IncrementalCopyService copyService = new IncrementalCopyService(stagingDirectory);
+    copyService.copyDirectory(extraFiles, stagingDirectory);
+    try {
+      copyService.copyDirectory(otherExtraFiles, stagingDirectory);
+      fail();
+    } catch (FileAlreadyExistsException ex) {
+      assertEquals(stagingDirectory.resolve("root.txt").toString(), ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testStage_corruptManifestRestagesEverything() throws IOException {
+    stage();
+    write(IncrementalCopyService.getManifest(stagingDirectory), "{ not json");
+    IncrementalCopyService copyService = stage();
+
+    assertEquals(3, copyService.getCopiedCount());
+  }
+
+  private IncrementalCopyService stage() throws IOException {
+    IncrementalCopyService copyService = new IncrementalCopyService(stagingDirectory);
+    copyService.copyDirectory(extraFiles, stagingDirectory);
+    copyService.copyFileAndReplace(artifact, stagingDirectory.resolve("artifact.jar"));
+    copyService.commit();
+    return copyService;
+  }
+
+  private static Path write(Path file, String content) throws IOException {
+    return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -22,7 +22,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.LogRecord;
 import javax.annotation.Nullable;
 import org.junit.Assert;
@@ -60,6 +62,57 @@ public class PathResolverTest {
     Assert.assertNotNull("Could not locate Cloud SDK", resolver.getCloudSdkPath());
   }
 
+  @Test
+  public void testGetCloudSdkPath_firstPathEntryWins() throws IOException {
+    Path first = createSdkBin("first");
+    Path second = createSdkBin("second");
+    PathResolver.clearCache();
+
+    Path sdk = PathResolver.getCloudSdkPath(first + File.pathSeparator + second, null);
+    Assert.assertEquals(first.getParent(), sdk);
+  }
+
+  @Test
+  public void testGetCloudSdkPath_cloudSdkHome() throws IOException {
+    Path sdkHome = temporaryFolder.newFolder("home", "google-cloud-sdk").toPath();
+    PathResolver.clearCache();
+
+    Path sdk = PathResolver.getCloudSdkPath(null, sdkHome.toString());
+    Assert.assertEquals(sdkHome, sdk);
+  }
+
+  @Test
+  public void testGetCloudSdkPath_cachedUntilDeleted() throws IOException {
+    Path first = createSdkBin("first");
+    Path second = createSdkBin("second");
+    String pathEnv = first + File.pathSeparator + second;
+    PathResolver.clearCache();
+
+    Assert.assertEquals(first.getParent(), PathResolver.getCloudSdkPath(pathEnv, null));
+    Assert.assertEquals(first.getParent(), PathResolver.getCloudSdkPath(pathEnv, null));
+
+    Files.delete(first);
+    Files.delete(first.getParent());
+    Assert.assertEquals(second.getParent(), PathResolver.getCloudSdkPath(pathEnv, null));
+  }
+
+  @Test
+  public void testSearchPaths_skipsFailedCandidate() throws IOException {
+    Path second = temporaryFolder.newFolder("second").toPath();
+    List<Callable<Path>> candidates =
+        Arrays.asList(
+            () -> {
+              throw new IOException("cannot read candidate");
+            },
+            () -> second);
+
+    Assert.assertEquals(second, PathResolver.searchPaths(candidates));
+  }
+
+  private Path createSdkBin(String parent) throws IOException {
+    return temporaryFolder.newFolder(parent, "google-cloud-sdk", "bin").toPath();
+  }
+
   @Test
   public void testGetRank() {
     Assert.assertTrue(resolver.getRank() > 10000);
@@ -18,12 +18,20 @@ package com.google.cloud.tools.appengine.operations.cloudsdk.process;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.tools.appengine.operations.cloudsdk.internal.process.WaitingProcessOutputLineListener;
 import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,12 +51,19 @@ public class LegacyProcessHandlerTest {
   private final List<ProcessOutputLineListener> stdErrListeners = new ArrayList<>();
   private final List<ProcessStartListener> startListeners = new ArrayList<>();
   private final List<ProcessExitListener> exitListeners = new ArrayList<>();
+  private final ThreadPoolExecutor executor =
+      (ThreadPoolExecutor) Executors.newCachedThreadPool();
 
   @Before
   public void setUp() {
     when(watcherFactory.newLineListener(anyInt())).thenReturn(watcher);
   }
 
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
   @Test
   public void testBuilder_async() {
     new LegacyProcessHandler.Builder(
@@ -80,4 +95,22 @@ public class LegacyProcessHandlerTest {
     assertEquals(ImmutableList.of(start), startListeners);
     assertEquals(ImmutableList.of(exit), exitListeners);
   }
+
+  @Test
+  public void testHandleProcess_withExecutor() throws IOException, ProcessHandlerException {
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    // java -version writes to standard error
+    Process process = new ProcessBuilder(java, "-version").start();
+
+    LegacyProcessHandler.builder()
+        .addStdErrLineListener(stdErr)
+        .setExitListener(exit)
+        .setExecutor(executor)
+        .build()
+        .handleProcess(process);
+
+    verify(stdErr, atLeastOnce()).onOutputLine(anyString());
+    verify(exit).onExit(0);
+    assertEquals(1, executor.getTaskCount());
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations.cloudsdk.process;
+
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares splitting synthetic gcloud output into lines with {@link OutputLineDecoder} and with the
+ * {@link Scanner} that {@link LegacyProcessHandler} used before. Run with {@code -prof gc} to also
+ * compare the allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("NullAway")
+public class OutputLineDecoderBenchmark {
+
+  @Param({"4"})
+  public int megabytes;
+
+  private byte[] output;
+
+  @Setup(Level.Trial)
+  public void createOutput() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; builder.length() < megabytes * 1024 * 1024; i++) {
+      // structured log lines, as printed by verbose deployments
+      builder
+          .append("{\"severity\": \"INFO\", \"timestamp\": \"2020-01-01T00:00:00.")
+          .append(i % 1000)
+          .append("Z\", \"message\": \"Uploading file ")
+          .append(i)
+          .append(" of service default to gs://staging.example.appspot.com/")
+          .append(Integer.toHexString(i * 31))
+          .append("\"}\n");
+    }
+    output = builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public void decoder(Blackhole blackhole) throws IOException {
+    List<ProcessOutputLineListener> listeners = ImmutableList.of(blackhole::consume);
+    new OutputLineDecoder(listeners).decode(new ByteArrayInputStream(output));
+  }
+
+  @Benchmark
+  public void scanner(Blackhole blackhole) {
+    Scanner scanner =
+        new Scanner(new ByteArrayInputStream(output), StandardCharsets.UTF_8.name());
+    while (scanner.hasNextLine()) {
+      blackhole.consume(scanner.nextLine());
+    }
+    scanner.close();
+  }
+}
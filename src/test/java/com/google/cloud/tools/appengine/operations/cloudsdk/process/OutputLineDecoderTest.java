@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.appengine.operations.cloudsdk.process;
+
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OutputLineDecoderTest {
+
+  private final List<String> lines = new ArrayList<>();
+  private final OutputLineDecoder decoder = new OutputLineDecoder(ImmutableList.of(lines::add));
+
+  @Test
+  public void testDecode_lineTerminators() throws IOException {
+    decoder.decode(toStream("a\nb\r\nc\rd\n\ne"));
+    Assert.assertEquals(ImmutableList.of("a", "b", "c", "d", "", "e"), lines);
+  }
+
+  @Test
+  public void testDecode_emptyStream() throws IOException {
+    decoder.decode(toStream(""));
+    Assert.assertEquals(ImmutableList.of(), lines);
+  }
+
+  @Test
+  public void testDecode_matchesScanner() throws IOException {
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      // lines of growing length with multi-byte characters, spanning several reads
+      output.append(i).append(" caf\u00e9 \u65e5\u672c ");
+      for (int j = 0; j < i % 40; j++) {
+        output.append("\ud83d\ude00 x");
+      }
+      output.append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    output.append("no terminator");
+
+    decoder.decode(toStream(output.toString()));
+
+    List<String> expected = new ArrayList<>();
+    Scanner scanner = new Scanner(toStream(output.toString()), StandardCharsets.UTF_8.name());
+    while (scanner.hasNextLine()) {
+      expected.add(scanner.nextLine());
+    }
+    Assert.assertEquals(expected, lines);
+  }
+
+  @Test
+  public void testDecode_crLfAcrossReads() throws IOException {
+    // the stream returns one byte per read
+    InputStream in =
+        new ByteArrayInputStream("a\r\nb".getBytes(StandardCharsets.UTF_8)) {
+          @Override
+          public synchronized int read(byte[] bytes, int offset, int length) {
+            return super.read(bytes, offset, Math.min(length, 1));
+          }
+        };
+    decoder.decode(in);
+    Assert.assertEquals(ImmutableList.of("a", "b"), lines);
+  }
+
+  @Test
+  public void testDecode_stopsWhenInterrupted() throws IOException {
+    Thread.currentThread().interrupt();
+    decoder.decode(toStream("a\nb\n"));
+    Assert.assertEquals(ImmutableList.of(), lines);
+    Assert.assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  private static InputStream toStream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CapturedOutputTest {
+
+  @Test
+  public void testInMemory() throws IOException {
+    try (CapturedOutput output = new CapturedOutput()) {
+      output.getOutputStream().write("[\"caf\u00e9\"]".getBytes(StandardCharsets.UTF_8));
+
+      Assert.assertEquals(9, output.size());
+      Assert.assertEquals("[\"caf\u00e9\"]", output.read());
+      try (Reader reader = output.openReader()) {
+        Assert.assertEquals("[\"caf\u00e9\"]", CharStreams.toString(reader));
+      }
+    }
+  }
+
+  @Test
+  public void testSpilledToDisk() throws IOException {
+    byte[] content = new byte[100_000];
+    new Random(0).nextBytes(content);
+    try (CapturedOutput output = new CapturedOutput(1000)) {
+      for (int offset = 0; offset < content.length; offset += 777) {
+        output.getOutputStream().write(content, offset, Math.min(777, content.length - offset));
+      }
+
+      Assert.assertEquals(content.length, output.size());
+      // the output can be read more than once
+      for (int i = 0; i < 2; i++) {
+        try (InputStream in = output.openStream()) {
+          Assert.assertArrayEquals(content, ByteStreams.toByteArray(in));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testClose_discardsOutput() throws IOException {
+    CapturedOutput output = new CapturedOutput(10);
+    output.getOutputStream().write(new byte[100]);
+    output.close();
+    Assert.assertEquals(0, output.size());
+  }
+}
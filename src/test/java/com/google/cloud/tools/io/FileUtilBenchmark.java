@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link FileUtil#copyDirectory(Path, Path, List)} as the number of excludes grows. The
+ * excludes don't match anything, so every run copies the same 1000 files and copy time should not
+ * depend on {@code excludeCount}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("NullAway")
+public class FileUtilBenchmark {
+
+  @Param({"0", "10", "100", "1000"})
+  public int excludeCount;
+
+  private Path root;
+  private Path source;
+  private Path destination;
+  private List<Path> excludes;
+
+  @Setup(Level.Trial)
+  public void createSource() throws IOException {
+    root = Files.createTempDirectory("file-util-benchmark");
+    source = Files.createDirectory(root.resolve("source"));
+    for (int i = 0; i < 50; i++) {
+      Path dir = Files.createDirectory(source.resolve("dir" + i));
+      for (int j = 0; j < 20; j++) {
+        Files.write(dir.resolve("file" + j), new byte[128]);
+      }
+    }
+    excludes = new ArrayList<>();
+    for (int i = 0; i < excludeCount; i++) {
+      excludes.add(source.resolve("dir" + i).resolve("missing" + i));
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void createDestination() throws IOException {
+    destination = Files.createTempDirectory(root, "destination");
+  }
+
+  @TearDown(Level.Invocation)
+  public void deleteDestination() throws IOException {
+    MoreFiles.deleteRecursively(destination, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteSource() throws IOException {
+    MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public void copyDirectory() throws IOException {
+    FileUtil.copyDirectory(source, destination, excludes);
+  }
+}
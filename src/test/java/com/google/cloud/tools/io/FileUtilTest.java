@@ -21,11 +21,18 @@ import static org.junit.Assume.assumeTrue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -176,4 +183,128 @@ public class FileUtilTest {
     Assert.assertFalse(Files.exists(destExcludes.resolve(src.relativize(excludedSubDir))));
     Assert.assertFalse(Files.exists(destExcludes.resolve(src.relativize(autoExcludedSubFile))));
   }
+
+  @Test
+  public void testCopyDirectory_excludesMatchedAfterNormalization() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+    Path subDir = Files.createDirectory(src.resolve("sub"));
+    Path excludedFile = Files.createFile(subDir.resolve("excluded.file"));
+    Files.createFile(subDir.resolve("sub.file"));
+
+    FileUtil.copyDirectory(
+        src, dest, ImmutableList.of(subDir.resolve("..").resolve("sub").resolve("excluded.file")));
+
+    Assert.assertTrue(Files.isRegularFile(dest.resolve("sub/sub.file")));
+    Assert.assertFalse(Files.exists(dest.resolve(src.relativize(excludedFile))));
+  }
+
+  @Test
+  public void testCopyDirectory_pathMatcherExcludes() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+
+    Files.createFile(src.resolve("root.file"));
+    Files.createFile(src.resolve("root.log"));
+    Path subDir = Files.createDirectory(src.resolve("sub"));
+    Files.createFile(subDir.resolve("sub.file"));
+    Files.createFile(subDir.resolve("sub.log"));
+    Path excludedSubDir = Files.createDirectory(src.resolve("excluded"));
+    Files.createFile(excludedSubDir.resolve("auto.excluded.file"));
+
+    PathMatcher excludes = FileSystems.getDefault().getPathMatcher("glob:{**.log,excluded}");
+    FileUtil.copyDirectory(src, dest, excludes);
+
+    Assert.assertTrue(Files.isRegularFile(dest.resolve("root.file")));
+    Assert.assertTrue(Files.isRegularFile(dest.resolve("sub/sub.file")));
+    Assert.assertFalse(Files.exists(dest.resolve("root.log")));
+    Assert.assertFalse(Files.exists(dest.resolve("sub/sub.log")));
+    Assert.assertFalse(Files.exists(dest.resolve("excluded")));
+  }
+
+  @Test
+  public void testCopyDirectory_fileCopier() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+    Files.write(src.resolve("root.file"), "root".getBytes(StandardCharsets.UTF_8));
+    Path subDir = Files.createDirectory(src.resolve("sub"));
+    Files.createFile(subDir.resolve("sub.file"));
+    Path excludedFile = Files.createFile(subDir.resolve("excluded.file"));
+    Files.createDirectory(dest.resolve("sub"));
+    Files.write(dest.resolve("root.file"), "old".getBytes(StandardCharsets.UTF_8));
+
+    Set<Path> copied = Sets.newHashSet();
+    FileUtil.copyDirectory(
+        src,
+        dest,
+        ImmutableList.of(excludedFile),
+        (file, target, attributes) -> {
+          copied.add(src.relativize(file));
+          Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+        });
+
+    Assert.assertEquals(Sets.newHashSet(Paths.get("root.file"), Paths.get("sub/sub.file")), copied);
+    Assert.assertEquals(
+        "root", new String(Files.readAllBytes(dest.resolve("root.file")), StandardCharsets.UTF_8));
+    Assert.assertTrue(Files.isRegularFile(dest.resolve("sub/sub.file")));
+    Assert.assertFalse(Files.exists(dest.resolve("sub/excluded.file")));
+  }
+
+  @Test
+  public void testCopyDirectory_parallel() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+
+    long bytes = 0;
+    for (int i = 0; i < 20; i++) {
+      Path subDir = Files.createDirectory(src.resolve("sub" + i));
+      for (int j = 0; j < 10; j++) {
+        byte[] content = ("file " + i + "/" + j).getBytes(StandardCharsets.UTF_8);
+        Files.write(subDir.resolve("file" + j), content);
+        bytes += content.length;
+      }
+    }
+    Path excludedFile = Files.createFile(src.resolve("sub0/excluded.file"));
+
+    FileUtil.CopyResult result =
+        FileUtil.copyDirectory(src, dest, ImmutableList.of(excludedFile), 4);
+
+    Assert.assertEquals(200, result.getFileCount());
+    Assert.assertEquals(bytes, result.getByteCount());
+    Assert.assertArrayEquals(
+        Files.readAllBytes(src.resolve("sub19/file9")),
+        Files.readAllBytes(dest.resolve("sub19/file9")));
+    Assert.assertFalse(Files.exists(dest.resolve("sub0/excluded.file")));
+  }
+
+  @Test
+  public void testCopyDirectory_parallelDoesNotOverwrite() throws IOException {
+    Path src = testDir.newFolder("src").toPath();
+    Path dest = testDir.newFolder("dest").toPath();
+    Files.createFile(src.resolve("root.file"));
+    Files.createFile(dest.resolve("root.file"));
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      FileUtil.copyDirectory(src, dest, ImmutableList.of(), executor, 1);
+      Assert.fail();
+    } catch (FileAlreadyExistsException ex) {
+      Assert.assertEquals(dest.resolve("root.file").toString(), ex.getMessage());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCopyDirectory_parallelChildPath() throws IOException {
+    Path src = testDir.newFolder().toPath();
+    Path dest = Files.createDirectory(src.resolve("subdir"));
+
+    try {
+      FileUtil.copyDirectory(src, dest, ImmutableList.of(), 2);
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("destination is child of source", ex.getMessage());
+    }
+  }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IoExecutorsTest {
+
+  @Test
+  public void testNewDaemonExecutor_runsDaemonThreads()
+      throws ExecutionException, InterruptedException {
+    ExecutorService executor = IoExecutors.newDaemonExecutor("io-executors-test-%d");
+    try {
+      Assert.assertTrue(executor.submit(() -> Thread.currentThread().isDaemon()).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LockFileTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private Path lockPath;
+
+  @Before
+  public void setUp() {
+    lockPath = temporaryFolder.getRoot().toPath().resolve("test.lock");
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testAcquire_createsLockFile() throws IOException {
+    try (LockFile lock = LockFile.acquire(lockPath)) {
+      Assert.assertTrue(lock.isValid());
+      Assert.assertTrue(Files.exists(lockPath));
+    }
+    // never deleted, another process may be waiting on it
+    Assert.assertTrue(Files.exists(lockPath));
+  }
+
+  @Test
+  public void testTryAcquire_heldByOtherThread()
+      throws IOException, InterruptedException, ExecutionException {
+    try (LockFile lock = LockFile.acquire(lockPath)) {
+      Assert.assertNull(executor.submit(() -> LockFile.tryAcquire(lockPath)).get());
+    }
+    LockFile lock = executor.submit(() -> LockFile.tryAcquire(lockPath)).get();
+    Assert.assertNotNull(lock);
+    lock.close();
+  }
+
+  @Test
+  public void testAcquire_waitsForRelease()
+      throws IOException, InterruptedException, ExecutionException, TimeoutException {
+    CountDownLatch waiting = new CountDownLatch(1);
+    Future<Boolean> acquired;
+    try (LockFile lock = LockFile.acquire(lockPath)) {
+      acquired =
+          executor.submit(
+              () -> {
+                waiting.countDown();
+                try (LockFile otherLock = LockFile.acquire(lockPath)) {
+                  return otherLock.isValid();
+                }
+              });
+      waiting.await();
+      try {
+        acquired.get(100, TimeUnit.MILLISECONDS);
+        Assert.fail("lock acquired while held");
+      } catch (TimeoutException ex) {
+        // expected
+      }
+    }
+    Assert.assertTrue(acquired.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testClose_twice() throws IOException {
+    LockFile lock = LockFile.acquire(lockPath);
+    lock.close();
+    lock.close();
+    Assert.assertFalse(lock.isValid());
+
+    // a second release must not let two holders in
+    try (LockFile first = LockFile.tryAcquire(lockPath)) {
+      Assert.assertNotNull(first);
+      Assert.assertNull(LockFile.tryAcquire(lockPath));
+    }
+  }
+}
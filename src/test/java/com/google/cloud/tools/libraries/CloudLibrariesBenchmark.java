@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.libraries;
+
+import com.google.cloud.tools.libraries.json.CloudLibrary;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the first load of the bundled libraries in a fresh JVM, as an IDE plugin sees it at
+ * start-up, from the snapshot compiled by the build and from {@code libraries.json} through Gson.
+ * Each fork measures a single cold load. The snapshot exists once the build has run the {@code
+ * process-classes} phase.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+@SuppressWarnings("NullAway")
+public class CloudLibrariesBenchmark {
+
+  @Benchmark
+  public List<CloudLibrary> snapshot() throws IOException {
+    // includes reading and hashing libraries.json, which the snapshot is checked against
+    return new CloudLibraries(CloudLibraries.LIBRARIES_SNAPSHOT, "libraries.json").getLibraries();
+  }
+
+  @Benchmark
+  public List<CloudLibrary> json() throws IOException {
+    return new CloudLibraries("libraries.json").getLibraries();
+  }
+}
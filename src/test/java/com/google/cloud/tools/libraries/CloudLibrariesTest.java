@@ -32,6 +32,19 @@ public final class CloudLibrariesTest {
     assertFalse(CloudLibraries.getCloudLibraries().isEmpty());
   }
 
+  @Test
+  public void getLibraries_withMissingSnapshot_readsJson() throws IOException {
+    CloudLibraries cloudLibraries = new CloudLibraries("does-not.exist", "libraries.json");
+    assertEquals(CloudLibraries.getCloudLibraries().size(), cloudLibraries.getLibraries().size());
+  }
+
+  @Test
+  public void getLibraries_withStaleSnapshot_readsJson() throws IOException {
+    // stale-libraries.bin was compiled from a different, empty, libraries file
+    CloudLibraries cloudLibraries = new CloudLibraries("stale-libraries.bin", "libraries.json");
+    assertEquals(CloudLibraries.getCloudLibraries().size(), cloudLibraries.getLibraries().size());
+  }
+
   @Test
   public void getLibraries_withMissingFile_throwsException() throws IOException {
     CloudLibraries cloudLibraries = new CloudLibraries("does-not.exist");
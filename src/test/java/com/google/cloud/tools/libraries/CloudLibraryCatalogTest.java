@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.libraries.json.CloudLibrary;
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/** Unit tests for {@link CloudLibraryCatalog}. */
+public final class CloudLibraryCatalogTest {
+
+  private static final String LIBRARIES =
+      "[{'name': 'Cloud Storage', 'id': 'storage', 'serviceName': 'storage.googleapis.com',"
+          + " 'clients': [{'mavenCoordinates':"
+          + " {'groupId': 'com.google.cloud', 'artifactId': 'google-cloud-storage'}}]},"
+          + " {'name': 'Cloud Pub/Sub', 'id': 'pubsub', 'serviceName': 'pubsub.googleapis.com'},"
+          + " {'name': 'Stackdriver Logging', 'id': 'logging'},"
+          + " {'name': 'Duplicate Storage', 'id': 'storage'},"
+          + " {'description': 'no name or id'}]";
+
+  private final List<CloudLibrary> libraries =
+      new Gson().fromJson(LIBRARIES, new TypeToken<List<CloudLibrary>>() {}.getType());
+  private final CloudLibraryCatalog catalog = new CloudLibraryCatalog(libraries);
+
+  @Test
+  public void getLibraries_keepsOrder() {
+    assertEquals(libraries, catalog.getLibraries());
+  }
+
+  @Test
+  public void getLibraryById() {
+    assertSame(libraries.get(1), catalog.getLibraryById("pubsub"));
+    // the first library with an ID wins
+    assertSame(libraries.get(0), catalog.getLibraryById("storage"));
+    assertNull(catalog.getLibraryById("unknown"));
+  }
+
+  @Test
+  public void getLibraryByMavenCoordinates() {
+    assertSame(
+        libraries.get(0),
+        catalog.getLibraryByMavenCoordinates("com.google.cloud", "google-cloud-storage"));
+    assertNull(catalog.getLibraryByMavenCoordinates("com.google.cloud", "google-cloud-pubsub"));
+  }
+
+  @Test
+  public void getLibraryByServiceName() {
+    assertSame(libraries.get(1), catalog.getLibraryByServiceName("pubsub.googleapis.com"));
+    assertNull(catalog.getLibraryByServiceName("logging.googleapis.com"));
+  }
+
+  @Test
+  public void search_prefixesOfWords() {
+    assertEquals(libraries.subList(0, 2), catalog.search("cloud"));
+    assertEquals(libraries.subList(1, 2), catalog.search("  Cl PUB "));
+    assertEquals(libraries.subList(1, 2), catalog.search("sub"));
+    List<CloudLibrary> storage = new ArrayList<>();
+    storage.add(libraries.get(0));
+    storage.add(libraries.get(3));
+    assertEquals(storage, catalog.search("stor"));
+  }
+
+  @Test
+  public void search_noMatch() {
+    assertTrue(catalog.search("cloud logging").isEmpty());
+    assertTrue(catalog.search("").isEmpty());
+    assertTrue(catalog.search("/").isEmpty());
+  }
+
+  @Test
+  public void getCatalog_indexesBundledLibraries() throws IOException {
+    CloudLibraryCatalog bundled = CloudLibraries.getCatalog();
+    assertSame(bundled, CloudLibraries.getCatalog());
+
+    CloudLibrary storage = Preconditions.checkNotNull(bundled.getLibraryById("googlecloudstorage"));
+    assertEquals("Cloud Storage", storage.getName());
+    assertSame(
+        storage, bundled.getLibraryByMavenCoordinates("com.google.cloud", "google-cloud-storage"));
+    assertSame(storage, bundled.getLibraryByServiceName("storage-component.googleapis.com"));
+    assertTrue(bundled.search("cloud stor").contains(storage));
+  }
+}
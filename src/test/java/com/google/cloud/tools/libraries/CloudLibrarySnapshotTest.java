@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.google.cloud.tools.libraries.json.CloudLibrary;
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Unit tests for {@link CloudLibrarySnapshot}. */
+public final class CloudLibrarySnapshotTest {
+
+  private static final Type LIST_TYPE = new TypeToken<List<CloudLibrary>>() {}.getType();
+  private static final String SOURCE_SHA256 = CloudLibrarySnapshot.sha256(new byte[0]);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final Gson gson = new Gson();
+
+  @Test
+  public void read_returnsWrittenLibraries() throws IOException {
+    List<CloudLibrary> libraries = readBundledJson();
+    ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+    CloudLibrarySnapshot.write(libraries, SOURCE_SHA256, snapshot);
+
+    List<CloudLibrary> read =
+        CloudLibrarySnapshot.read(new ByteArrayInputStream(snapshot.toByteArray()), SOURCE_SHA256);
+    assertEquals(gson.toJson(libraries), gson.toJson(read));
+  }
+
+  @Test
+  public void read_withMissingValues() throws IOException {
+    List<CloudLibrary> libraries =
+        gson.fromJson(
+            "[{'name': 'no clients'}, {'clients': [{'name': 'no coordinates'}], 'transports': []},"
+                + " {'clients': [{'mavenCoordinates': {'version': '1.0'}}]}]",
+            LIST_TYPE);
+    ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+    CloudLibrarySnapshot.write(libraries, SOURCE_SHA256, snapshot);
+
+    List<CloudLibrary> read =
+        CloudLibrarySnapshot.read(new ByteArrayInputStream(snapshot.toByteArray()), SOURCE_SHA256);
+    assertEquals(gson.toJson(libraries), gson.toJson(read));
+  }
+
+  @Test
+  public void read_withDifferentSource_returnsNull() throws IOException {
+    ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+    CloudLibrarySnapshot.write(readBundledJson(), SOURCE_SHA256, snapshot);
+
+    String otherSha256 = CloudLibrarySnapshot.sha256("[]".getBytes(StandardCharsets.UTF_8));
+    assertNull(
+        CloudLibrarySnapshot.read(new ByteArrayInputStream(snapshot.toByteArray()), otherSha256));
+  }
+
+  @Test
+  public void read_notASnapshot() {
+    try {
+      CloudLibrarySnapshot.read(
+          new ByteArrayInputStream("[{}]\n".getBytes(StandardCharsets.UTF_8)), SOURCE_SHA256);
+      fail("Expected IOException to be thrown.");
+    } catch (IOException ex) {
+      assertEquals("Not a libraries snapshot", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void main_compilesJson() throws IOException {
+    Path json = temporaryFolder.newFile("libraries.json").toPath();
+    Files.write(json, "[{\"id\": \"myapi\"}]".getBytes(StandardCharsets.UTF_8));
+    Path snapshot = temporaryFolder.getRoot().toPath().resolve("out/libraries.bin");
+
+    CloudLibrarySnapshot.main(new String[] {json.toString(), snapshot.toString()});
+
+    try (InputStream input = Files.newInputStream(snapshot)) {
+      List<CloudLibrary> read =
+          Preconditions.checkNotNull(
+              CloudLibrarySnapshot.read(
+                  input, CloudLibrarySnapshot.sha256(Files.readAllBytes(json))));
+      assertEquals(1, read.size());
+      assertEquals("myapi", read.get(0).getId());
+    }
+  }
+
+  private List<CloudLibrary> readBundledJson() throws IOException {
+    Path librariesJson =
+        Paths.get("src/main/resources/com/google/cloud/tools/libraries/libraries.json");
+    try (Reader reader = Files.newBufferedReader(librariesJson, StandardCharsets.UTF_8)) {
+      return gson.fromJson(reader, LIST_TYPE);
+    }
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
@@ -121,6 +122,26 @@ public final class CloudLibraryTest {
     assertEquals(client2, clients.get(1).getName());
   }
 
+  @Test
+  public void parse_withClients_returnsUnmodifiableList() {
+    CloudLibrary library = parse("{clients:[{name:client}], serviceRoles:[role]}");
+    List<CloudLibraryClient> clients = Preconditions.checkNotNull(library.getClients());
+    List<String> serviceRoles = Preconditions.checkNotNull(library.getServiceRoles());
+
+    try {
+      clients.clear();
+      fail("clients should not be modifiable");
+    } catch (UnsupportedOperationException expected) {
+      assertEquals(1, clients.size());
+    }
+    try {
+      serviceRoles.add("other role");
+      fail("service roles should not be modifiable");
+    } catch (UnsupportedOperationException expected) {
+      assertEquals(1, serviceRoles.size());
+    }
+  }
+
   @Test
   public void parse_withEmptyJson_doesNotThrowException() {
     // The test will fail if this throws an exception.
@@ -23,6 +23,7 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -46,8 +47,6 @@ public class AsyncByteConsumerTest {
 
   @Test
   public void testHandleStream() {
-    Mockito.when(executorService.isShutdown()).thenReturn(false);
-
     ListeningExecutorService listeningExecutorService =
         MoreExecutors.listeningDecorator(executorService);
 
@@ -55,21 +54,21 @@ public class AsyncByteConsumerTest {
         new AsyncByteConsumer(mockByteHandler, listeningExecutorService, future);
     consumer.handleStream(mockInputStream);
 
-    Mockito.verify(executorService).isShutdown();
+    // the executor may be shared, so it is not shut down
     Mockito.verify(executorService).execute(Mockito.<Runnable>any());
-    Mockito.verify(executorService).shutdown();
     Mockito.verifyNoMoreInteractions(executorService);
   }
 
   @Test
   public void testHandleStream_failIfReused() {
-    Mockito.when(executorService.isShutdown()).thenReturn(true);
     ListeningExecutorService listeningExecutorService =
         MoreExecutors.listeningDecorator(executorService);
+    AsyncByteConsumer consumer =
+        new AsyncByteConsumer(mockByteHandler, listeningExecutorService, future);
+    consumer.handleStream(mockInputStream);
 
     try {
-      new AsyncByteConsumer(mockByteHandler, listeningExecutorService, future)
-          .handleStream(mockInputStream);
+      consumer.handleStream(mockInputStream);
       Assert.fail("IllegalStateException expected but not thrown");
     } catch (IllegalStateException ex) {
       // pass
@@ -77,6 +76,23 @@ public class AsyncByteConsumerTest {
     }
   }
 
+  @Test
+  public void testHandleStream_sharedExecutor() throws Exception {
+    ExecutorService sharedExecutor = Executors.newSingleThreadExecutor();
+    try {
+      AsyncStreamSaverFactory factory = new AsyncStreamSaverFactory(sharedExecutor, 4);
+      for (int i = 0; i < 3; i++) {
+        AsyncStreamSaver saver = factory.newSaver();
+        saver.handleStream(
+            new ByteArrayInputStream(TEST_STRING.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(TEST_STRING, saver.getResult().get());
+      }
+      Assert.assertFalse(sharedExecutor.isShutdown());
+    } finally {
+      sharedExecutor.shutdownNow();
+    }
+  }
+
   @Test
   public void testConsumeBytes() throws Exception {
     ListeningExecutorService listeningExecutorService =
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.managedcloudsdk.command;
 
+import com.google.cloud.tools.io.CapturedOutput;
 import com.google.cloud.tools.managedcloudsdk.process.ProcessExecutor;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractFuture;
@@ -164,4 +165,44 @@ public class CommandCallerTest {
 
     verifyCommandExecution();
   }
+
+  @Test
+  public void testCallStreaming()
+      throws IOException, InterruptedException, CommandExecutionException, CommandExitException {
+    Mockito.when(mockStreamSaverFactory.newSaver(Mockito.any(CapturedOutput.class)))
+        .thenReturn(mockStdoutSaver);
+    Mockito.when(mockStreamSaverFactory.newSaver()).thenReturn(mockStderrSaver);
+
+    try (CapturedOutput output =
+        testCommandCaller.callStreaming(fakeCommand, fakeWorkingDirectory, fakeEnvironment, 10)) {
+      Mockito.verify(mockStreamSaverFactory).newSaver(output);
+      Assert.assertEquals(0, output.size());
+    }
+    verifyCommandExecution();
+  }
+
+  @Test
+  public void testCallStreaming_nonZeroExit()
+      throws IOException, InterruptedException, CommandExecutionException {
+    Mockito.when(mockStreamSaverFactory.newSaver(Mockito.any(CapturedOutput.class)))
+        .thenReturn(mockStdoutSaver);
+    Mockito.when(mockStreamSaverFactory.newSaver()).thenReturn(mockStderrSaver);
+    Mockito.when(
+            mockProcessExecutor.run(
+                fakeCommand,
+                fakeWorkingDirectory,
+                fakeEnvironment,
+                mockStdoutSaver,
+                mockStderrSaver))
+        .thenReturn(10);
+
+    try {
+      testCommandCaller.callStreaming(fakeCommand, fakeWorkingDirectory, fakeEnvironment, 10);
+      Assert.fail("CommandExitException expected but not found.");
+    } catch (CommandExitException ex) {
+      Assert.assertEquals(10, ex.getExitCode());
+      Assert.assertEquals("stderr", ex.getErrorLog());
+    }
+    verifyCommandExecution();
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.components;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ComponentStateCacheTest {
+
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
+  private final ComponentStateCache cache = new ComponentStateCache();
+  private Path sdkHome;
+  private Path stateDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    sdkHome = testDir.newFolder("google-cloud-sdk").toPath();
+    stateDirectory = Files.createDirectory(sdkHome.resolve(ComponentStateCache.STATE_DIRECTORY));
+    Files.createFile(stateDirectory.resolve(".snapshot.json"));
+    Files.createFile(stateDirectory.resolve("core.manifest"));
+    addComponent("core");
+    addComponent("app-engine-java");
+  }
+
+  private void addComponent(String id) throws IOException {
+    Files.createFile(stateDirectory.resolve(id + ComponentStateCache.SNAPSHOT_SUFFIX));
+  }
+
+  private void setStamp(long millis) throws IOException {
+    Files.setLastModifiedTime(stateDirectory, FileTime.fromMillis(millis));
+  }
+
+  @Test
+  public void testGetInstalledComponents() throws IOException {
+    Assert.assertEquals(
+        ImmutableSet.of("core", "app-engine-java"), cache.getInstalledComponents(sdkHome));
+  }
+
+  @Test
+  public void testGetInstalledComponents_noInstallationState() throws IOException {
+    Assert.assertNull(cache.getInstalledComponents(testDir.newFolder().toPath()));
+  }
+
+  @Test
+  public void testGetInstalledComponents_cachedUntilModified() throws IOException {
+    long stamp = System.currentTimeMillis() - 60_000;
+    setStamp(stamp);
+    ImmutableSet<String> components = cache.getInstalledComponents(sdkHome);
+
+    // a change that keeps the stamp is not seen, so the state was not read again
+    addComponent("beta");
+    setStamp(stamp);
+    Assert.assertSame(components, cache.getInstalledComponents(sdkHome));
+
+    setStamp(stamp + 1000);
+    Assert.assertEquals(
+        ImmutableSet.of("core", "app-engine-java", "beta"), cache.getInstalledComponents(sdkHome));
+  }
+
+  @Test
+  public void testGetInstalledComponents_recentStateReadAgain() throws IOException {
+    long stamp = System.currentTimeMillis();
+    setStamp(stamp);
+    cache.getInstalledComponents(sdkHome);
+
+    // the stamp could have been kept by a change within the file system's timestamp resolution
+    addComponent("beta");
+    setStamp(stamp);
+    Assert.assertEquals(
+        ImmutableSet.of("core", "app-engine-java", "beta"), cache.getInstalledComponents(sdkHome));
+  }
+}
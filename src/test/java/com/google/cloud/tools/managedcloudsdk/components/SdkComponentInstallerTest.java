@@ -21,13 +21,17 @@ import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandRunner;
+import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -37,6 +41,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class SdkComponentInstallerTest {
 
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
   @Mock private ConsoleListener mockConsoleListener;
   @Mock private ProgressListener mockProgressListener;
   @Mock private CommandRunner mockCommandRunner;
@@ -100,6 +106,95 @@ public class SdkComponentInstallerTest {
             Mockito.any(ConsoleListener.class));
   }
 
+  @Test
+  public void testInstallComponents_singleInvocation()
+      throws InterruptedException, CommandExitException, CommandExecutionException {
+    Mockito.doAnswer(
+            invocation -> {
+              ConsoleListener listener = invocation.getArgument(3);
+              listener.console("Installing: App Engine Java\nInstalling: Cloud ");
+              listener.console("Datastore Emulator\n");
+              return null;
+            })
+        .when(mockCommandRunner)
+        .run(
+            Mockito.anyList(),
+            Mockito.nullable(Path.class),
+            Mockito.<Map<String, String>>any(),
+            Mockito.any(ConsoleListener.class));
+    SdkComponentInstaller testInstaller =
+        new SdkComponentInstaller(fakeGcloudPath, mockCommandRunner, null);
+    testInstaller.installComponents(
+        Arrays.asList(testComponent, SdkComponent.CLOUD_DATASTORE_EMULATOR),
+        mockProgressListener,
+        mockConsoleListener);
+
+    Mockito.verify(mockCommandRunner)
+        .run(
+            Mockito.eq(
+                Arrays.asList(
+                    fakeGcloudPath.toString(),
+                    "components",
+                    "install",
+                    "app-engine-java",
+                    "cloud-datastore-emulator",
+                    "--quiet")),
+            Mockito.nullable(Path.class),
+            Mockito.<Map<String, String>>any(),
+            Mockito.any(ConsoleListener.class));
+    Mockito.verify(mockProgressListener).start(Mockito.anyString(), Mockito.eq(2L));
+    Mockito.verify(mockProgressListener).update("Installing App Engine Java");
+    Mockito.verify(mockProgressListener).update("Installing Cloud Datastore Emulator");
+    Mockito.verify(mockProgressListener, Mockito.times(2)).update(1L);
+    Mockito.verify(mockProgressListener).done();
+    Mockito.verify(mockConsoleListener).console("Datastore Emulator\n");
+  }
+
+  @Test
+  public void testInstallComponents_skipsInstalledComponents()
+      throws InterruptedException, CommandExitException, CommandExecutionException, IOException {
+    Path gcloudPath = createSdkWithComponents("core", "app-engine-java");
+    SdkComponentInstaller testInstaller =
+        new SdkComponentInstaller(gcloudPath, mockCommandRunner, null);
+    testInstaller.installComponents(
+        Arrays.asList(testComponent, SdkComponent.BETA), mockProgressListener, mockConsoleListener);
+
+    Mockito.verify(mockCommandRunner)
+        .run(
+            Mockito.eq(
+                Arrays.asList(gcloudPath.toString(), "components", "install", "beta", "--quiet")),
+            Mockito.nullable(Path.class),
+            Mockito.<Map<String, String>>any(),
+            Mockito.any(ConsoleListener.class));
+    // no console line was recognized, the component is reported when gcloud is done
+    Mockito.verify(mockProgressListener).start(Mockito.anyString(), Mockito.eq(1L));
+    Mockito.verify(mockProgressListener).update(1L);
+    Mockito.verify(mockProgressListener).done();
+  }
+
+  @Test
+  public void testInstallComponents_allInstalled()
+      throws InterruptedException, CommandExitException, CommandExecutionException, IOException {
+    Path gcloudPath = createSdkWithComponents("core", "app-engine-java");
+    SdkComponentInstaller testInstaller =
+        new SdkComponentInstaller(gcloudPath, mockCommandRunner, mockBundledPythonCopier);
+    testInstaller.installComponents(
+        Arrays.asList(testComponent, SdkComponent.CORE), mockProgressListener, mockConsoleListener);
+
+    Mockito.verifyNoInteractions(mockCommandRunner);
+    Mockito.verify(mockProgressListener).done();
+  }
+
+  private Path createSdkWithComponents(String... componentIds) throws IOException {
+    Path sdkHome = testDir.newFolder("google-cloud-sdk").toPath();
+    Path stateDirectory =
+        Files.createDirectory(sdkHome.resolve(ComponentStateCache.STATE_DIRECTORY));
+    for (String id : componentIds) {
+      Files.createFile(stateDirectory.resolve(id + ComponentStateCache.SNAPSHOT_SUFFIX));
+    }
+    return sdkHome.resolve("bin").resolve("gcloud");
+  }
+
   private List<String> expectedCommand() {
     return Arrays.asList(
         fakeGcloudPath.toString(), "components", "install", testComponent.toString(), "--quiet");
@@ -16,18 +16,24 @@
 
 package com.google.cloud.tools.managedcloudsdk.components;
 
+import com.google.cloud.tools.io.LockFile;
 import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandRunner;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -37,6 +43,8 @@ import org.mockito.junit.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class SdkUpdaterTest {
 
+  @Rule public TemporaryFolder testDir = new TemporaryFolder();
+
   @Mock private ConsoleListener mockConsoleListener;
   @Mock private ProgressListener mockProgressListener;
   @Mock private CommandRunner mockCommandRunner;
@@ -97,6 +105,72 @@ public class SdkUpdaterTest {
             Mockito.any(ConsoleListener.class));
   }
 
+  @Test
+  public void testUpdate_withLockFile()
+      throws InterruptedException, CommandExitException, CommandExecutionException {
+    Path lockFile = testDir.getRoot().toPath().resolve("LATEST.lock");
+    SdkUpdater testUpdater =
+        new SdkUpdater(fakeGcloudPath, mockCommandRunner, null, lockFile, () -> true);
+    testUpdater.update(mockProgressListener, mockConsoleListener);
+    Mockito.verify(mockCommandRunner)
+        .run(
+            Mockito.eq(expectedCommand()),
+            Mockito.nullable(Path.class),
+            Mockito.<Map<String, String>>any(),
+            Mockito.eq(mockConsoleListener));
+    Assert.assertTrue(Files.exists(lockFile));
+  }
+
+  @Test
+  public void testUpdate_skippedAfterWaitingForLock() throws Exception {
+    Path lockFile = testDir.getRoot().toPath().resolve("LATEST.lock");
+    SdkUpdater testUpdater =
+        new SdkUpdater(fakeGcloudPath, mockCommandRunner, null, lockFile, () -> true);
+    updateWhileLocked(testUpdater, lockFile);
+
+    Mockito.verifyNoInteractions(mockCommandRunner);
+    Mockito.verify(mockProgressListener).done();
+  }
+
+  @Test
+  public void testUpdate_runAfterWaitingForFailedUpdate() throws Exception {
+    Path lockFile = testDir.getRoot().toPath().resolve("LATEST.lock");
+    SdkUpdater testUpdater =
+        new SdkUpdater(fakeGcloudPath, mockCommandRunner, null, lockFile, () -> false);
+    updateWhileLocked(testUpdater, lockFile);
+
+    Mockito.verify(mockCommandRunner)
+        .run(
+            Mockito.eq(expectedCommand()),
+            Mockito.nullable(Path.class),
+            Mockito.<Map<String, String>>any(),
+            Mockito.eq(mockConsoleListener));
+  }
+
+  /** Starts an update while the lock is held and waits for it once the lock is released. */
+  private void updateWhileLocked(SdkUpdater testUpdater, Path lockFile) throws Exception {
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread updateThread =
+        new Thread(
+            () -> {
+              try {
+                testUpdater.update(mockProgressListener, mockConsoleListener);
+              } catch (Exception ex) {
+                failure.set(ex);
+              }
+            });
+
+    try (LockFile lock = LockFile.acquire(lockFile)) {
+      updateThread.start();
+      while (updateThread.getState() != Thread.State.WAITING) {
+        Thread.sleep(10);
+      }
+    }
+    updateThread.join();
+
+    Assert.assertNull(failure.get());
+  }
+
   private List<String> expectedCommand() {
     return Arrays.asList(fakeGcloudPath.toString(), "components", "update", "--quiet");
   }
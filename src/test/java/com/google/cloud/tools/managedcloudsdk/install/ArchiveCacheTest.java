@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.install;
+
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveCacheTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final AtomicInteger fetches = new AtomicInteger();
+  private Path cacheDirectory;
+  private URL source;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDirectory = temporaryFolder.getRoot().toPath().resolve("cache");
+    source = new URL("https://example.com/google-cloud-sdk-1.0.0-linux-x86_64.tar.gz");
+  }
+
+  @Test
+  public void testCopyTo_downloadsOnce() throws IOException, InterruptedException {
+    ArchiveCache cache = new ArchiveCache(cacheDirectory);
+    Path first = temporaryFolder.getRoot().toPath().resolve("first/archive.tar.gz");
+    Path second = temporaryFolder.getRoot().toPath().resolve("second/archive.tar.gz");
+
+    Assert.assertTrue(cache.copyTo(source, first, null, archive -> fetch(archive, "archive")));
+    Assert.assertFalse(cache.copyTo(source, second, null, archive -> fetch(archive, "other")));
+
+    Assert.assertEquals(1, fetches.get());
+    Assert.assertEquals("archive", read(first));
+    Assert.assertEquals("archive", read(second));
+    Path entry = cacheDirectory.resolve(ArchiveCache.getKey(source));
+    Assert.assertEquals(sha256("archive"), read(entry.resolve(ArchiveCache.DIGEST_FILE)));
+  }
+
+  @Test
+  public void testCopyTo_digestMismatchDownloadsAgain() throws IOException, InterruptedException {
+    ArchiveCache cache = new ArchiveCache(cacheDirectory);
+    Path destination = temporaryFolder.getRoot().toPath().resolve("archive.tar.gz");
+
+    cache.copyTo(source, destination, null, archive -> fetch(archive, "old"));
+    Assert.assertTrue(
+        cache.copyTo(source, destination, sha256("new"), archive -> fetch(archive, "new")));
+    Assert.assertFalse(
+        cache.copyTo(source, destination, sha256("new"), archive -> fetch(archive, "new")));
+
+    Assert.assertEquals(2, fetches.get());
+    Assert.assertEquals("new", read(destination));
+  }
+
+  @Test
+  public void testCopyTo_failedFetchIsNotCached() throws IOException, InterruptedException {
+    ArchiveCache cache = new ArchiveCache(cacheDirectory);
+    Path destination = temporaryFolder.getRoot().toPath().resolve("archive.tar.gz");
+
+    try {
+      cache.copyTo(
+          source,
+          destination,
+          null,
+          archive -> {
+            throw new IOException("download failed");
+          });
+      Assert.fail("IOException expected but not thrown");
+    } catch (IOException ex) {
+      Assert.assertEquals("download failed", ex.getMessage());
+    }
+    Assert.assertFalse(Files.exists(destination));
+    Assert.assertTrue(cache.copyTo(source, destination, null, archive -> fetch(archive, "a")));
+  }
+
+  @Test
+  public void testEvict_leastRecentlyUsed() throws IOException, InterruptedException {
+    ArchiveCache cache = new ArchiveCache(cacheDirectory);
+    List<Path> entries = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      URL url = new URL("https://example.com/" + i + "/archive.tar.gz");
+      Path destination = temporaryFolder.getRoot().toPath().resolve(i + "/archive.tar.gz");
+      cache.copyTo(url, destination, null, archive -> fetch(archive, "1234"));
+      entries.add(cacheDirectory.resolve(ArchiveCache.getKey(url)));
+      setLastUsed(entries.get(i), 1000L * (i + 1));
+    }
+    // the first entry was used last, so the second one is the least recently used
+    setLastUsed(entries.get(0), 4000L);
+
+    // room for two 4 byte archives and their digests
+    new ArchiveCache(cacheDirectory, 2 * (4 + 64)).evict("");
+
+    Assert.assertTrue(Files.exists(entries.get(0)));
+    Assert.assertFalse(Files.exists(entries.get(1)));
+    Assert.assertTrue(Files.exists(entries.get(2)));
+  }
+
+  @Test
+  public void testCopyTo_keepsNewEntryWhenOverMaxSize() throws IOException, InterruptedException {
+    ArchiveCache cache = new ArchiveCache(cacheDirectory, 0);
+    URL other = new URL("https://example.com/other/archive.tar.gz");
+    cache.copyTo(
+        other,
+        temporaryFolder.getRoot().toPath().resolve("other/archive.tar.gz"),
+        null,
+        archive -> fetch(archive, "other"));
+    Path destination = temporaryFolder.getRoot().toPath().resolve("archive.tar.gz");
+    cache.copyTo(source, destination, null, archive -> fetch(archive, "archive"));
+
+    Assert.assertFalse(Files.exists(cacheDirectory.resolve(ArchiveCache.getKey(other))));
+    Assert.assertTrue(Files.exists(cacheDirectory.resolve(ArchiveCache.getKey(source))));
+    Assert.assertEquals("archive", read(destination));
+  }
+
+  @Test
+  public void testCopyTo_concurrentCallersShareDownload()
+      throws InterruptedException, ExecutionException {
+    ArchiveCache cache = new ArchiveCache(cacheDirectory);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        Path destination = temporaryFolder.getRoot().toPath().resolve(i + "/archive.tar.gz");
+        results.add(
+            executor.submit(
+                () -> cache.copyTo(source, destination, null, archive -> fetch(archive, "a"))));
+      }
+      for (Future<Boolean> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(1, fetches.get());
+  }
+
+  private void fetch(Path archive, String content) throws IOException {
+    fetches.incrementAndGet();
+    Files.write(archive, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void setLastUsed(Path entry, long millis) throws IOException {
+    Files.setLastModifiedTime(entry.resolve(ArchiveCache.DIGEST_FILE), FileTime.fromMillis(millis));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private static String sha256(String content) {
+    return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+  }
+}
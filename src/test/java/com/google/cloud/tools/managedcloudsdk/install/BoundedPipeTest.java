@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Google LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.managedcloudsdk.install;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedPipeTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testTransfer() throws IOException, InterruptedException, ExecutionException {
+    byte[] content = new byte[100_000];
+    new Random(0).nextBytes(content);
+    BoundedPipe pipe = new BoundedPipe(1000);
+
+    Future<Void> writer =
+        executor.submit(
+            () -> {
+              try (OutputStream out = pipe.getOutputStream()) {
+                // odd chunk sizes, so writes wrap around the end of the buffer
+                for (int offset = 0; offset < content.length; offset += 777) {
+                  out.write(content, offset, Math.min(777, content.length - offset));
+                }
+              }
+              return null;
+            });
+
+    try (InputStream in = pipe.getInputStream()) {
+      Assert.assertArrayEquals(content, ByteStreams.toByteArray(in));
+      Assert.assertEquals(-1, in.read());
+    }
+    writer.get();
+  }
+
+  @Test
+  public void testSingleBytes() throws IOException {
+    BoundedPipe pipe = new BoundedPipe(1);
+    pipe.getOutputStream().write(255);
+    Assert.assertEquals(255, pipe.getInputStream().read());
+    pipe.getOutputStream().close();
+    Assert.assertEquals(-1, pipe.getInputStream().read());
+  }
+
+  @Test
+  public void testCloseWriter_failure() throws IOException {
+    BoundedPipe pipe = new BoundedPipe(10);
+    pipe.getOutputStream().write(new byte[] {1, 2});
+    IOException failure = new IOException("download failed");
+    pipe.closeWriter(failure);
+
+    InputStream in = pipe.getInputStream();
+    // buffered bytes are still delivered
+    Assert.assertEquals(2, in.read(new byte[10]));
+    try {
+      in.read();
+      Assert.fail("IOException expected but not thrown");
+    } catch (IOException ex) {
+      Assert.assertSame(failure, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testCloseReader_unblocksWriter() throws IOException, InterruptedException {
+    BoundedPipe pipe = new BoundedPipe(10);
+
+    Future<Void> writer =
+        executor.submit(
+            () -> {
+              pipe.getOutputStream().write(new byte[100]);
+              return null;
+            });
+    pipe.getInputStream().close();
+
+    try {
+      writer.get();
+      Assert.fail("ExecutionException expected but not thrown");
+    } catch (ExecutionException ex) {
+      Assert.assertEquals("Pipe closed by reader", ex.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testWriteAfterClose() throws IOException {
+    BoundedPipe pipe = new BoundedPipe(10);
+    pipe.getOutputStream().close();
+    try {
+      pipe.getOutputStream().write(1);
+      Assert.fail("IOException expected but not thrown");
+    } catch (IOException ex) {
+      Assert.assertEquals("Pipe closed", ex.getMessage());
+    }
+  }
+}
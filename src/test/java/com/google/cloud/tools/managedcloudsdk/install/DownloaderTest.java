@@ -17,8 +17,17 @@
 package com.google.cloud.tools.managedcloudsdk.install;
 
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
@@ -26,11 +35,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -188,4 +202,373 @@ public class DownloaderTest {
     Assert.assertFalse(Files.exists(destination));
     Mockito.verify(mockProgressListener, Mockito.never()).update(100);
   }
+
+  @Test
+  public void testDownload_resumesAfterFailure() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(Downloader.BUFFER_SIZE * 10 + 1);
+    TestHttpServer server = TestHttpServer.start(content);
+    try {
+      Downloader downloader =
+          new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, true, null);
+
+      server.failAfter(Downloader.BUFFER_SIZE * 4);
+      try {
+        downloader.download();
+        Assert.fail("IOException expected but not thrown.");
+      } catch (IOException ex) {
+        // expected, the server closed the connection
+      }
+      Assert.assertFalse(Files.exists(destination));
+      long partSize = Files.size(downloader.getPartFile());
+      Assert.assertTrue(partSize > 0);
+
+      downloader.download();
+
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      Assert.assertFalse(Files.exists(downloader.getPartFile()));
+      Assert.assertEquals(Arrays.asList(null, "bytes=" + partSize + "-"), server.getRanges());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_restartsWithoutValidator() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(Downloader.BUFFER_SIZE * 10 + 1);
+    TestHttpServer server = TestHttpServer.start(content);
+    server.sendValidator = false;
+    try {
+      Downloader downloader =
+          new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, true, null);
+
+      server.failAfter(Downloader.BUFFER_SIZE * 4);
+      try {
+        downloader.download();
+        Assert.fail("IOException expected but not thrown.");
+      } catch (IOException ex) {
+        // expected, the server closed the connection
+      }
+      downloader.download();
+
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      // without a validator a changed file can't be detected, so the part file is not resumed
+      Assert.assertEquals(Arrays.asList(null, null), server.getRanges());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_restartsWhenRangesUnsupported()
+      throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(Downloader.BUFFER_SIZE * 10 + 1);
+    TestHttpServer server = TestHttpServer.start(content);
+    server.supportRanges = false;
+    try {
+      Downloader downloader =
+          new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, true, null);
+
+      server.failAfter(Downloader.BUFFER_SIZE * 4);
+      try {
+        downloader.download();
+        Assert.fail("IOException expected but not thrown.");
+      } catch (IOException ex) {
+        // expected, the server closed the connection
+      }
+      downloader.download();
+
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      Assert.assertFalse(Files.exists(downloader.getPartFile()));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_sha256Verified() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(1000);
+    String sha256 = Hashing.sha256().hashBytes(content).toString();
+    TestHttpServer server = TestHttpServer.start(content);
+    try {
+      new Downloader(server.getUrl(), destination, "user agent", mockProgressListener, true, sha256)
+          .download();
+
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      ProgressVerifier.verifyProgress(mockProgressListener, "Downloading 0.00 MB");
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_sha256Mismatch() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(1000);
+    String sha256 = Hashing.sha256().hashBytes(new byte[0]).toString();
+    TestHttpServer server = TestHttpServer.start(content);
+    try {
+      Downloader downloader =
+          new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, true, sha256);
+      try {
+        downloader.download();
+        Assert.fail("IOException expected but not thrown.");
+      } catch (IOException ex) {
+        Assert.assertThat(ex.getMessage(), CoreMatchers.containsString("but expected " + sha256));
+      }
+      Assert.assertFalse(Files.exists(destination));
+      Assert.assertFalse(Files.exists(downloader.getPartFile()));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_segmented() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    int size = (int) Downloader.MIN_SEGMENT_SIZE * 3 + 5;
+    byte[] content = createContent(size);
+    TestHttpServer server = TestHttpServer.start(content);
+    try {
+      new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, false, null, 4)
+          .download();
+
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      ProgressVerifier.verifyProgress(
+          mockProgressListener, Downloader.getDownloadStatus(size, Locale.getDefault()));
+      long segmentSize = size / 3;
+      Assert.assertEquals(
+          ImmutableSet.of(
+              "bytes=0-" + (segmentSize - 1),
+              "bytes=" + segmentSize + "-" + (2 * segmentSize - 1),
+              "bytes=" + 2 * segmentSize + "-" + (size - 1)),
+          ImmutableSet.copyOf(server.getRanges()));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_segmentedFallsBackWithoutRangeSupport()
+      throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent((int) Downloader.MIN_SEGMENT_SIZE * 3);
+    TestHttpServer server = TestHttpServer.start(content);
+    server.supportRanges = false;
+    try {
+      new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, false, null, 4)
+          .download();
+
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      Assert.assertEquals(Collections.singletonList(null), server.getRanges());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_segmentFailure() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent((int) Downloader.MIN_SEGMENT_SIZE * 2);
+    TestHttpServer server = TestHttpServer.start(content);
+    server.failAfter(1000);
+    try {
+      new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, false, null, 2)
+          .download();
+      Assert.fail("IOException expected but not thrown.");
+    } catch (IOException ex) {
+      Assert.assertFalse(Files.exists(destination));
+      Assert.assertFalse(Files.exists(tmp.getRoot().toPath().resolve("destination-file.segments")));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_resumesSegmentsAfterFailure() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent((int) Downloader.MIN_SEGMENT_SIZE * 2);
+    TestHttpServer server = TestHttpServer.start(content);
+    try {
+      Downloader downloader =
+          new Downloader(
+              server.getUrl(), destination, "user agent", mockProgressListener, true, null, 2);
+
+      server.failAfter((int) Downloader.MIN_SEGMENT_SIZE / 2);
+      try {
+        downloader.download();
+        Assert.fail("IOException expected but not thrown.");
+      } catch (IOException ex) {
+        // expected, the server closed the connection of one segment
+      }
+      Assert.assertFalse(Files.exists(destination));
+      Assert.assertTrue(Files.exists(downloader.getSegmentsFile()));
+      int firstRequests = server.getRanges().size();
+
+      downloader.download();
+
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      Assert.assertFalse(Files.exists(downloader.getSegmentsFile()));
+      // the failed segment continues after the bytes it wrote instead of starting over
+      long segmentSize = Downloader.MIN_SEGMENT_SIZE;
+      List<String> resumedRanges =
+          new ArrayList<>(server.getRanges().subList(firstRequests, server.getRanges().size()));
+      resumedRanges.removeAll(
+          Arrays.asList(
+              "bytes=0-" + (segmentSize - 1),
+              "bytes=" + segmentSize + "-" + (2 * segmentSize - 1)));
+      Assert.assertFalse(resumedRanges.isEmpty());
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_toStream() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(100_000);
+    String sha256 = Hashing.sha256().hashBytes(content).toString();
+    TestHttpServer server = TestHttpServer.start(content);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new Downloader(server.getUrl(), destination, "user agent", mockProgressListener, true, sha256)
+          .download(out, true);
+
+      Assert.assertArrayEquals(content, out.toByteArray());
+      Assert.assertArrayEquals(content, Files.readAllBytes(destination));
+      ProgressVerifier.verifyProgress(mockProgressListener, "Downloading 0.10 MB");
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testDownload_toStreamSha256Mismatch() throws IOException, InterruptedException {
+    Path destination = tmp.getRoot().toPath().resolve("destination-file");
+    byte[] content = createContent(1000);
+    String sha256 = Hashing.sha256().hashBytes(new byte[0]).toString();
+    TestHttpServer server = TestHttpServer.start(content);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new Downloader(server.getUrl(), destination, "user agent", mockProgressListener, true, sha256)
+          .download(out, true);
+      Assert.fail("IOException expected but not thrown.");
+    } catch (IOException ex) {
+      Assert.assertThat(ex.getMessage(), CoreMatchers.containsString("but expected " + sha256));
+      Assert.assertFalse(Files.exists(destination));
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static byte[] createContent(int size) {
+    byte[] content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte) i;
+    }
+    return content;
+  }
+
+  /** Serves a single file, with optional support for single range requests. */
+  private static class TestHttpServer implements HttpHandler {
+    private final HttpServer server;
+    private final byte[] content;
+    private final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean supportRanges = true;
+    private volatile boolean sendValidator = true;
+    private volatile int failAfterBytes = -1;
+
+    private TestHttpServer(HttpServer server, byte[] content) {
+      this.server = server;
+      this.content = content;
+    }
+
+    static TestHttpServer start(byte[] content) throws IOException {
+      HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      TestHttpServer testServer = new TestHttpServer(server, content);
+      server.createContext("/", testServer);
+      server.start();
+      return testServer;
+    }
+
+    URL getUrl() throws MalformedURLException {
+      return new URL("http://localhost:" + server.getAddress().getPort() + "/archive.tar.gz");
+    }
+
+    /** Closes the connection of the next response after {@code bytes} bytes. */
+    void failAfter(int bytes) {
+      failAfterBytes = bytes;
+    }
+
+    List<String> getRanges() {
+      return ranges;
+    }
+
+    void stop() {
+      server.stop(0);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+      if (sendValidator) {
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+      }
+      if (supportRanges) {
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+      }
+      if ("HEAD".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+        return;
+      }
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      ranges.add(range);
+
+      int start = 0;
+      int end = content.length;
+      if (range != null && supportRanges) {
+        String[] bounds = range.substring("bytes=".length()).split("-", -1);
+        start = Integer.parseInt(bounds[0]);
+        if (!bounds[1].isEmpty()) {
+          end = Math.min(end, Integer.parseInt(bounds[1]) + 1);
+        }
+        if (start >= content.length) {
+          exchange.sendResponseHeaders(416, -1);
+          exchange.close();
+          return;
+        }
+        exchange
+            .getResponseHeaders()
+            .add("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + content.length);
+        exchange.sendResponseHeaders(206, end - start);
+      } else {
+        exchange.sendResponseHeaders(200, content.length);
+      }
+
+      int responseEnd = end;
+      if (failAfterBytes >= 0) {
+        responseEnd = Math.min(end, start + failAfterBytes);
+        failAfterBytes = -1;
+      }
+      OutputStream out = exchange.getResponseBody();
+      out.write(content, start, responseEnd - start);
+      if (responseEnd < end) {
+        out.flush();
+        // makes the server drop the connection without completing the response
+        throw new IllegalStateException("Simulated connection failure");
+      }
+      out.close();
+    }
+  }
 }
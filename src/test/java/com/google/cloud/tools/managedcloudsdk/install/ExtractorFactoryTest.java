@@ -46,6 +46,13 @@ public class ExtractorFactoryTest {
     Assert.assertTrue(testExtractor.getExtractorProvider() instanceof TarGzExtractorProvider);
   }
 
+  @Test
+  public void testIsStreamable() {
+    ExtractorFactory factory = new ExtractorFactory();
+    Assert.assertTrue(factory.isStreamable(tmp.getRoot().toPath().resolve("test.tar.gz")));
+    Assert.assertFalse(factory.isStreamable(tmp.getRoot().toPath().resolve("test.zip")));
+  }
+
   @Test
   public void testNewExtractor_unknownArchiveType() throws IOException {
     // make sure out check starts from end of filename
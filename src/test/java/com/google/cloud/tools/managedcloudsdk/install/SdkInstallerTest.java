@@ -16,14 +16,25 @@
 
 package com.google.cloud.tools.managedcloudsdk.install;
 
+import com.google.cloud.tools.io.LockFile;
 import com.google.cloud.tools.managedcloudsdk.ConsoleListener;
+import com.google.cloud.tools.managedcloudsdk.OsInfo;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
+import com.google.cloud.tools.managedcloudsdk.Version;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExecutionException;
 import com.google.cloud.tools.managedcloudsdk.command.CommandExitException;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -66,6 +77,7 @@ public class SdkInstallerTest {
   private Path fakeSdkHome;
   private String fakeGcloudExecutable;
   private Path fakeGcloud;
+  @Nullable private Path stagingDestination;
 
   @Before
   public void setUpMocksAndFakes()
@@ -95,51 +107,88 @@ public class SdkInstallerTest {
     // SUCCESS MOCKS
     Mockito.doReturn(successfulDownloader)
         .when(successfulDownloaderFactory)
-        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener);
+        .newDownloader(fakeArchiveSource, fakeArchiveDestination, null, progressListener);
     Mockito.doAnswer(createPathAnswer(fakeArchiveDestination, false))
         .when(successfulDownloader)
         .download();
 
+    // Installs are extracted into a staging directory, which the extractor factories record
     // A "LATEST" extractor will result in a cloud sdk home with no gcloud file until install
-    Mockito.doReturn(successfulLatestExtractor)
+    Mockito.doAnswer(stagingAnswer(successfulLatestExtractor))
         .when(successfulLatestExtractorFactory)
-        .newExtractor(fakeArchiveDestination, fakeArchiveExtractionDestination, progressListener);
-    Mockito.doAnswer(
-            createPathAnswer(fakeArchiveExtractionDestination.resolve("google-cloud-sdk"), true))
+        .newExtractor(
+            Mockito.eq(fakeArchiveDestination),
+            Mockito.any(Path.class),
+            Mockito.eq(progressListener));
+    Mockito.doAnswer(createPathAnswer(this::getStagedSdkHome, true))
         .when(successfulLatestExtractor)
         .extract();
 
     // A "versioned" extractor will result in a gcloud file
-    Mockito.doReturn(successfulVersionedExtractor)
+    Mockito.doAnswer(stagingAnswer(successfulVersionedExtractor))
         .when(successfulVersionedExtractorFactory)
-        .newExtractor(fakeArchiveDestination, fakeArchiveExtractionDestination, progressListener);
-    Mockito.doAnswer(createPathAnswer(fakeGcloud, false))
+        .newExtractor(
+            Mockito.eq(fakeArchiveDestination),
+            Mockito.any(Path.class),
+            Mockito.eq(progressListener));
+    Mockito.doAnswer(createPathAnswer(this::getStagedGcloud, false))
         .when(successfulVersionedExtractor)
         .extract();
 
     Mockito.doReturn(successfulInstaller)
         .when(successfulInstallerFactory)
-        .newInstaller(fakeSdkHome, progressListener, consoleListener);
-    Mockito.doAnswer(createPathAnswer(fakeGcloud, false)).when(successfulInstaller).install();
+        .newInstaller(
+            Mockito.any(Path.class), Mockito.eq(progressListener), Mockito.eq(consoleListener));
+    Mockito.doAnswer(createPathAnswer(this::getStagedGcloud, false))
+        .when(successfulInstaller)
+        .install();
 
     // FAIL (NO-OP) MOCKS
     Mockito.doReturn(Mockito.mock(Downloader.class))
         .when(failureDownloaderFactory)
-        .newDownloader(fakeArchiveSource, fakeArchiveDestination, progressListener);
+        .newDownloader(fakeArchiveSource, fakeArchiveDestination, null, progressListener);
 
-    Mockito.doReturn(Mockito.mock(Extractor.class))
+    Mockito.doAnswer(stagingAnswer(Mockito.mock(Extractor.class)))
         .when(failureExtractorFactory)
-        .newExtractor(fakeArchiveDestination, fakeArchiveExtractionDestination, progressListener);
+        .newExtractor(
+            Mockito.eq(fakeArchiveDestination),
+            Mockito.any(Path.class),
+            Mockito.eq(progressListener));
 
     Mockito.doReturn(Mockito.mock(Installer.class))
         .when(failureInstallerFactory)
-        .newInstaller(fakeSdkHome, progressListener, consoleListener);
+        .newInstaller(
+            Mockito.any(Path.class), Mockito.eq(progressListener), Mockito.eq(consoleListener));
+  }
+
+  private Answer<Extractor> stagingAnswer(Extractor extractor) {
+    return invocation -> {
+      stagingDestination = invocation.getArgument(1);
+      return extractor;
+    };
+  }
+
+  private Path getStagingDestination() {
+    return Preconditions.checkNotNull(stagingDestination, "No extractor was created");
+  }
+
+  private Path getStagedSdkHome() {
+    return getStagingDestination().resolve("google-cloud-sdk");
+  }
+
+  private Path getStagedGcloud() {
+    return getStagedSdkHome().resolve("bin").resolve(fakeGcloudExecutable);
   }
 
   private Answer<Void> createPathAnswer(Path pathToCreate, boolean isDirectory) {
+    return createPathAnswer(() -> pathToCreate, isDirectory);
+  }
+
+  private Answer<Void> createPathAnswer(Supplier<Path> pathSupplier, boolean isDirectory) {
     return new Answer<Void>() {
       @Override
       public Void answer(InvocationOnMock invocation) throws Throwable {
+        Path pathToCreate = pathSupplier.get();
         if (!pathToCreate.startsWith(testDir.getRoot().toPath())) {
           throw new IllegalArgumentException("Test should not create files outside the test root");
         }
@@ -220,7 +269,7 @@ public class SdkInstallerTest {
       Assert.fail("SdKInstallerException expected but not thrown");
     } catch (SdkInstallerException ex) {
       Assert.assertEquals(
-          "Extraction succeeded but valid sdk home not found at " + fakeSdkHome.toString(),
+          "Extraction succeeded but valid sdk home not found at " + getStagedSdkHome(),
           ex.getMessage());
     }
   }
@@ -240,8 +289,217 @@ public class SdkInstallerTest {
       Assert.fail("SdKInstallerException expected but not thrown");
     } catch (SdkInstallerException ex) {
       Assert.assertEquals(
-          "Installation succeeded but gcloud executable not found at " + fakeGcloud.toString(),
+          "Installation succeeded but gcloud executable not found at " + getStagedGcloud(),
           ex.getMessage());
     }
   }
+
+  @Test
+  public void testDownloadSdk_streamingExtraction()
+      throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
+          SdkInstallerException {
+    Mockito.when(successfulVersionedExtractorFactory.isStreamable(fakeArchiveDestination))
+        .thenReturn(true);
+    Mockito.doAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(0);
+              out.write(new byte[] {1, 2, 3});
+              return null;
+            })
+        .when(successfulDownloader)
+        .download(Mockito.any(OutputStream.class), Mockito.eq(true));
+    Mockito.doAnswer(
+            invocation -> {
+              InputStream in = invocation.getArgument(0);
+              Assert.assertEquals(1, in.read());
+              Files.createDirectories(getStagedGcloud().getParent());
+              Files.createFile(getStagedGcloud());
+              return null;
+            })
+        .when(successfulVersionedExtractor)
+        .extract(Mockito.any(InputStream.class));
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulVersionedExtractorFactory,
+            null,
+            null,
+            true,
+            null);
+    Path result = testInstaller.install(progressListener, consoleListener);
+
+    Assert.assertEquals(fakeSdkHome, result);
+    Mockito.verify(successfulDownloader, Mockito.never()).download();
+    Mockito.verify(successfulVersionedExtractor, Mockito.never()).extract();
+  }
+
+  @Test
+  public void testDownloadSdk_streamingExtractionFailedDownload()
+      throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
+          SdkInstallerException {
+    Mockito.when(successfulVersionedExtractorFactory.isStreamable(fakeArchiveDestination))
+        .thenReturn(true);
+    Mockito.doAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(0);
+              out.write(new byte[] {1, 2, 3});
+              throw new IOException("Connection reset");
+            })
+        .when(successfulDownloader)
+        .download(Mockito.any(OutputStream.class), Mockito.eq(true));
+    Mockito.doAnswer(
+            invocation -> {
+              InputStream in = invocation.getArgument(0);
+              Files.createDirectories(getStagedGcloud().getParent());
+              ByteStreams.exhaust(in);
+              return null;
+            })
+        .when(successfulVersionedExtractor)
+        .extract(Mockito.any(InputStream.class));
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulVersionedExtractorFactory,
+            null,
+            null,
+            true,
+            null);
+    try {
+      testInstaller.install(progressListener, consoleListener);
+      Assert.fail("IOException expected but not thrown");
+    } catch (IOException ex) {
+      Assert.assertEquals("Connection reset", ex.getCause().getMessage());
+    }
+    Assert.assertFalse(Files.exists(fakeArchiveExtractionDestination));
+    Assert.assertFalse(Files.exists(getStagedSdkHome()));
+  }
+
+  @Test
+  public void testDownloadSdk_publishesStagedInstall()
+      throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
+          SdkInstallerException {
+    Path staleStaging =
+        fakeArchiveExtractionDestination.resolveSibling(
+            "test-version" + SdkInstaller.STAGING_SUFFIX + "123");
+    Files.createDirectories(staleStaging.resolve("google-cloud-sdk"));
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulVersionedExtractorFactory,
+            null);
+    testInstaller.install(progressListener, consoleListener);
+
+    Assert.assertTrue(Files.isRegularFile(fakeGcloud));
+    Assert.assertNotEquals(fakeArchiveExtractionDestination, getStagingDestination());
+    Assert.assertFalse(Files.exists(getStagedSdkHome()));
+    Assert.assertFalse(Files.exists(staleStaging));
+  }
+
+  @Test
+  public void testDownloadSdk_replacesPreviousInstall()
+      throws CommandExecutionException, InterruptedException, IOException, CommandExitException,
+          SdkInstallerException {
+    Path oldFile = fakeArchiveExtractionDestination.resolve("old-file");
+    Files.createDirectories(fakeArchiveExtractionDestination);
+    Files.createFile(oldFile);
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulVersionedExtractorFactory,
+            null);
+    testInstaller.install(progressListener, consoleListener);
+
+    Assert.assertTrue(Files.isRegularFile(fakeGcloud));
+    Assert.assertFalse(Files.exists(oldFile));
+    try (DirectoryStream<Path> siblings =
+        Files.newDirectoryStream(
+            fakeArchiveExtractionDestination.getParent(),
+            "test-version" + SdkInstaller.STAGING_SUFFIX + "*")) {
+      Assert.assertFalse(siblings.iterator().hasNext());
+    }
+  }
+
+  @Test
+  public void testDownloadSdk_failureKeepsPreviousInstall()
+      throws InterruptedException, IOException, CommandExitException, CommandExecutionException {
+    Files.createDirectories(fakeGcloud.getParent());
+    Files.createFile(fakeGcloud);
+
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            failureExtractorFactory,
+            successfulInstallerFactory);
+    try {
+      testInstaller.install(progressListener, consoleListener);
+      Assert.fail("SdKInstallerException expected but not thrown");
+    } catch (SdkInstallerException ex) {
+      // expected
+    }
+
+    Assert.assertTrue(Files.isRegularFile(fakeGcloud));
+    Assert.assertFalse(Files.exists(getStagingDestination()));
+  }
+
+  @Test
+  public void testDownloadSdk_reusesConcurrentInstall() throws Exception {
+    SdkInstaller testInstaller =
+        new SdkInstaller(
+            fileResourceProviderFactory,
+            successfulDownloaderFactory,
+            successfulVersionedExtractorFactory,
+            null);
+    AtomicReference<Object> result = new AtomicReference<>();
+    Thread installThread;
+
+    try (LockFile lock = LockFile.acquire(fakeFileResourceProvider.getLockFile())) {
+      installThread =
+          new Thread(
+              () -> {
+                try {
+                  result.set(testInstaller.install(progressListener, consoleListener));
+                } catch (Exception ex) {
+                  result.set(ex);
+                }
+              });
+      installThread.start();
+      while (installThread.getState() != Thread.State.WAITING) {
+        Thread.sleep(10);
+      }
+
+      // another installer completes while this one waits
+      Files.createDirectories(fakeGcloud.getParent());
+      Files.createFile(fakeGcloud);
+    }
+    installThread.join();
+
+    Assert.assertEquals(fakeSdkHome, result.get());
+    Mockito.verifyNoInteractions(successfulDownloaderFactory);
+    Mockito.verify(progressListener).done();
+  }
+
+  @Test
+  public void testBuilder_nonPositiveDownloadSegments() {
+    SdkInstaller.Builder builder =
+        SdkInstaller.builder(
+            testDir.getRoot().toPath(),
+            Version.LATEST,
+            new OsInfo(OsInfo.Name.LINUX, OsInfo.Architecture.X86_64),
+            "test-agent");
+    try {
+      builder.setDownloadSegments(0);
+      Assert.fail("IllegalArgumentException expected but not thrown");
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("downloadSegments must be positive", ex.getMessage());
+    }
+  }
 }
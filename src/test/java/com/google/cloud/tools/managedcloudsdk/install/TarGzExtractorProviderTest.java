@@ -16,13 +16,19 @@
 
 package com.google.cloud.tools.managedcloudsdk.install;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Locale;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.Assert;
@@ -59,6 +65,43 @@ public class TarGzExtractorProviderTest {
         mockProgressListener, "Extracting archive: " + testArchive.getFileName());
   }
 
+  @Test
+  public void testCall_singleThread() throws URISyntaxException, IOException {
+    Path extractionRoot = tmp.getRoot().toPath();
+    Path testArchive = getResource("genericArchives/test.tar.gz");
+
+    new TarGzExtractorProvider(1).extract(testArchive, extractionRoot, mockProgressListener);
+
+    GenericArchivesVerifier.assertArchiveExtraction(extractionRoot);
+    ProgressVerifier.verifyUnknownProgress(
+        mockProgressListener, "Extracting archive: " + testArchive.getFileName());
+  }
+
+  @Test
+  public void testCall_manyEntries() throws IOException {
+    Path testArchive = tmp.newFile("many.tar.gz").toPath();
+    byte[] largeContent = new byte[TarGzExtractorProvider.MAX_BUFFERED_FILE_SIZE + 1];
+    Arrays.fill(largeContent, (byte) 'x');
+    try (TarArchiveOutputStream out =
+        new TarArchiveOutputStream(
+            new GzipCompressorOutputStream(Files.newOutputStream(testArchive)))) {
+      for (int i = 0; i < 100; i++) {
+        addEntry(out, "root/dir" + (i % 10) + "/file" + i, ("content " + i).getBytes(UTF_8));
+      }
+      addEntry(out, "root/large", largeContent);
+    }
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+
+    new TarGzExtractorProvider(4).extract(testArchive, extractionRoot, mockProgressListener);
+
+    for (int i = 0; i < 100; i++) {
+      Path file = extractionRoot.resolve("root/dir" + (i % 10) + "/file" + i);
+      Assert.assertEquals("content " + i, new String(Files.readAllBytes(file), UTF_8));
+    }
+    Assert.assertArrayEquals(
+        largeContent, Files.readAllBytes(extractionRoot.resolve("root/large")));
+  }
+
   @Test
   public void testZipSlipVulnerability_windows() throws URISyntaxException {
     Assume.assumeTrue(System.getProperty("os.name").startsWith("Windows"));
@@ -91,6 +134,64 @@ public class TarGzExtractorProviderTest {
     }
   }
 
+  @Test
+  public void testCall_duplicateEntriesLastWins() throws IOException {
+    Path testArchive = tmp.newFile("duplicates.tar.gz").toPath();
+    byte[] largeContent = new byte[TarGzExtractorProvider.MAX_BUFFERED_FILE_SIZE + 1];
+    Arrays.fill(largeContent, (byte) 'x');
+    try (TarArchiveOutputStream out =
+        new TarArchiveOutputStream(
+            new GzipCompressorOutputStream(Files.newOutputStream(testArchive)))) {
+      addEntry(out, "root/small-then-large", "small".getBytes(UTF_8));
+      addEntry(out, "root/large-then-small", largeContent);
+      addEntry(out, "root/small-then-large", largeContent);
+      addEntry(out, "root/large-then-small", "small".getBytes(UTF_8));
+    }
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+
+    new TarGzExtractorProvider(4).extract(testArchive, extractionRoot, mockProgressListener);
+
+    Assert.assertArrayEquals(
+        largeContent, Files.readAllBytes(extractionRoot.resolve("root/small-then-large")));
+    Assert.assertEquals(
+        "small",
+        new String(Files.readAllBytes(extractionRoot.resolve("root/large-then-small")), UTF_8));
+  }
+
+  @Test
+  public void testCall_symbolicLinkInDestination() throws IOException {
+    Assume.assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+
+    Path testArchive = tmp.newFile("link.tar.gz").toPath();
+    try (TarArchiveOutputStream out =
+        new TarArchiveOutputStream(
+            new GzipCompressorOutputStream(Files.newOutputStream(testArchive)))) {
+      addEntry(out, "link/file", "content".getBytes(UTF_8));
+    }
+    Path outside = tmp.newFolder("outside").toPath();
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+    Files.createSymbolicLink(extractionRoot.resolve("link"), outside);
+
+    try {
+      tarGzExtractorProvider.extract(testArchive, extractionRoot, mockProgressListener);
+      Assert.fail("IOException expected");
+    } catch (IOException expected) {
+      MatcherAssert.assertThat(
+          expected.getMessage(),
+          CoreMatchers.startsWith("Blocked unzipping files through symbolic link: "));
+    }
+    Assert.assertFalse(Files.exists(outside.resolve("file")));
+  }
+
+  private static void addEntry(TarArchiveOutputStream out, String name, byte[] content)
+      throws IOException {
+    TarArchiveEntry entry = new TarArchiveEntry(name);
+    entry.setSize(content.length);
+    out.putArchiveEntry(entry);
+    out.write(content);
+    out.closeArchiveEntry();
+  }
+
   private Path getResource(String resourcePath) throws URISyntaxException {
     Path resource = Paths.get(getClass().getClassLoader().getResource(resourcePath).toURI());
     Assert.assertTrue(Files.exists(resource));
@@ -19,10 +19,13 @@ package com.google.cloud.tools.managedcloudsdk.install;
 import com.google.cloud.tools.managedcloudsdk.ProgressListener;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Locale;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.hamcrest.CoreMatchers;
 import org.hamcrest.MatcherAssert;
 import org.junit.Assert;
@@ -55,10 +58,90 @@ public class ZipExtractorProviderTest {
       GenericArchivesVerifier.assertFilePermissions(extractionRoot);
     }
 
-    ProgressVerifier.verifyUnknownProgress(
+    ProgressVerifier.verifyProgress(
         mockProgressListener, "Extracting archive: " + testArchive.getFileName());
   }
 
+  @Test
+  public void testCall_singleThread() throws URISyntaxException, IOException {
+    Path extractionRoot = tmp.getRoot().toPath();
+    Path testArchive = getResource("genericArchives/test.zip");
+
+    new ZipExtractorProvider(1).extract(testArchive, extractionRoot, mockProgressListener);
+
+    GenericArchivesVerifier.assertArchiveExtraction(extractionRoot);
+    ProgressVerifier.verifyProgress(
+        mockProgressListener, "Extracting archive: " + testArchive.getFileName());
+  }
+
+  @Test
+  public void testCall_manyEntries() throws IOException {
+    Path testArchive = tmp.newFile("many.zip").toPath();
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(testArchive.toFile())) {
+      for (int i = 0; i < 100; i++) {
+        out.putArchiveEntry(new ZipArchiveEntry("root/dir" + (i % 10) + "/file" + i));
+        out.write(("content " + i).getBytes(StandardCharsets.UTF_8));
+        out.closeArchiveEntry();
+      }
+    }
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+
+    new ZipExtractorProvider(4).extract(testArchive, extractionRoot, mockProgressListener);
+
+    for (int i = 0; i < 100; i++) {
+      Path file = extractionRoot.resolve("root/dir" + (i % 10) + "/file" + i);
+      Assert.assertEquals(
+          "content " + i, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+    ProgressVerifier.verifyProgress(
+        mockProgressListener, "Extracting archive: " + testArchive.getFileName());
+  }
+
+  @Test
+  public void testCall_duplicateEntriesLastWins() throws IOException {
+    Path testArchive = tmp.newFile("duplicates.zip").toPath();
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(testArchive.toFile())) {
+      for (int i = 0; i < 10; i++) {
+        out.putArchiveEntry(new ZipArchiveEntry("root/file"));
+        out.write(("content " + i).getBytes(StandardCharsets.UTF_8));
+        out.closeArchiveEntry();
+      }
+    }
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+
+    new ZipExtractorProvider(4).extract(testArchive, extractionRoot, mockProgressListener);
+
+    Assert.assertEquals(
+        "content 9",
+        new String(
+            Files.readAllBytes(extractionRoot.resolve("root/file")), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCall_symbolicLinkInDestination() throws IOException {
+    Assume.assumeTrue(!System.getProperty("os.name").startsWith("Windows"));
+
+    Path testArchive = tmp.newFile("link.zip").toPath();
+    try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(testArchive.toFile())) {
+      out.putArchiveEntry(new ZipArchiveEntry("link/file"));
+      out.write("content".getBytes(StandardCharsets.UTF_8));
+      out.closeArchiveEntry();
+    }
+    Path outside = tmp.newFolder("outside").toPath();
+    Path extractionRoot = tmp.newFolder("extracted").toPath();
+    Files.createSymbolicLink(extractionRoot.resolve("link"), outside);
+
+    try {
+      zipExtractorProvider.extract(testArchive, extractionRoot, mockProgressListener);
+      Assert.fail("IOException expected");
+    } catch (IOException expected) {
+      MatcherAssert.assertThat(
+          expected.getMessage(),
+          CoreMatchers.startsWith("Blocked unzipping files through symbolic link: "));
+    }
+    Assert.assertFalse(Files.exists(outside.resolve("file")));
+  }
+
   @Test
   public void testZipSlipVulnerability_windows() throws URISyntaxException {
     Assume.assumeTrue(System.getProperty("os.name").startsWith("Windows"));
@@ -212,6 +212,62 @@ public class AppYamlTest {
     Assert.assertNull(AppYaml.parse(appYaml).getEnvironmentVariables());
   }
 
+  @Test
+  public void testParse_nonMappingRoot() {
+    try {
+      AppYaml.parse(asStream("- goose\n- moose\n"));
+      Assert.fail("AppEngineException expected but not thrown");
+    } catch (AppEngineException ex) {
+      Assert.assertEquals("Malformed 'app.yaml'.", ex.getMessage());
+    }
+  }
+
+  @Test
+  public void testScan_emptyAppYaml() throws AppEngineException {
+    Assert.assertNull(AppYaml.scan(asStream("")).getRuntime());
+  }
+
+  @Test
+  public void testScan_topLevelStrings() throws AppEngineException {
+    InputStream appYaml =
+        asStream(
+            "env: flex\n"
+                + "handlers:\n- url: /\n  runtime: nested\n"
+                + "runtime: 'java'\n"
+                + "entrypoint: java -jar goose.jar\n"
+                + "module: moose\n");
+    AppYaml scanned = AppYaml.scan(appYaml);
+    Assert.assertEquals("flex", scanned.getEnvironmentType());
+    Assert.assertEquals("java", scanned.getRuntime());
+    Assert.assertEquals("java -jar goose.jar", scanned.getEntrypoint());
+    Assert.assertEquals("moose", scanned.getServiceId());
+  }
+
+  @Test
+  public void testScan_sameValuesAsParse() throws AppEngineException {
+    String contents =
+        "runtime: 11\nenv: [goose, moose]\nbase: &base java -jar goose.jar\n"
+            + "entrypoint: *base\nservice: first\nservice: second\napi_version: ~\n";
+    AppYaml parsed = AppYaml.parse(asStream(contents));
+    AppYaml scanned = AppYaml.scan(asStream(contents));
+    Assert.assertNull(scanned.getRuntime());
+    Assert.assertEquals(parsed.getRuntime(), scanned.getRuntime());
+    Assert.assertEquals(parsed.getEnvironmentType(), scanned.getEnvironmentType());
+    Assert.assertEquals(parsed.getEntrypoint(), scanned.getEntrypoint());
+    Assert.assertEquals(parsed.getServiceId(), scanned.getServiceId());
+    Assert.assertEquals(parsed.getApiVersion(), scanned.getApiVersion());
+  }
+
+  @Test
+  public void testScan_malformed() {
+    try {
+      AppYaml.scan(asStream("runtime: java\nhandlers: [\n"));
+      Assert.fail("AppEngineException expected but not thrown");
+    } catch (AppEngineException ex) {
+      Assert.assertEquals("Malformed 'app.yaml'.", ex.getMessage());
+    }
+  }
+
   private InputStream asStream(String contents) {
     return new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
   }